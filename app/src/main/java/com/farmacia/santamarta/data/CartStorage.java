@@ -0,0 +1,61 @@
+package com.farmacia.santamarta.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Guarda el carrito en SharedPreferences para que sobreviva a cerrar la app.
+ * Se escribe con apply(), que no bloquea el hilo principal.
+ */
+public class CartStorage {
+    private static final String TAG = "CartStorage";
+    private static final String PREFS = "carrito";
+    private static final String KEY_LINEAS = "lineas";
+
+    private final SharedPreferences prefs;
+
+    public CartStorage(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    public void load(Cart cart) {
+        String guardado = prefs.getString(KEY_LINEAS, null);
+        if (guardado == null) return;
+        try {
+            JSONArray lineas = new JSONArray(guardado);
+            for (int i = 0; i < lineas.length(); i++) {
+                JSONObject l = lineas.getJSONObject(i);
+                cart.restore(l.getString("product_id"), l.optString("nombre"),
+                        l.getDouble("precio"), l.getInt("cantidad"));
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Carrito guardado inválido, se descarta", e);
+            prefs.edit().remove(KEY_LINEAS).apply();
+        }
+    }
+
+    public void save(Cart cart) {
+        if (cart.isEmpty()) {
+            prefs.edit().remove(KEY_LINEAS).apply();
+            return;
+        }
+        JSONArray lineas = new JSONArray();
+        try {
+            for (Cart.Line linea : cart.getLines()) {
+                lineas.put(new JSONObject()
+                        .put("product_id", linea.getProductId())
+                        .put("nombre", linea.getNombre())
+                        .put("precio", linea.getPrecio())
+                        .put("cantidad", linea.getCantidad()));
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "No se pudo guardar el carrito", e);
+            return;
+        }
+        prefs.edit().putString(KEY_LINEAS, lineas.toString()).apply();
+    }
+}
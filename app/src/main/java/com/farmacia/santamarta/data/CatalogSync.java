@@ -0,0 +1,194 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+import com.farmacia.santamarta.metrics.Counter;
+import com.farmacia.santamarta.metrics.Histogram;
+import com.farmacia.santamarta.metrics.Metrics;
+import com.farmacia.santamarta.models.Product;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+
+/**
+ * Mantiene una copia local del nodo `products` a partir de eventos por hijo.
+ * Cada cambio en Firebase modifica solo la fila afectada del
+ * {@link CatalogStore} y avisa la posición exacta en el orden por clave,
+ * en lugar de volver a descargar el catálogo completo.
+ *
+ * Escucha a través de {@link SubscriptionManager}: en segundo plano se suelta
+ * y al volver solo llegan los productos que cambiaron. Terminada la descarga
+ * completa se pasa al modo incremental, así volver a primer plano no
+ * descarga otra vez todo el nodo.
+ */
+public class CatalogSync {
+    // Desde que se pide el catálogo (completo o solo cambios) hasta tenerlo aplicado
+    private static final Histogram CARGA_COMPLETA = Metrics.histogram("firebase.catalogo.completo");
+    private static final Histogram CARGA_DELTA = Metrics.histogram("firebase.catalogo.delta");
+    private static final Counter EVENTOS = Metrics.counter("firebase.catalogo.eventos");
+
+    public interface Listener {
+        void onCatalogLoaded();
+        void onProductInserted(int position, int row);
+        void onProductChanged(int position, int row);
+        void onProductRemoved(int position, int row);
+        /** La consulta se canceló y la sincronización se detuvo; se puede llamar otra vez a start/startDelta. */
+        void onSyncError(DatabaseError error);
+    }
+
+    private final LifecycleOwner owner;
+    private final DatabaseReference productsRef;
+    private final Listener listener;
+    private CatalogStore store = new CatalogStore();
+    private Query query;
+    @Nullable private SubscriptionManager.Handle handle;
+    private boolean cargaInicial = true;
+    // false al pasar solo al modo incremental: el catálogo ya estaba cargado
+    private boolean avisarCarga;
+    private boolean activo = false;
+    private boolean completo;
+    private long inicioNanos;
+
+    private final Escucha childListener = new Escucha() {
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            aplicar(snapshot);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            aplicar(snapshot);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            // En modo incremental un hijo sale de la consulta sin haberse borrado
+            if (query == productsRef) eliminar(snapshot.getKey());
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            // El orden local es siempre por clave; un cambio de orden en la consulta no lo afecta
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            // Firebase ya no entrega nada por esta consulta: se suelta para poder volver a empezar
+            stop();
+            listener.onSyncError(error);
+        }
+
+        // Llega después de todos los onChildAdded iniciales
+        @Override
+        public void onInitialLoad() {
+            cargaInicial = false;
+            if (completo) {
+                // Los cambios siguientes llegan igual por la consulta incremental
+                handle.remove();
+                attach(deltaQuery(), false);
+                avisarCarga = false;
+                CARGA_COMPLETA.recordSince(inicioNanos);
+                listener.onCatalogLoaded();
+            } else if (avisarCarga) {
+                CARGA_DELTA.recordSince(inicioNanos);
+                listener.onCatalogLoaded();
+            }
+        }
+    };
+
+    private interface Escucha extends ChildEventListener, SubscriptionManager.InitialLoadListener {}
+
+    /** Los listeners se pausan y se sueltan según el ciclo de vida de {@code owner}. */
+    public CatalogSync(LifecycleOwner owner, DatabaseReference productsRef, Listener listener) {
+        this.owner = owner;
+        this.productsRef = productsRef;
+        this.listener = listener;
+    }
+
+    /** Reemplaza el catálogo local por una copia cargada de disco, sin avisar por fila. */
+    public void seed(CatalogStore loaded) {
+        store = loaded;
+    }
+
+    /** Descarga el catálogo completo; los eventos por fila se agrupan hasta onCatalogLoaded. */
+    public void start() {
+        if (activo) return;
+        avisarCarga = true;
+        attach(productsRef, true);
+    }
+
+    /**
+     * Pide solo los productos escritos después de la última sincronización.
+     * Requiere un catálogo sembrado con {@link #seed}; cada cambio se avisa por fila.
+     */
+    public void startDelta() {
+        if (activo) return;
+        avisarCarga = true;
+        attach(deltaQuery(), false);
+    }
+
+    private Query deltaQuery() {
+        return productsRef.orderByChild("updated_at").startAt(store.getLastUpdatedAt() + 1);
+    }
+
+    private void attach(Query q, boolean agrupar) {
+        activo = true;
+        cargaInicial = agrupar;
+        completo = q == productsRef;
+        inicioNanos = System.nanoTime();
+        query = q;
+        String clave = completo ? productsRef.toString()
+                : productsRef + "?updated_at>" + store.getLastUpdatedAt();
+        handle = SubscriptionManager.get().observe(owner, clave, query, childListener);
+    }
+
+    public void stop() {
+        if (!activo) return;
+        activo = false;
+        handle.remove();
+        handle = null;
+    }
+
+    /** Catálogo local; se modifica solo en el hilo principal. */
+    public CatalogStore getStore() {
+        return store;
+    }
+
+    public boolean isLoaded() {
+        return activo && !cargaInicial;
+    }
+
+    public boolean isActive() {
+        return activo;
+    }
+
+    private void aplicar(DataSnapshot snapshot) {
+        EVENTOS.inc();
+        Product product = ProductMapper.fromValue(snapshot.getKey(), snapshot.getValue());
+        if (product == null) return;
+        if (product.isEliminado()) {
+            eliminar(product.getId());
+            return;
+        }
+
+        int row = store.rowOf(product.getId());
+        if (row >= 0) {
+            store.update(row, product);
+            if (!cargaInicial) listener.onProductChanged(store.positionOf(product.getId()), row);
+        } else {
+            int position = store.insert(product);
+            if (!cargaInicial) listener.onProductInserted(position, store.rowOf(product.getId()));
+        }
+    }
+
+    private void eliminar(String id) {
+        if (id == null) return;
+        int row = store.rowOf(id);
+        if (row < 0) return;
+        int position = store.remove(id);
+        if (!cargaInicial) listener.onProductRemoved(position, row);
+    }
+}
@@ -0,0 +1,139 @@
+package com.farmacia.santamarta.data;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.models.DeliveryLocation;
+import com.farmacia.santamarta.models.Order;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ServerValue;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Confirma un carrito como pedido con una sola actualización multi-ruta:
+ * crea `orders/{id}` y descuenta el stock de cada línea con
+ * {@code ServerValue.increment}. La regla de validación de `stock` (nunca
+ * negativo) hace que, si alguna línea no alcanza, el servidor rechace la
+ * escritura completa: no queda un pedido sin reserva ni stock descontado
+ * de un pedido que no existe.
+ *
+ * El pedido entra con sus índices ({@link OrderIndexes}) y, si tiene punto
+ * de entrega, una vez confirmado se asigna al repartidor disponible más
+ * cercano ({@link DispatchService}).
+ *
+ * La misma escritura descuenta el stock en la copia del resumen del panel
+ * y deja el nombre de cada producto para la lista de más vendidos
+ * ({@link SalesSummary}).
+ */
+public class CheckoutService {
+    private static final String TAG = "CheckoutService";
+
+    public interface Callback {
+        void onOrderPlaced(String orderId);
+
+        /** Stock actual de las líneas que ya no alcanzan (producto → unidades disponibles). */
+        void onOutOfStock(Map<String, Integer> disponibles);
+
+        void onError(String mensaje);
+    }
+
+    private final DatabaseReference root;
+    private final DispatchService dispatch;
+
+    public CheckoutService(DatabaseReference root) {
+        this.root = root;
+        this.dispatch = new DispatchService(root);
+    }
+
+    public void checkout(Cart cart, String clienteId, @Nullable DeliveryLocation entrega, Callback callback) {
+        if (cart.isEmpty()) {
+            callback.onError("El carrito está vacío");
+            return;
+        }
+        String orderId = root.child("orders").push().getKey();
+        if (orderId == null) {
+            callback.onError("No se pudo crear el pedido");
+            return;
+        }
+        Map<String, Integer> cantidades = cart.quantities();
+        Map<String, String> nombres = new LinkedHashMap<>();
+        for (Cart.Line linea : cart.getLines()) nombres.put(linea.getProductId(), linea.getNombre());
+
+        Order order = new Order();
+        order.setId(orderId);
+        order.setClienteId(clienteId);
+        order.setProductos(cart.toOrderItems());
+        order.setTotal(cart.getTotal());
+        order.setEstado(Order.PENDIENTE);
+        order.setUbicacionEntrega(entrega);
+
+        // Pedido e índices (cliente, estado y orders_geo si hay punto de entrega) más la reserva de stock
+        Map<String, Object> updates = OrderIndexes.create(order, ServerValue.TIMESTAMP);
+        for (Map.Entry<String, Integer> e : cantidades.entrySet()) {
+            String producto = "products/" + e.getKey();
+            Object reserva = ServerValue.increment(-e.getValue());
+            updates.put(producto + "/stock", reserva);
+            updates.put(producto + "/updated_at", ServerValue.TIMESTAMP);
+            SalesSummary.stockDelta(e.getKey(), reserva, updates);
+            SalesSummary.productName(e.getKey(), nombres.get(e.getKey()), updates);
+        }
+
+        root.updateChildren(updates, (error, ref) -> {
+            if (error == null) {
+                callback.onOrderPlaced(orderId);
+                // Con solo la dirección escrita el pedido lo asigna la farmacia a mano
+                if (entrega != null && entrega.hasCoordinates()) assignRider(orderId, entrega);
+            } else if (error.getCode() == DatabaseError.PERMISSION_DENIED) {
+                // La regla de stock rechazó la escritura: se averigua qué líneas no alcanzan
+                findShortLines(cantidades, callback);
+            } else {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    private void assignRider(String orderId, DeliveryLocation entrega) {
+        dispatch.assignNearest(orderId, entrega.getLat(), entrega.getLng(), System.currentTimeMillis(),
+                new DispatchService.Callback() {
+                    @Override
+                    public void onAssigned(@Nullable String riderId) {
+                        // Sin repartidor cerca el pedido queda en orders_geo para que lo tome uno que pase
+                        Log.d(TAG, "Pedido " + orderId + (riderId != null ? " asignado a " + riderId : " sin repartidor cercano"));
+                    }
+
+                    @Override
+                    public void onError(String mensaje) {
+                        Log.w(TAG, "No se pudo asignar " + orderId + ": " + mensaje);
+                    }
+                });
+    }
+
+    private void findShortLines(Map<String, Integer> cantidades, Callback callback) {
+        List<String> ids = new ArrayList<>(cantidades.keySet());
+        List<Task<DataSnapshot>> lecturas = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            lecturas.add(root.child("products").child(id).child("stock").get());
+        }
+        Tasks.whenAllComplete(lecturas).addOnCompleteListener(t -> {
+            Map<String, Integer> disponibles = new LinkedHashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                Task<DataSnapshot> lectura = lecturas.get(i);
+                if (!lectura.isSuccessful()) continue;
+                Object stock = lectura.getResult().getValue();
+                int actual = stock instanceof Number ? ((Number) stock).intValue() : 0;
+                if (actual < cantidades.get(ids.get(i))) disponibles.put(ids.get(i), Math.max(actual, 0));
+            }
+            if (disponibles.isEmpty()) {
+                callback.onError("El pedido fue rechazado por el servidor");
+            } else {
+                callback.onOutOfStock(disponibles);
+            }
+        });
+    }
+}
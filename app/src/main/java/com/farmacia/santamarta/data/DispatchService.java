@@ -0,0 +1,137 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.Nullable;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reparto de pedidos por cercanía con dos índices por geohash
+ * ({@link Geohash#PRECISION}):
+ * <ul>
+ *   <li>`orders_geo/{celda}/{orderId}`: pedidos PENDIENTE sin repartidor.</li>
+ *   <li>`riders_geo/{celda}/{riderId}`: repartidores disponibles con su
+ *   posición, carga y `last_update` (los mantiene {@link LocationPublisher}).</li>
+ * </ul>
+ * Asignar pasa por {@link OrderRepository#assign}: el repartidor del pedido,
+ * su entrada en `orders_por_repartidor` y la baja en `orders_geo` van en una
+ * sola actualización, y la regla de `repartidor_id` (solo se escribe una
+ * vez) hace que, si dos asignaciones compiten, una falle completa. La misma
+ * escritura sube la `carga` del repartidor en `riders_geo`; su regla no deja
+ * pasar de {@link RiderSearch#MAX_CARGA}, así que una ráfaga de pedidos no
+ * termina toda en el mismo repartidor: la asignación rechazada vuelve a
+ * buscar con la carga ya actualizada.
+ */
+public class DispatchService {
+    // Anillos de celdas alrededor del pedido (~3 km con precisión 6)
+    private static final int MAX_RINGS = 4;
+    // Un repartidor que no publica posición hace rato no cuenta como disponible
+    private static final long RIDER_STALE_MS = 5 * 60_000;
+    // Búsquedas completas por pedido si el elegido se llenó entre la lectura y la asignación
+    private static final int MAX_BUSQUEDAS = 2;
+
+    public interface Callback {
+        /** {@code riderId} es null si no hay repartidores disponibles cerca; el pedido sigue en `orders_geo`. */
+        void onAssigned(@Nullable String riderId);
+
+        void onError(String mensaje);
+    }
+
+    private final DatabaseReference root;
+    private final OrderRepository orders;
+
+    public DispatchService(DatabaseReference root) {
+        this.root = root;
+        this.orders = new OrderRepository(root);
+    }
+
+    /**
+     * Busca el repartidor disponible más cercano leyendo solo los anillos de
+     * celdas necesarios (cada anillo en paralelo) y le asigna el pedido.
+     * {@code now} es la hora del servidor estimada por quien llama.
+     */
+    public void assignNearest(String orderId, double lat, double lng, long now, Callback callback) {
+        assignNearest(orderId, lat, lng, now, MAX_BUSQUEDAS, callback);
+    }
+
+    private void assignNearest(String orderId, double lat, double lng, long now, int busquedas, Callback callback) {
+        RiderSearch search = new RiderSearch(lat, lng, Geohash.PRECISION, MAX_RINGS, now - RIDER_STALE_MS);
+        readRing(search, () -> {
+            String riderId = search.best();
+            if (riderId == null) {
+                callback.onAssigned(null);
+                return;
+            }
+            assign(orderId, riderId, search.bestCell(), new Callback() {
+                @Override
+                public void onAssigned(@Nullable String asignado) {
+                    callback.onAssigned(asignado);
+                }
+
+                @Override
+                public void onError(String mensaje) {
+                    // Lo más probable es que el elegido llegó al máximo de carga: se busca de nuevo
+                    if (busquedas > 1) {
+                        assignNearest(orderId, lat, lng, now, busquedas - 1, callback);
+                    } else {
+                        callback.onError(mensaje);
+                    }
+                }
+            });
+        }, callback);
+    }
+
+    // Lee anillo por anillo hasta que la búsqueda termina y entonces corre alTerminar
+    private void readRing(RiderSearch search, Runnable alTerminar, Callback callback) {
+        if (search.isDone()) {
+            alTerminar.run();
+            return;
+        }
+        List<String> celdas = search.nextCells();
+        List<Task<DataSnapshot>> lecturas = new ArrayList<>(celdas.size());
+        for (String celda : celdas) {
+            lecturas.add(root.child("riders_geo").child(celda).get());
+        }
+        Tasks.whenAllComplete(lecturas).addOnCompleteListener(t -> {
+            for (int i = 0; i < lecturas.size(); i++) {
+                Task<DataSnapshot> lectura = lecturas.get(i);
+                if (!lectura.isSuccessful()) {
+                    callback.onError("No se pudo leer repartidores cercanos");
+                    return;
+                }
+                for (DataSnapshot rider : lectura.getResult().getChildren()) {
+                    Map<String, Object> r = SnapshotValues.map(rider.getValue());
+                    if (!r.containsKey("lat") || !r.containsKey("lng")) continue;
+                    search.offer(rider.getKey(), celdas.get(i), SnapshotValues.number(r, "lat"),
+                            SnapshotValues.number(r, "lng"), (int) SnapshotValues.integer(r, "carga"),
+                            SnapshotValues.integer(r, "last_update"));
+                }
+            }
+            search.ringDone();
+            readRing(search, alTerminar, callback);
+        });
+    }
+
+    /**
+     * Asigna el pedido a un repartidor (también lo usa el repartidor para
+     * aceptar uno cercano). {@code celdaRepartidor} es la celda de su entrada
+     * en `riders_geo`, o null si no tiene.
+     */
+    public void assign(String orderId, String riderId, @Nullable String celdaRepartidor, Callback callback) {
+        orders.assign(orderId, riderId, celdaRepartidor, new OrderRepository.Callback() {
+            @Override
+            public void onSuccess() {
+                callback.onAssigned(riderId);
+            }
+
+            @Override
+            public void onError(String mensaje) {
+                callback.onError(mensaje);
+            }
+        });
+    }
+}
@@ -0,0 +1,235 @@
+package com.farmacia.santamarta.data;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.metrics.Counter;
+import com.farmacia.santamarta.metrics.Metrics;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publica la posición del repartidor en `tracking/{orderId}` de cada pedido
+ * que lleva y en `users/{riderId}/ubicacion` con una sola actualización
+ * multi-ruta por posición, así nadie lee una latitud nueva con una longitud
+ * vieja.
+ *
+ * Descarta las posiciones que se movieron menos de {@link #MIN_DISTANCE_M}
+ * ({@link LocationThrottle}) y, mientras no hay conexión, guarda solo la última: al reconectar se
+ * envía esa y no toda la cola de posiciones viejas.
+ *
+ * Mientras el repartidor está disponible, la misma actualización mantiene su
+ * entrada en `riders_geo/{celda}` (ver {@link DispatchService}); al cambiar
+ * de celda la entrada vieja se borra en la misma escritura. Un repartidor
+ * quieto no recibe posiciones nuevas, así que cada {@link #REFRESCO_MS} la
+ * entrada se reescribe con la última posición para que su `last_update` no
+ * quede vieja y el reparto lo siga considerando.
+ *
+ * La `carga` de la entrada la sube en el servidor cada asignación
+ * ({@code OrderRepository#assign}); aquí solo se escribe completa al crear
+ * la entrada y, cuando se cierran pedidos, se resta con un incremento
+ * negativo para no pisar una asignación que todavía no llegó a este teléfono.
+ */
+public class LocationPublisher {
+    public static final float MIN_DISTANCE_M = LocationThrottle.MIN_DISTANCE_M;
+    private static final Counter RECIBIDAS = Metrics.counter("ubicacion.recibidas");
+    private static final Counter PUBLICADAS = Metrics.counter("ubicacion.publicadas");
+    // Bastante menos que el plazo con el que DispatchService descarta repartidores sin noticias
+    static final long REFRESCO_MS = LocationThrottle.MAX_SILENCE_MS;
+
+    private final DatabaseReference root;
+    private final String riderId;
+    // Pedidos cuyo tracking/{id} sigue esta posición (todos los que lleva el repartidor)
+    private final List<String> orderIds = new ArrayList<>();
+    private boolean conectado = true;
+    private boolean disponible = false;
+    private int carga = 0;
+    // Pedidos cerrados que todavía no se restaron de la carga publicada
+    private int cargaPorRestar = 0;
+    // Celda donde está publicada la entrada de riders_geo; null si no hay entrada
+    @Nullable private String celdaPublicada;
+    private final LocationThrottle throttle = new LocationThrottle();
+    @Nullable private Location pendiente;
+    private DatabaseReference connectedRef;
+    @Nullable private Location ultimaPublicada;
+    private long ultimaEscritura;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable refresco = new Runnable() {
+        @Override
+        public void run() {
+            refrescarIndice();
+            handler.postDelayed(this, REFRESCO_MS);
+        }
+    };
+
+    private final ValueEventListener connectedListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            conectado = Boolean.TRUE.equals(snapshot.getValue(Boolean.class));
+            // El servidor ya borró la entrada con onDisconnect; se vuelve a crear completa
+            if (!conectado) {
+                celdaPublicada = null;
+                cargaPorRestar = 0;
+            }
+            if (conectado && pendiente != null) {
+                Location location = pendiente;
+                pendiente = null;
+                publicar(location);
+            }
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {}
+    };
+
+    public LocationPublisher(DatabaseReference root, String riderId, @Nullable String orderId) {
+        this.root = root;
+        this.riderId = riderId;
+        if (orderId != null) orderIds.add(orderId);
+    }
+
+    public void start() {
+        if (connectedRef != null) return;
+        connectedRef = root.getRoot().child(".info/connected");
+        connectedRef.addValueEventListener(connectedListener);
+        handler.postDelayed(refresco, REFRESCO_MS);
+    }
+
+    public void stop() {
+        if (connectedRef == null) return;
+        connectedRef.removeEventListener(connectedListener);
+        connectedRef = null;
+        handler.removeCallbacks(refresco);
+        pendiente = null;
+        quitarDeIndice(null);
+    }
+
+    /** Cambia los pedidos en curso; la próxima posición se publica sin importar la distancia. */
+    public void setOrderIds(Collection<String> ids) {
+        if (orderIds.size() == ids.size() && orderIds.containsAll(ids)) return;
+        orderIds.clear();
+        orderIds.addAll(ids);
+        throttle.reset();
+    }
+
+    /**
+     * Si el repartidor puede recibir pedidos y cuántos lleva. Al dejar de
+     * estar disponible la entrada de `riders_geo` se borra enseguida; los
+     * demás cambios salen con la próxima posición.
+     */
+    public void setAvailability(boolean disponible, int carga) {
+        if (this.disponible == disponible && this.carga == carga) return;
+        if (celdaPublicada != null && carga < this.carga) cargaPorRestar += this.carga - carga;
+        this.disponible = disponible;
+        this.carga = carga;
+        throttle.reset();
+        if (!disponible) quitarDeIndice(null);
+    }
+
+    /** Recibe una posición nueva; decide si se publica, se descarta o queda pendiente. */
+    public void onLocation(Location location) {
+        RECIBIDAS.inc();
+        if (!throttle.shouldPublish(location.getLatitude(), location.getLongitude(), location.getTime())) return;
+        if (!conectado) {
+            // Sin red solo interesa la más reciente; Firebase encolaría todas
+            pendiente = location;
+            return;
+        }
+        publicar(location);
+    }
+
+    /** Intervalo sugerido para el LocationRequest; 0 si no hay que seguir pidiendo posiciones. */
+    public static long intervalFor(@Nullable Location location, @Nullable String estado) {
+        return LocationThrottle.intervalFor(location != null && location.hasSpeed(),
+                location != null ? location.getSpeed() : 0f, estado);
+    }
+
+    private void publicar(Location location) {
+        throttle.published(location.getLatitude(), location.getLongitude(), location.getTime());
+        PUBLICADAS.inc();
+        ultimaPublicada = location;
+        ultimaEscritura = SystemClock.elapsedRealtime();
+
+        Map<String, Object> updates = new HashMap<>();
+        for (String orderId : orderIds) {
+            String tracking = "tracking/" + orderId + "/";
+            updates.put(tracking + "lat", location.getLatitude());
+            updates.put(tracking + "lng", location.getLongitude());
+            updates.put(tracking + "last_update", ServerValue.TIMESTAMP);
+        }
+        String ubicacion = "users/" + riderId + "/ubicacion/";
+        updates.put(ubicacion + "lat", location.getLatitude());
+        updates.put(ubicacion + "lng", location.getLongitude());
+        if (disponible) indexar(location, updates);
+        root.updateChildren(updates);
+    }
+
+    // Solo riders_geo: el tracking del cliente ya tiene su propio latido en LocationThrottle
+    private void refrescarIndice() {
+        if (!disponible || !conectado || ultimaPublicada == null) return;
+        if (SystemClock.elapsedRealtime() - ultimaEscritura < REFRESCO_MS) return;
+        Map<String, Object> updates = new HashMap<>();
+        indexar(ultimaPublicada, updates);
+        ultimaEscritura = SystemClock.elapsedRealtime();
+        root.updateChildren(updates);
+    }
+
+    private void indexar(Location location, Map<String, Object> updates) {
+        String celda = Geohash.encode(location.getLatitude(), location.getLongitude(), Geohash.PRECISION);
+        if (celda.equals(celdaPublicada)) {
+            // Campo por campo: la carga que subieron las asignaciones queda como está
+            String ruta = riderPath(celda) + "/";
+            updates.put(ruta + "lat", location.getLatitude());
+            updates.put(ruta + "lng", location.getLongitude());
+            updates.put(ruta + "last_update", ServerValue.TIMESTAMP);
+            if (cargaPorRestar > 0) updates.put(ruta + "carga", ServerValue.increment(-cargaPorRestar));
+            cargaPorRestar = 0;
+            return;
+        }
+        Map<String, Object> entrada = new HashMap<>();
+        entrada.put("lat", location.getLatitude());
+        entrada.put("lng", location.getLongitude());
+        entrada.put("carga", carga);
+        entrada.put("last_update", ServerValue.TIMESTAMP);
+        updates.put(riderPath(celda), entrada);
+        quitarDeIndice(updates);
+        celdaPublicada = celda;
+        // Si la app muere sin avisar, el servidor borra la entrada al perder la conexión
+        root.child(riderPath(celda)).onDisconnect().removeValue();
+    }
+
+    /** Celda de la entrada publicada en `riders_geo`, o null si no hay entrada. */
+    @Nullable
+    public String getPublishedCell() {
+        return celdaPublicada;
+    }
+
+    // Borra la entrada de riders_geo: dentro de updates si se da, o con una escritura propia
+    private void quitarDeIndice(@Nullable Map<String, Object> updates) {
+        if (celdaPublicada == null) return;
+        DatabaseReference anterior = root.child(riderPath(celdaPublicada));
+        anterior.onDisconnect().cancel();
+        if (updates != null) {
+            updates.put(riderPath(celdaPublicada), null);
+        } else {
+            anterior.removeValue();
+        }
+        celdaPublicada = null;
+        cargaPorRestar = 0;
+    }
+
+    private String riderPath(String celda) {
+        return "riders_geo/" + celda + "/" + riderId;
+    }
+}
@@ -0,0 +1,58 @@
+package com.farmacia.santamarta.data;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lista de stock bajo del panel a partir de la copia del stock en
+ * `resumen/stock` (ver {@link SalesSummary}). Cada escritura que cambia el
+ * stock de un producto cambia también su entrada, así que la lista sale de
+ * una sola consulta acotada por el umbral y por {@code max}, sin leer
+ * `products` ni escribir nada al abrir el panel.
+ */
+public final class LowStockList {
+
+    public static final class Entry {
+        public final String productId;
+        public final String nombre;
+        public final long stock;
+
+        Entry(String productId, String nombre, long stock) {
+            this.productId = productId;
+            this.nombre = nombre;
+            this.stock = stock;
+        }
+    }
+
+    public interface Callback {
+        void onLoaded(List<Entry> productos);
+
+        void onError(String mensaje);
+    }
+
+    private LowStockList() {}
+
+    /** Hasta {@code max} productos en el umbral o por debajo, del menor stock al mayor. */
+    public static void load(DatabaseReference root, int max, Callback callback) {
+        root.child(SalesSummary.STOCK).orderByChild("stock").endAt(SalesSummary.UMBRAL_STOCK_BAJO)
+                .limitToFirst(max).get().addOnCompleteListener(lista -> {
+                    if (!lista.isSuccessful()) {
+                        callback.onError("No se pudo leer la lista de stock bajo");
+                        return;
+                    }
+                    List<Entry> bajos = new ArrayList<>();
+                    for (DataSnapshot producto : lista.getResult().getChildren()) {
+                        Map<String, Object> v = SnapshotValues.map(producto.getValue());
+                        // Sin nombre la entrada solo tiene incrementos: el producto no se copió
+                        // con una importación y su número no es el stock real
+                        String nombre = SnapshotValues.string(v, "nombre");
+                        if (nombre == null) continue;
+                        bajos.add(new Entry(producto.getKey(), nombre, Math.max(SnapshotValues.integer(v, "stock"), 0)));
+                    }
+                    callback.onLoaded(bajos);
+                });
+    }
+}
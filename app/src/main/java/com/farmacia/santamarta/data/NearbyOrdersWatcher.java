@@ -0,0 +1,146 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pedidos sin repartidor alrededor del repartidor: escucha solo la celda de
+ * `orders_geo` donde está y sus 8 vecinas. Al moverse a otra celda se
+ * sueltan las que quedaron lejos y se agregan las nuevas; las que siguen en
+ * el bloque no se vuelven a descargar.
+ */
+public class NearbyOrdersWatcher {
+
+    public interface Listener {
+        void onNearbyOrdersChanged(int count);
+    }
+
+    /** Pedido pendiente con su punto de entrega. */
+    public static class NearbyOrder {
+        public final String orderId;
+        public final double lat, lng;
+        final String celda;
+
+        NearbyOrder(String orderId, double lat, double lng, String celda) {
+            this.orderId = orderId;
+            this.lat = lat;
+            this.lng = lng;
+            this.celda = celda;
+        }
+    }
+
+    private final DatabaseReference index;
+    private final Listener listener;
+    private final Map<String, ChildEventListener> celdas = new HashMap<>();
+    private final Map<String, NearbyOrder> pedidos = new HashMap<>();
+    @Nullable private String celdaCentro;
+
+    public NearbyOrdersWatcher(DatabaseReference root, Listener listener) {
+        this.index = root.child("orders_geo");
+        this.listener = listener;
+    }
+
+    /** Mueve el bloque de celdas escuchadas si el repartidor cambió de celda. */
+    public void onLocation(double lat, double lng) {
+        String centro = Geohash.encode(lat, lng, Geohash.PRECISION);
+        if (centro.equals(celdaCentro)) return;
+        celdaCentro = centro;
+
+        Set<String> nuevas = new HashSet<>(Geohash.ring(lat, lng, Geohash.PRECISION, 0));
+        nuevas.addAll(Geohash.ring(lat, lng, Geohash.PRECISION, 1));
+        Iterator<Map.Entry<String, ChildEventListener>> it = celdas.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, ChildEventListener> e = it.next();
+            if (nuevas.remove(e.getKey())) continue;
+            index.child(e.getKey()).removeEventListener(e.getValue());
+            it.remove();
+            quitarCelda(e.getKey());
+        }
+        for (String celda : nuevas) {
+            ChildEventListener l = escucharCelda(celda);
+            celdas.put(celda, l);
+            index.child(celda).addChildEventListener(l);
+        }
+        listener.onNearbyOrdersChanged(pedidos.size());
+    }
+
+    /** El pedido pendiente más cercano al punto, o null si no hay ninguno en el bloque. */
+    @Nullable
+    public NearbyOrder nearest(double lat, double lng) {
+        NearbyOrder mejor = null;
+        double mejorDistancia = Double.MAX_VALUE;
+        for (NearbyOrder p : pedidos.values()) {
+            double d = Geohash.distanceMeters(lat, lng, p.lat, p.lng);
+            if (d < mejorDistancia) {
+                mejorDistancia = d;
+                mejor = p;
+            }
+        }
+        return mejor;
+    }
+
+    public int count() {
+        return pedidos.size();
+    }
+
+    public void release() {
+        for (Map.Entry<String, ChildEventListener> e : celdas.entrySet()) {
+            index.child(e.getKey()).removeEventListener(e.getValue());
+        }
+        celdas.clear();
+        pedidos.clear();
+        celdaCentro = null;
+    }
+
+    private void quitarCelda(String celda) {
+        List<String> fuera = new ArrayList<>();
+        for (NearbyOrder p : pedidos.values()) {
+            if (p.celda.equals(celda)) fuera.add(p.orderId);
+        }
+        for (String id : fuera) pedidos.remove(id);
+    }
+
+    private ChildEventListener escucharCelda(String celda) {
+        return new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                poner(snapshot);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                poner(snapshot);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                if (pedidos.remove(snapshot.getKey()) != null) listener.onNearbyOrdersChanged(pedidos.size());
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {}
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {}
+
+            private void poner(DataSnapshot snapshot) {
+                Map<String, Object> m = SnapshotValues.map(snapshot.getValue());
+                if (!m.containsKey("lat") || !m.containsKey("lng")) return;
+                pedidos.put(snapshot.getKey(), new NearbyOrder(snapshot.getKey(),
+                        SnapshotValues.number(m, "lat"), SnapshotValues.number(m, "lng"), celda));
+                listener.onNearbyOrdersChanged(pedidos.size());
+            }
+        };
+    }
+}
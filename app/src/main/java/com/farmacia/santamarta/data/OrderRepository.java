@@ -0,0 +1,195 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.models.Order;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import java.util.Map;
+
+/**
+ * Consultas y cambios de pedidos a través de los índices de
+ * {@link OrderIndexes}. Las consultas escuchan solo la rama del índice que
+ * corresponde (mis pedidos, los de un repartidor, los de un estado) y nunca
+ * `orders` completo. Los cambios leen el pedido, arman la actualización con
+ * todos sus índices y, si otro cambio se adelantó (versión rechazada),
+ * vuelven a leer y reintentan.
+ *
+ * La entrega suma la venta a los resúmenes del panel ({@link SalesSummary})
+ * en la misma escritura; la cancelación devuelve el stock reservado.
+ */
+public class OrderRepository {
+    private static final int MAX_REINTENTOS = 3;
+    private static final SalesSummary.Incremento INCREMENTO = delta -> delta instanceof Double
+            ? ServerValue.increment(delta.doubleValue()) : ServerValue.increment(delta.longValue());
+
+    public interface Callback {
+        void onSuccess();
+
+        void onError(String mensaje);
+    }
+
+    /** Cambios de una rama de índice: id del pedido y su valor (estado o timestamp). */
+    public interface IndexListener {
+        void onOrderAdded(String orderId, Object valor);
+
+        void onOrderChanged(String orderId, Object valor);
+
+        void onOrderRemoved(String orderId);
+    }
+
+    /** Suscripción activa a una rama; {@link #remove()} suelta el listener. */
+    public static class Subscription {
+        private final Query query;
+        private final ChildEventListener listener;
+
+        Subscription(Query query, ChildEventListener listener) {
+            this.query = query;
+            this.listener = listener;
+        }
+
+        public void remove() {
+            query.removeEventListener(listener);
+        }
+    }
+
+    private final DatabaseReference root;
+
+    public OrderRepository(DatabaseReference root) {
+        this.root = root;
+    }
+
+    /** Pedidos de un cliente con su estado, en orden de creación (las claves push son cronológicas). */
+    public Subscription watchByClient(String clienteId, IndexListener listener) {
+        return watch(root.child(OrderIndexes.POR_CLIENTE).child(clienteId), listener);
+    }
+
+    /** Pedidos abiertos asignados a un repartidor, con su estado. */
+    public Subscription watchByRider(String riderId, IndexListener listener) {
+        return watch(root.child(OrderIndexes.POR_REPARTIDOR).child(riderId), listener);
+    }
+
+    /** Los {@code limit} pedidos más recientes en un estado. */
+    public Subscription watchByEstado(String estado, int limit, IndexListener listener) {
+        return watch(root.child(OrderIndexes.POR_ESTADO).child(estado).orderByValue().limitToLast(limit), listener);
+    }
+
+    public void transition(String orderId, String nuevoEstado, Callback callback) {
+        update(orderId, null, (actual, extra) -> {
+            if (!OrderIndexes.canTransition(actual.getEstado(), nuevoEstado)) {
+                return "El pedido está en " + actual.getEstado() + " y no puede pasar a " + nuevoEstado;
+            }
+            Map<String, Object> updates = OrderIndexes.transition(actual, nuevoEstado);
+            if (Order.ENTREGADO.equals(nuevoEstado)) {
+                SalesSummary.addSale(actual, System.currentTimeMillis(), INCREMENTO, updates);
+            } else if (Order.CANCELADO.equals(nuevoEstado)) {
+                OrderIndexes.releaseStock(actual, INCREMENTO, ServerValue.TIMESTAMP, updates);
+            }
+            return updates;
+        }, MAX_REINTENTOS, callback);
+    }
+
+    /**
+     * Asigna el pedido. Si el repartidor tiene entrada en `riders_geo`
+     * ({@code celdaRepartidor}), su `carga` sube en la misma escritura y la
+     * regla de `carga` rechaza la asignación completa si pasa del máximo.
+     *
+     * La entrada se lee junto con el pedido: si ya no existe (onDisconnect,
+     * cambio de celda) o está llena, se devuelve el error sin escribir, porque
+     * esa escritura la rechazarían las reglas en cada reintento. Quien busca
+     * repartidor ({@link DispatchService}) vuelve a buscar con ese error.
+     */
+    public void assign(String orderId, String riderId, @Nullable String celdaRepartidor, Callback callback) {
+        DatabaseReference entrada = celdaRepartidor != null
+                ? root.child("riders_geo").child(celdaRepartidor).child(riderId) : null;
+        update(orderId, entrada, (actual, repartidor) -> {
+            if (actual.getRepartidorId() != null) return "El pedido ya fue asignado";
+            if (OrderIndexes.isClosed(actual.getEstado())) return "El pedido ya está cerrado";
+            if (repartidor != null) {
+                if (!repartidor.exists()) return "El repartidor ya no está disponible en esa zona";
+                Map<String, Object> r = SnapshotValues.map(repartidor.getValue());
+                if (SnapshotValues.integer(r, "carga") >= RiderSearch.MAX_CARGA) {
+                    return "El repartidor ya tiene el máximo de pedidos";
+                }
+            }
+            Map<String, Object> updates = OrderIndexes.assign(actual, riderId);
+            if (celdaRepartidor != null) {
+                updates.put("riders_geo/" + celdaRepartidor + "/" + riderId + "/carga", ServerValue.increment(1));
+            }
+            return updates;
+        }, MAX_REINTENTOS, callback);
+    }
+
+    // Devuelve las actualizaciones a escribir, o un String con el motivo para no hacerlo.
+    // extra es el nodo de extraRef, leído junto con el pedido; null si no hay extraRef
+    private interface Cambio {
+        Object aplicar(Order actual, @Nullable DataSnapshot extra);
+    }
+
+    private void update(String orderId, @Nullable DatabaseReference extraRef, Cambio cambio, int intentos,
+                        Callback callback) {
+        Task<DataSnapshot> lectura = root.child("orders").child(orderId).get();
+        Task<DataSnapshot> lecturaExtra = extraRef != null ? extraRef.get() : Tasks.forResult(null);
+        Tasks.whenAllComplete(lectura, lecturaExtra).addOnCompleteListener(t -> {
+            if (!lectura.isSuccessful() || !lecturaExtra.isSuccessful()) {
+                callback.onError("No se pudo leer el pedido");
+                return;
+            }
+            Order actual = OrderMapper.fromValue(orderId, lectura.getResult().getValue());
+            if (actual == null) {
+                callback.onError("El pedido no existe");
+                return;
+            }
+            Object resultado = cambio.aplicar(actual, lecturaExtra.getResult());
+            if (resultado instanceof String) {
+                callback.onError((String) resultado);
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> updates = (Map<String, Object>) resultado;
+            root.updateChildren(updates, (error, ref) -> {
+                if (error == null) {
+                    callback.onSuccess();
+                } else if (error.getCode() == DatabaseError.PERMISSION_DENIED && intentos > 1) {
+                    // Otro cambio subió la versión primero: se decide de nuevo con el pedido actualizado
+                    update(orderId, extraRef, cambio, intentos - 1, callback);
+                } else {
+                    callback.onError(error.getMessage());
+                }
+            });
+        });
+    }
+
+    private Subscription watch(Query query, IndexListener listener) {
+        ChildEventListener l = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                listener.onOrderAdded(snapshot.getKey(), snapshot.getValue());
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                listener.onOrderChanged(snapshot.getKey(), snapshot.getValue());
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                listener.onOrderRemoved(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {}
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {}
+        };
+        query.addChildEventListener(l);
+        return new Subscription(query, l);
+    }
+}
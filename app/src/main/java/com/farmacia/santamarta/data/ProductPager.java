@@ -0,0 +1,364 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+import com.farmacia.santamarta.metrics.Histogram;
+import com.farmacia.santamarta.metrics.Metrics;
+import com.farmacia.santamarta.models.Product;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Carga el nodo `products` por páginas ordenadas por clave (o por categoría)
+ * a medida que el usuario desplaza la lista. Solo se mantienen en memoria las
+ * páginas cercanas a lo visible; las demás quedan como marcadores de posición
+ * y se vuelven a pedir si el usuario regresa. Cada página es un solo
+ * listener de {@link SubscriptionManager}: sus hijos iniciales la arman y
+ * después trae los cambios, así la página se descarga una vez; en segundo
+ * plano se pausa.
+ */
+public class ProductPager implements ProductSource {
+    public static final int PAGE_SIZE = 50;
+    // Páginas que se adelantan al final visible y que se conservan alrededor
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
+    private static final int RETAINED_PAGES = 3;
+    private static final Histogram PAGINA = Metrics.histogram("firebase.products.pagina");
+
+    public interface Callback {
+        void onItemRangeInserted(int positionStart, int itemCount);
+        void onItemRangeChanged(int positionStart, int itemCount);
+        void onItemRangeRemoved(int positionStart, int itemCount);
+        void onPageError(DatabaseError error);
+        /** Terminó de cargarse una página al final de la lista (también la última, aunque venga vacía). */
+        void onPageLoaded();
+    }
+
+    private static class Page {
+        String firstKey;
+        // Clave donde empieza la página siguiente; null en la última
+        @Nullable String untilKey;
+        int count;
+        List<Product> items;
+        boolean loading;
+        SubscriptionManager.Handle live;
+    }
+
+    private final LifecycleOwner owner;
+    private final DatabaseReference productsRef;
+    private final Callback callback;
+    private final List<Page> pages = new ArrayList<>();
+    @Nullable private final String categoria;
+    private String nextKey;
+    private boolean endReached = false;
+    private boolean loadingNext = false;
+    private boolean released = false;
+
+    public ProductPager(LifecycleOwner owner, DatabaseReference productsRef, @Nullable String categoria, Callback callback) {
+        this.owner = owner;
+        this.productsRef = productsRef;
+        this.categoria = categoria;
+        this.callback = callback;
+    }
+
+    @Nullable
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public void start() {
+        loadNextPage();
+    }
+
+    public void release() {
+        released = true;
+        for (Page page : pages) {
+            detachLive(page);
+        }
+    }
+
+    @Override
+    public int size() {
+        int total = 0;
+        for (Page page : pages) total += page.count;
+        return total;
+    }
+
+    @Override
+    public boolean isLoaded(int position) {
+        return get(position) != null;
+    }
+
+    @Override
+    public String getId(int position) {
+        return get(position).getId();
+    }
+
+    @Override
+    public String getNombre(int position) {
+        return get(position).getNombre();
+    }
+
+    @Override
+    public String getDescripcion(int position) {
+        return get(position).getDescripcion();
+    }
+
+    @Override
+    public double getPrecio(int position) {
+        return get(position).getPrecio();
+    }
+
+    @Nullable
+    @Override
+    public Product get(int position) {
+        int offset = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            if (position < offset + page.count) {
+                if (page.items == null) {
+                    reloadPage(i);
+                    return null;
+                }
+                return page.items.get(position - offset);
+            }
+            offset += page.count;
+        }
+        return null;
+    }
+
+    /** Se llama desde el scroll con el rango visible para precargar y liberar páginas. */
+    public void onVisibleRange(int first, int last) {
+        if (first < 0 || last < 0) return;
+        if (last + PREFETCH_DISTANCE >= size()) {
+            loadNextPage();
+        }
+
+        int firstPage = pageOf(first);
+        int lastPage = pageOf(last);
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            boolean lejos = i < firstPage - RETAINED_PAGES || i > lastPage + RETAINED_PAGES;
+            if (lejos && page.items != null) {
+                // Se conserva el conteo para que las posiciones no cambien
+                detachLive(page);
+                page.items = null;
+            } else if (!lejos && page.items == null) {
+                reloadPage(i);
+            }
+        }
+    }
+
+    private int pageOf(int position) {
+        int offset = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            offset += pages.get(i).count;
+            if (position < offset) return i;
+        }
+        return pages.size() - 1;
+    }
+
+    private int offsetOf(int pageIndex) {
+        int offset = 0;
+        for (int i = 0; i < pageIndex; i++) offset += pages.get(i).count;
+        return offset;
+    }
+
+    private void loadNextPage() {
+        if (loadingNext || endReached || released) return;
+        loadingNext = true;
+        Page page = new Page();
+        String desde = nextKey;
+        // Se pide un elemento extra para conocer la clave de inicio de la página siguiente
+        Query query = pageQuery(desde, null).limitToFirst(PAGE_SIZE + 1);
+        observePage(page, query, clave(desde, "+" + (PAGE_SIZE + 1)), new PageLoad() {
+            @Override
+            public void onLoaded(List<Product> items, List<String> claves) {
+                loadingNext = false;
+                // Se cuenta sobre todos los hijos: los eliminados no se muestran pero ocupan lugar en la consulta
+                if (claves.size() > PAGE_SIZE) {
+                    nextKey = claves.get(PAGE_SIZE);
+                    int extra = indexOf(items, nextKey);
+                    if (extra >= 0) items.remove(extra);
+                } else {
+                    endReached = true;
+                }
+                if (items.isEmpty()) {
+                    detachLive(page);
+                    // Una página entera de eliminados: se sigue con la siguiente
+                    if (endReached) {
+                        callback.onPageLoaded();
+                    } else {
+                        loadNextPage();
+                    }
+                    return;
+                }
+                page.firstKey = claves.get(0);
+                page.untilKey = endReached ? null : nextKey;
+                page.count = items.size();
+                page.items = items;
+                int start = size();
+                pages.add(page);
+                callback.onItemRangeInserted(start, page.count);
+                callback.onPageLoaded();
+            }
+
+            @Override
+            public void onError(DatabaseError error) {
+                loadingNext = false;
+                callback.onPageError(error);
+            }
+        });
+    }
+
+    private void reloadPage(int index) {
+        Page page = pages.get(index);
+        if (page.loading || released) return;
+        String until = page.untilKey;
+        Query query = pageQuery(page.firstKey, until);
+        if (until == null) query = query.limitToFirst(PAGE_SIZE);
+        observePage(page, query, clave(page.firstKey, until != null ? until : "+" + PAGE_SIZE), new PageLoad() {
+            @Override
+            public void onLoaded(List<Product> items, List<String> claves) {
+                int start = offsetOf(pages.indexOf(page));
+                int before = page.count;
+                page.items = items;
+                page.count = items.size();
+
+                // El catálogo pudo cambiar mientras la página estaba liberada
+                int common = Math.min(before, page.count);
+                if (common > 0) callback.onItemRangeChanged(start, common);
+                if (page.count > before) callback.onItemRangeInserted(start + before, page.count - before);
+                if (page.count < before) callback.onItemRangeRemoved(start + page.count, before - page.count);
+            }
+
+            @Override
+            public void onError(DatabaseError error) {
+                callback.onPageError(error);
+            }
+        });
+    }
+
+    private interface PageLoad {
+        /** {@code claves}: todos los hijos de la consulta en orden, incluidos los que no se muestran. */
+        void onLoaded(List<Product> items, List<String> claves);
+
+        void onError(DatabaseError error);
+    }
+
+    private interface PageListener extends ChildEventListener, SubscriptionManager.InitialLoadListener {}
+
+    /**
+     * Una sola consulta por página: los hijos iniciales del listener arman la
+     * página y después el mismo listener trae los cambios de stock/precio
+     * dentro de su rango.
+     */
+    private void observePage(Page page, Query query, String clave, PageLoad load) {
+        detachLive(page);
+        page.loading = true;
+        long inicio = System.nanoTime();
+        List<Product> iniciales = new ArrayList<>();
+        List<String> claves = new ArrayList<>();
+        page.live = SubscriptionManager.get().observe(owner, clave, query, new PageListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                if (!page.loading) return;
+                claves.add(snapshot.getKey());
+                Product product = readOne(snapshot);
+                if (product != null) iniciales.add(product);
+            }
+
+            @Override
+            public void onInitialLoad() {
+                if (!page.loading) return;
+                page.loading = false;
+                PAGINA.recordSince(inicio);
+                if (!released) load.onLoaded(iniciales, claves);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                List<Product> items = page.loading ? iniciales : page.items;
+                if (items == null) return;
+                Product product = readOne(snapshot);
+                int i = indexOf(items, snapshot.getKey());
+                if (i < 0) return;
+                if (product == null) {
+                    // Borrado lógico o ilegible: sale de la página
+                    items.remove(i);
+                    if (!page.loading) {
+                        page.count--;
+                        callback.onItemRangeRemoved(offsetOf(pages.indexOf(page)) + i, 1);
+                    }
+                    return;
+                }
+                items.set(i, product);
+                if (!page.loading) callback.onItemRangeChanged(offsetOf(pages.indexOf(page)) + i, 1);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                if (!page.loading) return;
+                claves.remove(snapshot.getKey());
+                int i = indexOf(iniciales, snapshot.getKey());
+                if (i >= 0) iniciales.remove(i);
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {}
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                if (!page.loading) return;
+                page.loading = false;
+                load.onError(error);
+            }
+        });
+    }
+
+    private String clave(@Nullable String desde, String hasta) {
+        return productsRef + "?pagina=" + (categoria != null ? categoria + "/" : "")
+                + (desde != null ? desde : "") + ".." + hasta;
+    }
+
+    private static int indexOf(List<Product> items, String id) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getId().equals(id)) return i;
+        }
+        return -1;
+    }
+
+    private void detachLive(Page page) {
+        page.loading = false;
+        if (page.live != null) {
+            page.live.remove();
+            page.live = null;
+        }
+    }
+
+    private Query pageQuery(@Nullable String fromKey, @Nullable String untilKey) {
+        Query query;
+        if (categoria == null) {
+            query = productsRef.orderByKey();
+            if (fromKey != null) query = query.startAt(fromKey);
+            if (untilKey != null) query = query.endBefore(untilKey);
+        } else {
+            query = productsRef.orderByChild("categoria");
+            query = fromKey != null ? query.startAt(categoria, fromKey) : query.startAt(categoria);
+            query = untilKey != null ? query.endBefore(categoria, untilKey) : query.endAt(categoria);
+        }
+        return query;
+    }
+
+    // Los productos con borrado lógico (`eliminado`) no se muestran
+    @Nullable
+    private static Product readOne(DataSnapshot snapshot) {
+        Product product = ProductMapper.fromValue(snapshot.getKey(), snapshot.getValue());
+        return product != null && !product.isEliminado() ? product : null;
+    }
+}
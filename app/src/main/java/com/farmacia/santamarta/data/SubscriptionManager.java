@@ -0,0 +1,528 @@
+package com.farmacia.santamarta.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import com.farmacia.santamarta.metrics.Counter;
+import com.farmacia.santamarta.metrics.Metrics;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Listeners de Firebase compartidos y atados al ciclo de vida de la pantalla.
+ * Todos los observadores de una misma clave (ruta o consulta) comparten un
+ * único listener real:
+ * <ul>
+ *   <li>Quien llega tarde recibe el último valor (o los hijos, que Firebase
+ *   entrega desde memoria porque la consulta ya está abierta) sin otra descarga.</li>
+ *   <li>Cuando ningún observador está visible (ON_STOP) el listener real se
+ *   suelta tras {@link #LINGER_MS}; al volver se adjunta de nuevo y solo se
+ *   avisan los hijos que cambiaron mientras tanto.</li>
+ *   <li>ON_DESTROY suelta al observador; el listener real se suelta con el
+ *   último, así una rotación reutiliza el que ya estaba abierto.</li>
+ * </ul>
+ * Los observadores de valor pausados no reciben nada y al volver ven solo
+ * el último valor. Los de hijos siguen recibiendo eventos mientras otro
+ * observador mantenga el listener abierto, porque un flujo de hijos no se
+ * puede resumir sin guardar una copia por observador.
+ *
+ * Solo se usa desde el hilo principal.
+ */
+public final class SubscriptionManager {
+    static final long LINGER_MS = 5_000;
+    private static final Counter ADJUNTADOS = Metrics.counter("suscripciones.adjuntadas");
+    private static final Counter SOLTADOS = Metrics.counter("suscripciones.soltadas");
+    private static final Counter BYTES = Metrics.counter("suscripciones.bytes_recibidos");
+
+    private static SubscriptionManager instance;
+
+    /** Suscripción de un observador; {@link #remove()} la suelta antes de ON_DESTROY. */
+    public interface Handle {
+        void remove();
+    }
+
+    private static final Handle INERTE = () -> {};
+
+    /**
+     * Lo puede implementar además un ChildEventListener: se avisa una vez por
+     * observador, cuando ya recibió todos los hijos iniciales.
+     */
+    public interface InitialLoadListener {
+        void onInitialLoad();
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private SubscriptionManager() {}
+
+    public static SubscriptionManager get() {
+        if (instance == null) instance = new SubscriptionManager();
+        return instance;
+    }
+
+    public Handle observe(LifecycleOwner owner, DatabaseReference ref, ValueEventListener listener) {
+        return observe(owner, ref.toString(), ref, listener);
+    }
+
+    /** {@code clave} identifica la consulta: dos consultas con la misma clave deben pedir lo mismo. */
+    public Handle observe(LifecycleOwner owner, String clave, Query query, ValueEventListener listener) {
+        return register(owner, clave, query, false, listener);
+    }
+
+    public Handle observe(LifecycleOwner owner, DatabaseReference ref, ChildEventListener listener) {
+        return observe(owner, ref.toString(), ref, listener);
+    }
+
+    public Handle observe(LifecycleOwner owner, String clave, Query query, ChildEventListener listener) {
+        return register(owner, clave, query, true, listener);
+    }
+
+    /** Listeners abiertos contra Firebase en este momento. */
+    public int activeListenerCount() {
+        int n = 0;
+        for (Entry e : entries.values()) if (e.adjuntado) n++;
+        return n;
+    }
+
+    public int observerCount() {
+        int n = 0;
+        for (Entry e : entries.values()) n += e.observers.size();
+        return n;
+    }
+
+    /** Bytes estimados ({@link SnapshotValues#estimateBytes}) recibidos por todas las suscripciones. */
+    public long bytesReceived() {
+        return BYTES.get();
+    }
+
+    /** Una línea por clave con observadores, estado y bytes recibidos. */
+    public String summary() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "%d listeners abiertos, %d observadores%n", activeListenerCount(), observerCount()));
+        for (Entry e : entries.values()) {
+            int activos = 0;
+            for (Observer o : e.observers) if (o.activo) activos++;
+            sb.append(String.format(Locale.ROOT, "%s%n  %s, %d/%d observadores visibles, %d eventos, %.1f KB%n",
+                    e.clave, e.adjuntado ? "abierto" : "pausado", activos, e.observers.size(),
+                    e.eventos, e.bytes / 1024.0));
+        }
+        return sb.toString();
+    }
+
+    private Handle register(LifecycleOwner owner, String clave, Query query, boolean hijos, Object listener) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) return INERTE;
+        Entry entry = entries.get(clave);
+        if (entry != null && entry.hijos != hijos) {
+            throw new IllegalArgumentException("La clave " + clave + " ya se usa con otro tipo de listener");
+        }
+        if (entry == null) {
+            entry = hijos ? new ChildEntry(clave, query) : new ValueEntry(clave, query);
+            entries.put(clave, entry);
+        }
+        Observer observer = new Observer(entry, lifecycle, listener);
+        entry.observers.add(observer);
+        // addObserver entrega enseguida los eventos hasta el estado actual (ON_START si ya está visible)
+        lifecycle.addObserver(observer);
+        return observer;
+    }
+
+    private final class Observer implements Handle, LifecycleEventObserver {
+        final Entry entry;
+        final Lifecycle lifecycle;
+        final Object listener;
+        boolean activo = false;
+        boolean soltado = false;
+        // Valor: lo último entregado, para no repetirlo. Hijos: ya recibió los conocidos
+        boolean entregado = false;
+        boolean cargaAvisada = false;
+        @Nullable Object valorEntregado;
+
+        Observer(Entry entry, Lifecycle lifecycle, Object listener) {
+            this.entry = entry;
+            this.lifecycle = lifecycle;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_START) {
+                setActivo(true);
+            } else if (event == Lifecycle.Event.ON_STOP) {
+                setActivo(false);
+            } else if (event == Lifecycle.Event.ON_DESTROY) {
+                remove();
+            }
+        }
+
+        private void setActivo(boolean valor) {
+            if (soltado || activo == valor) return;
+            activo = valor;
+            if (valor) {
+                entry.onObserverActive(this);
+            } else {
+                entry.revisar();
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (soltado) return;
+            soltado = true;
+            activo = false;
+            lifecycle.removeObserver(this);
+            entry.observers.remove(this);
+            entry.revisar();
+        }
+    }
+
+    private abstract class Entry {
+        final String clave;
+        final Query query;
+        final boolean hijos;
+        final List<Observer> observers = new ArrayList<>();
+        boolean adjuntado = false;
+        long bytes;
+        long eventos;
+        private final Runnable soltar = this::soltarAhora;
+
+        Entry(String clave, Query query, boolean hijos) {
+            this.clave = clave;
+            this.query = query;
+            this.hijos = hijos;
+        }
+
+        void onObserverActive(Observer observer) {
+            handler.removeCallbacks(soltar);
+            replay(observer);
+            if (!adjuntado) {
+                adjuntado = true;
+                ADJUNTADOS.inc();
+                attach();
+            }
+        }
+
+        // Sin observadores visibles se suelta tras un momento; sin observadores se olvida la clave
+        void revisar() {
+            for (Observer o : observers) {
+                if (o.activo) return;
+            }
+            handler.removeCallbacks(soltar);
+            if (adjuntado) {
+                handler.postDelayed(soltar, LINGER_MS);
+            } else if (observers.isEmpty()) {
+                entries.remove(clave);
+            }
+        }
+
+        private void soltarAhora() {
+            if (adjuntado) {
+                adjuntado = false;
+                SOLTADOS.inc();
+                detach();
+            }
+            if (observers.isEmpty()) entries.remove(clave);
+        }
+
+        void recibido(DataSnapshot snapshot, long estimados) {
+            long n = estimados + (snapshot.getKey() != null ? snapshot.getKey().length() : 0);
+            bytes += n;
+            eventos++;
+            BYTES.add(n);
+        }
+
+        // Firebase ya quitó el listener: los observadores reciben el error y la clave se olvida
+        void cancelado(DatabaseError error) {
+            adjuntado = false;
+            handler.removeCallbacks(soltar);
+            entries.remove(clave);
+            List<Observer> copia = new ArrayList<>(observers);
+            observers.clear();
+            for (Observer o : copia) {
+                o.soltado = true;
+                o.lifecycle.removeObserver(o);
+                onCancelled(o.listener, error);
+            }
+        }
+
+        // Copia porque un observador puede soltarse desde su propio callback
+        List<Observer> destinatarios() {
+            List<Observer> lista = new ArrayList<>(observers.size());
+            for (Observer o : observers) {
+                if (hijos ? o.entregado : o.activo) lista.add(o);
+            }
+            return lista;
+        }
+
+        abstract void attach();
+
+        abstract void detach();
+
+        abstract void replay(Observer observer);
+
+        abstract void onCancelled(Object listener, DatabaseError error);
+    }
+
+    private final class ValueEntry extends Entry implements ValueEventListener {
+        @Nullable private DataSnapshot ultimo;
+
+        ValueEntry(String clave, Query query) {
+            super(clave, query, false);
+        }
+
+        @Override
+        void attach() {
+            query.addValueEventListener(this);
+        }
+
+        @Override
+        void detach() {
+            query.removeEventListener(this);
+        }
+
+        @Override
+        void replay(Observer observer) {
+            if (ultimo == null) return;
+            // Como Firebase, el valor llega después de registrarse y no dentro de observe()
+            handler.post(() -> {
+                if (observer.activo && ultimo != null) entregar(observer, ultimo, ultimo.getValue());
+            });
+        }
+
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            ultimo = snapshot;
+            // El valor se arma una vez: sirve para medirlo y para compararlo con lo entregado
+            Object valor = snapshot.getValue();
+            recibido(snapshot, SnapshotValues.estimateBytes(valor));
+            for (Observer o : destinatarios()) {
+                if (o.activo) entregar(o, snapshot, valor);
+            }
+        }
+
+        // Al volver de una pausa Firebase repite el valor aunque no haya cambiado
+        private void entregar(Observer o, DataSnapshot snapshot, @Nullable Object valor) {
+            if (o.entregado && equal(o.valorEntregado, valor)) return;
+            o.entregado = true;
+            o.valorEntregado = valor;
+            ((ValueEventListener) o.listener).onDataChange(snapshot);
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            cancelado(error);
+        }
+
+        @Override
+        void onCancelled(Object listener, DatabaseError error) {
+            ((ValueEventListener) listener).onCancelled(error);
+        }
+    }
+
+    private final class ChildEntry extends Entry implements ChildEventListener {
+        // Huella del valor de cada hijo conocido, para saber al volver cuáles cambiaron; no se guardan snapshots
+        private final Map<String, Long> conocidos = new HashMap<>();
+        // Bytes estimados del último hijo recorrido por huella()
+        private long medidos;
+        // Mientras se vuelve a adjuntar: hijos que Firebase ya repitió
+        @Nullable private Set<String> vistos;
+        // Ya llegaron los hijos iniciales de la primera vez que se adjuntó
+        private boolean cargado = false;
+        // Cada attach invalida el aviso de carga de los anteriores
+        private int generacion = 0;
+
+        ChildEntry(String clave, Query query) {
+            super(clave, query, true);
+        }
+
+        @Override
+        void attach() {
+            int esta = ++generacion;
+            if (!conocidos.isEmpty()) vistos = new HashSet<>();
+            query.addChildEventListener(this);
+            // El evento de valor llega después de todos los onChildAdded iniciales
+            query.addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    if (esta != generacion || !adjuntado) return;
+                    if (vistos != null) terminarResincronizacion(snapshot);
+                    cargado = true;
+                    for (Observer o : destinatarios()) avisarCarga(o);
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {}
+            });
+        }
+
+        @Override
+        void detach() {
+            generacion++;
+            query.removeEventListener(this);
+            vistos = null;
+        }
+
+        private void avisarCarga(Observer o) {
+            if (o.cargaAvisada || o.soltado) return;
+            o.cargaAvisada = true;
+            if (o.listener instanceof InitialLoadListener) ((InitialLoadListener) o.listener).onInitialLoad();
+        }
+
+        // Una sola vez por observador: después recibe cada evento, también pausado
+        @Override
+        void replay(Observer observer) {
+            if (observer.entregado) return;
+            if (conocidos.isEmpty() && !cargado) {
+                // Todavía no llegó nada: recibe los hijos iniciales como los demás
+                observer.entregado = true;
+                return;
+            }
+            // Los hijos se piden a la misma consulta: con el listener abierto Firebase los entrega
+            // desde memoria, y el valor ya incluye los eventos que lleguen mientras tanto
+            query.addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    if (observer.soltado || observer.entregado) return;
+                    observer.entregado = true;
+                    ChildEventListener l = (ChildEventListener) observer.listener;
+                    String anterior = null;
+                    for (DataSnapshot s : snapshot.getChildren()) {
+                        l.onChildAdded(s, anterior);
+                        anterior = s.getKey();
+                    }
+                    if (cargado) avisarCarga(observer);
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {}
+            });
+        }
+
+        // Los que no volvieron a llegar se borraron durante la pausa; child() da un snapshot vacío con su clave
+        private void terminarResincronizacion(DataSnapshot actual) {
+            Set<String> repetidos = vistos;
+            vistos = null;
+            Iterator<String> it = conocidos.keySet().iterator();
+            List<String> quitados = new ArrayList<>();
+            while (it.hasNext()) {
+                String clave = it.next();
+                if (!repetidos.contains(clave)) {
+                    quitados.add(clave);
+                    it.remove();
+                }
+            }
+            for (String clave : quitados) {
+                DataSnapshot s = actual.child(clave);
+                for (Observer o : destinatarios()) ((ChildEventListener) o.listener).onChildRemoved(s);
+            }
+        }
+
+        // Recorre el snapshot sin armar Maps ni Lists: hash de 64 bits del valor y, de paso, su tamaño en medidos
+        private long huella(DataSnapshot s) {
+            if (!s.hasChildren()) {
+                Object v = s.getValue();
+                medidos += SnapshotValues.estimateBytes(v);
+                return huellaHoja(v);
+            }
+            long h = 1;
+            medidos += 2;
+            for (DataSnapshot hijo : s.getChildren()) {
+                medidos += hijo.getKey().length() + 4;
+                h = h * 1_000_003L + (huellaHoja(hijo.getKey()) ^ huella(hijo));
+            }
+            return h;
+        }
+
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            medidos = 0;
+            long huella = huella(snapshot);
+            recibido(snapshot, medidos);
+            Long previo = conocidos.put(snapshot.getKey(), huella);
+            if (vistos != null) {
+                vistos.add(snapshot.getKey());
+                // Repetido por volver a adjuntar: solo se avisa si cambió durante la pausa
+                if (previo != null) {
+                    if (previo.longValue() != huella) {
+                        for (Observer o : destinatarios()) {
+                            ((ChildEventListener) o.listener).onChildChanged(snapshot, previousChildName);
+                        }
+                    }
+                    return;
+                }
+            }
+            for (Observer o : destinatarios()) {
+                ((ChildEventListener) o.listener).onChildAdded(snapshot, previousChildName);
+            }
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            medidos = 0;
+            conocidos.put(snapshot.getKey(), huella(snapshot));
+            recibido(snapshot, medidos);
+            for (Observer o : destinatarios()) {
+                ((ChildEventListener) o.listener).onChildChanged(snapshot, previousChildName);
+            }
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            conocidos.remove(snapshot.getKey());
+            for (Observer o : destinatarios()) ((ChildEventListener) o.listener).onChildRemoved(snapshot);
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            for (Observer o : destinatarios()) {
+                ((ChildEventListener) o.listener).onChildMoved(snapshot, previousChildName);
+            }
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            cancelado(error);
+        }
+
+        @Override
+        void onCancelled(Object listener, DatabaseError error) {
+            ((ChildEventListener) listener).onCancelled(error);
+        }
+    }
+
+    private static boolean equal(@Nullable Object a, @Nullable Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // FNV-1a de 64 bits para textos; con hashCode() de 32 bits "Aa" y "BB" serían el mismo valor
+    private static long huellaHoja(@Nullable Object v) {
+        if (v == null) return 0;
+        if (v instanceof Number) return Double.doubleToLongBits(((Number) v).doubleValue()) * 0x9E3779B97F4A7C15L;
+        if (v instanceof Boolean) return (Boolean) v ? 0x51ED27L : 0x2F0A3BL;
+        String texto = v.toString();
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < texto.length(); i++) {
+            h ^= texto.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,68 @@
+package com.farmacia.santamarta.data.io;
+
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.data.ProductMapper;
+import com.farmacia.santamarta.models.Product;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lotes de importación y páginas de exportación sobre Firebase. Los métodos
+ * bloquean hasta que el servidor responde, así que solo se llaman desde un
+ * hilo de fondo.
+ */
+public class FirebaseCatalogBackend implements CatalogImporter.BatchWriter, CatalogExporter.PageSource {
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private final DatabaseReference root;
+
+    public FirebaseCatalogBackend(DatabaseReference root) {
+        this.root = root;
+    }
+
+    @Override
+    public void write(Map<String, Object> updates) throws IOException {
+        await(root.updateChildren(updates));
+    }
+
+    @Override
+    public CatalogExporter.Page page(@Nullable String afterKey, int limit) throws IOException {
+        Query query = root.child("products").orderByKey();
+        if (afterKey != null) query = query.startAfter(afterKey);
+        DataSnapshot snapshot = await(query.limitToFirst(limit).get());
+        List<Product> pagina = new ArrayList<>(limit);
+        int hijos = 0;
+        String ultimaClave = null;
+        for (DataSnapshot ds : snapshot.getChildren()) {
+            hijos++;
+            ultimaClave = ds.getKey();
+            // Un nodo ilegible no se exporta, pero la página sigue contando hasta su clave
+            Product product = ProductMapper.fromValue(ds.getKey(), ds.getValue());
+            if (product != null) pagina.add(product);
+        }
+        return new CatalogExporter.Page(pagina, hijos, ultimaClave);
+    }
+
+    private static <T> T await(Task<T> task) throws IOException {
+        try {
+            return Tasks.await(task, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage(), e);
+        } catch (TimeoutException e) {
+            throw new IOException("Firebase no respondió en " + TIMEOUT_SECONDS + " s", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Operación interrumpida", e);
+        }
+    }
+}
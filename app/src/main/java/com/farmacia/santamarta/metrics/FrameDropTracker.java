@@ -0,0 +1,84 @@
+package com.farmacia.santamarta.metrics;
+
+import android.app.Activity;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.Display;
+
+/**
+ * Mide los cuadros de una pantalla mientras está visible: el intervalo entre
+ * cuadros va a `cuadros.{pantalla}.intervalo` y los que se saltaron a
+ * `cuadros.{pantalla}.perdidos`, con la misma cuenta que
+ * {@code ScrollJankMonitor}. Se llama a {@link #start()} en onResume y a
+ * {@link #stop()} en onPause; solo se usa desde el hilo principal.
+ *
+ * Pedir cada vsync despierta el hilo principal 60-120 veces por segundo
+ * aunque la pantalla esté quieta, así que solo mide si se activó desde la
+ * pantalla de métricas ({@link #setEnabled}); por defecto no hace nada.
+ */
+public class FrameDropTracker implements Choreographer.FrameCallback {
+    // Solo para esta sesión, como las métricas
+    private static volatile boolean habilitado = false;
+    private final long frameIntervalNanos;
+    private final Histogram intervalo;
+    private final Counter total;
+    private final Counter perdidos;
+    private boolean activo = false;
+    private long ultimoCuadro;
+
+    public FrameDropTracker(String pantalla, float refreshRate) {
+        this.frameIntervalNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+        String prefijo = "cuadros." + pantalla + ".";
+        this.intervalo = Metrics.histogram(prefijo + "intervalo");
+        this.total = Metrics.counter(prefijo + "total");
+        this.perdidos = Metrics.counter(prefijo + "perdidos");
+    }
+
+    /**
+     * Frecuencia de la pantalla de la actividad: {@code Activity.getDisplay()}
+     * desde API 30 y antes la pantalla principal de {@link DisplayManager}.
+     */
+    public static float refreshRate(Activity activity) {
+        Display display = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? activity.getDisplay()
+                : activity.getSystemService(DisplayManager.class).getDisplay(Display.DEFAULT_DISPLAY);
+        return display != null ? display.getRefreshRate() : 60f;
+    }
+
+    /** Vale para las pantallas que se reanuden después; las visibles siguen como estaban. */
+    public static void setEnabled(boolean enabled) {
+        habilitado = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return habilitado;
+    }
+
+    public void start() {
+        if (activo || !habilitado) return;
+        activo = true;
+        ultimoCuadro = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void stop() {
+        if (!activo) return;
+        activo = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!activo) return;
+        if (ultimoCuadro != 0) {
+            long dt = frameTimeNanos - ultimoCuadro;
+            intervalo.record(dt);
+            total.inc();
+            long saltados = dt / frameIntervalNanos - 1;
+            if (saltados > 0) perdidos.add(saltados);
+        }
+        ultimoCuadro = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -0,0 +1,150 @@
+package com.farmacia.santamarta.ui.admin;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.widget.Button;
+import android.widget.TextView;
+import androidx.appcompat.app.AppCompatActivity;
+import com.farmacia.santamarta.R;
+import com.farmacia.santamarta.data.LowStockList;
+import com.farmacia.santamarta.data.SalesSummary;
+import com.farmacia.santamarta.data.SnapshotValues;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Panel de ventas y stock. Lee solo los resúmenes que mantiene
+ * {@link SalesSummary} (los últimos días, los más vendidos con su nombre y
+ * la lista de stock bajo vía {@link LowStockList}): tres consultas acotadas,
+ * así que abrirlo cuesta lo mismo con cien pedidos que con cien mil.
+ */
+public class AdminDashboardActivity extends AppCompatActivity {
+    private static final int DIAS = 7;
+    private static final int TOP_PRODUCTOS = 10;
+    private static final int MAX_STOCK_BAJO = 50;
+
+    private TextView tvVentasHoy, tvVentasDiarias, tvTopProductos, tvStockBajo;
+    private DatabaseReference mDatabase;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_admin_dashboard);
+
+        tvVentasHoy = findViewById(R.id.tvVentasHoy);
+        tvVentasDiarias = findViewById(R.id.tvVentasDiarias);
+        tvTopProductos = findViewById(R.id.tvTopProductos);
+        tvStockBajo = findViewById(R.id.tvStockBajo);
+        Button btnInventario = findViewById(R.id.btnInventario);
+        Button btnCatalogo = findViewById(R.id.btnCatalogo);
+        Button btnRefresh = findViewById(R.id.btnRefreshPanel);
+
+        mDatabase = FirebaseDatabase.getInstance().getReference();
+
+        btnInventario.setOnClickListener(v -> startActivity(new Intent(this, InventoryActivity.class)));
+        btnCatalogo.setOnClickListener(v -> startActivity(new Intent(this, CatalogImportExportActivity.class)));
+        btnRefresh.setOnClickListener(v -> refresh());
+        // Acceso oculto a las métricas de rendimiento, igual que en Inventario
+        tvVentasHoy.setOnLongClickListener(v -> {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    // Lecturas acotadas en paralelo; ninguna crece con el historial
+    private void refresh() {
+        Task<DataSnapshot> dias = mDatabase.child(SalesSummary.VENTAS_DIARIAS)
+                .orderByKey().limitToLast(DIAS).get();
+        Task<DataSnapshot> top = mDatabase.child(SalesSummary.VENTAS_POR_PRODUCTO)
+                .orderByChild("unidades").limitToLast(TOP_PRODUCTOS).get();
+        Tasks.whenAllComplete(dias, top).addOnCompleteListener(t -> {
+            if (isFinishing()) return;
+            if (dias.isSuccessful()) showDays(dias.getResult());
+            if (top.isSuccessful()) showTopProducts(top.getResult());
+            if (!dias.isSuccessful() || !top.isSuccessful()) {
+                tvVentasHoy.setText("No se pudo cargar el resumen");
+            }
+        });
+        LowStockList.load(mDatabase, MAX_STOCK_BAJO, new LowStockList.Callback() {
+            @Override
+            public void onLoaded(List<LowStockList.Entry> productos) {
+                if (!isFinishing()) showLowStock(productos);
+            }
+
+            @Override
+            public void onError(String mensaje) {
+                if (!isFinishing()) tvStockBajo.setText(mensaje);
+            }
+        });
+    }
+
+    private void showDays(DataSnapshot snapshot) {
+        String hoy = SalesSummary.dayKey(System.currentTimeMillis());
+        Map<String, Object> deHoy = SnapshotValues.map(snapshot.child(hoy).getValue());
+        tvVentasHoy.setText("Hoy: " + dinero(SnapshotValues.number(deHoy, "total"))
+                + " en " + SnapshotValues.integer(deHoy, "pedidos") + " pedidos");
+
+        // limitToLast los trae del más viejo al más nuevo
+        List<String> lineas = new ArrayList<>();
+        for (DataSnapshot dia : snapshot.getChildren()) {
+            Map<String, Object> v = SnapshotValues.map(dia.getValue());
+            lineas.add(String.format(Locale.US, "%s  %12s  %4d ped.  %5d u.", dia.getKey(),
+                    dinero(SnapshotValues.number(v, "total")),
+                    SnapshotValues.integer(v, "pedidos"), SnapshotValues.integer(v, "unidades")));
+        }
+        Collections.reverse(lineas);
+        tvVentasDiarias.setText(lineas.isEmpty() ? "Sin ventas registradas" : TextUtils.join("\n", lineas));
+    }
+
+    private void showTopProducts(DataSnapshot snapshot) {
+        List<String> ids = new ArrayList<>();
+        List<Map<String, Object>> ventas = new ArrayList<>();
+        for (DataSnapshot producto : snapshot.getChildren()) {
+            ids.add(producto.getKey());
+            ventas.add(SnapshotValues.map(producto.getValue()));
+        }
+        Collections.reverse(ids);
+        Collections.reverse(ventas);
+        if (ids.isEmpty()) {
+            tvTopProductos.setText("Sin ventas registradas");
+            return;
+        }
+        // El nombre lo deja el checkout en la misma entrada; los vendidos antes de eso muestran el id
+        List<String> lineas = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            String nombre = SnapshotValues.string(ventas.get(i), "nombre");
+            lineas.add((i + 1) + ". " + (nombre != null ? nombre : ids.get(i))
+                    + " · " + SnapshotValues.integer(ventas.get(i), "unidades") + " u. · "
+                    + dinero(SnapshotValues.number(ventas.get(i), "total")));
+        }
+        tvTopProductos.setText(TextUtils.join("\n", lineas));
+    }
+
+    private void showLowStock(List<LowStockList.Entry> productos) {
+        List<String> lineas = new ArrayList<>();
+        for (LowStockList.Entry producto : productos) {
+            lineas.add(producto.stock + " · " + producto.nombre);
+        }
+        tvStockBajo.setText(lineas.isEmpty()
+                ? "Ningún producto con " + SalesSummary.UMBRAL_STOCK_BAJO + " unidades o menos" : TextUtils.join("\n", lineas));
+    }
+
+    private static String dinero(double monto) {
+        return String.format(Locale.US, "₡%,.2f", monto);
+    }
+}
@@ -0,0 +1,112 @@
+package com.farmacia.santamarta.ui.admin;
+
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.media.Image;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Analizador de CameraX para códigos de barras de producto. Solo busca los
+ * formatos que se venden (EAN-13, UPC-A, UPC-E, Code 128), ignora lo que
+ * cae fuera de la zona central de la imagen y entrega un código solo cuando
+ * {@link ScanConsensus} lo vio igual en varios cuadros seguidos.
+ */
+public class BarcodeAnalyzer implements ImageAnalysis.Analyzer {
+
+    public interface Listener {
+        /** Se llama en el executor del analizador; {@code frameNanos} sirve para medir hasta mostrarlo. */
+        void onBarcodeAccepted(String code, long frameNanos);
+    }
+
+    private final BarcodeScanner scanner;
+    private final Executor executor;
+    private final ScanConsensus consensus;
+    private final ScanMetrics metrics;
+    private final Listener listener;
+    // Zona de interés como fracción del ancho y alto de la imagen, centrada
+    private final float roiWidth;
+    private final float roiHeight;
+    private final RectF roi = new RectF();
+
+    public BarcodeAnalyzer(Executor executor, float roiWidth, float roiHeight, int requiredFrames,
+                           ScanMetrics metrics, Listener listener) {
+        this.scanner = BarcodeScanning.getClient(new BarcodeScannerOptions.Builder()
+                .setBarcodeFormats(Barcode.FORMAT_EAN_13, Barcode.FORMAT_UPC_A, Barcode.FORMAT_UPC_E,
+                        Barcode.FORMAT_CODE_128)
+                .build());
+        this.executor = executor;
+        this.roiWidth = roiWidth;
+        this.roiHeight = roiHeight;
+        this.consensus = new ScanConsensus(requiredFrames);
+        this.metrics = metrics;
+        this.listener = listener;
+    }
+
+    /** Olvida el último código aceptado para poder volver a leerlo. */
+    public void reset() {
+        executor.execute(consensus::reset);
+    }
+
+    public void close() {
+        scanner.close();
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        long inicio = SystemClock.elapsedRealtimeNanos();
+        metrics.onFrame(image.getImageInfo().getTimestamp());
+        @SuppressWarnings("UnsafeOptInUsageError")
+        Image mediaImage = image.getImage();
+        if (mediaImage == null) {
+            image.close();
+            return;
+        }
+        int rotation = image.getImageInfo().getRotationDegrees();
+        // Las cajas que devuelve ML Kit están en la imagen ya rotada
+        boolean girada = rotation == 90 || rotation == 270;
+        int ancho = girada ? image.getHeight() : image.getWidth();
+        int alto = girada ? image.getWidth() : image.getHeight();
+        float mx = ancho * (1 - roiWidth) / 2;
+        float my = alto * (1 - roiHeight) / 2;
+        roi.set(mx, my, ancho - mx, alto - my);
+
+        scanner.process(InputImage.fromMediaImage(mediaImage, rotation))
+                .addOnSuccessListener(executor, barcodes -> {
+                    metrics.onDecoded(SystemClock.elapsedRealtimeNanos() - inicio);
+                    String code = consensus.offer(closestInRoi(barcodes));
+                    if (code != null) listener.onBarcodeAccepted(code, inicio);
+                })
+                .addOnCompleteListener(executor, task -> image.close());
+    }
+
+    // Si hay varios códigos en la zona se toma el más cercano al centro
+    @Nullable
+    private String closestInRoi(List<Barcode> barcodes) {
+        String mejor = null;
+        float mejorDistancia = Float.MAX_VALUE;
+        for (Barcode barcode : barcodes) {
+            Rect box = barcode.getBoundingBox();
+            String value = barcode.getRawValue();
+            if (box == null || value == null || !roi.contains(box.exactCenterX(), box.exactCenterY())) continue;
+            float dx = box.exactCenterX() - roi.centerX();
+            float dy = box.exactCenterY() - roi.centerY();
+            float distancia = dx * dx + dy * dy;
+            if (distancia < mejorDistancia) {
+                mejorDistancia = distancia;
+                mejor = value;
+            }
+        }
+        return mejor;
+    }
+}
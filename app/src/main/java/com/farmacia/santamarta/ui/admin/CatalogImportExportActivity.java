@@ -0,0 +1,255 @@
+package com.farmacia.santamarta.ui.admin;
+
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.provider.OpenableColumns;
+import android.util.Log;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import com.farmacia.santamarta.R;
+import com.farmacia.santamarta.data.io.CatalogExporter;
+import com.farmacia.santamarta.data.io.CatalogImporter;
+import com.farmacia.santamarta.data.io.CsvRecordReader;
+import com.farmacia.santamarta.data.io.CsvRecordWriter;
+import com.farmacia.santamarta.data.io.FirebaseCatalogBackend;
+import com.farmacia.santamarta.data.io.ImportCheckpoint;
+import com.farmacia.santamarta.data.io.ImportReport;
+import com.farmacia.santamarta.data.io.JsonRecordReader;
+import com.farmacia.santamarta.data.io.JsonRecordWriter;
+import com.farmacia.santamarta.data.io.RecordReader;
+import com.farmacia.santamarta.data.io.RecordWriter;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Importación y exportación del catálogo en CSV o JSON. Los archivos se leen
+ * y escriben en streaming en un hilo de fondo; una importación interrumpida
+ * se reanuda desde el último lote confirmado si se vuelve a elegir el mismo
+ * archivo.
+ */
+public class CatalogImportExportActivity extends AppCompatActivity {
+    private static final String TAG = "CatalogImportExport";
+    private static final int REQUEST_IMPORT = 1;
+    private static final int REQUEST_EXPORT_CSV = 2;
+    private static final int REQUEST_EXPORT_JSON = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Errores de validación que se muestran al terminar; el resto solo se cuenta
+    private static final int ERRORS_SHOWN = 50;
+
+    private Button btnImport, btnExportCsv, btnExportJson;
+    private ProgressBar progressBar;
+    private TextView tvStatus, tvReport;
+    private ExecutorService ioExecutor;
+    private FirebaseCatalogBackend backend;
+    private boolean running = false;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_catalog_import_export);
+
+        btnImport = findViewById(R.id.btnImport);
+        btnExportCsv = findViewById(R.id.btnExportCsv);
+        btnExportJson = findViewById(R.id.btnExportJson);
+        progressBar = findViewById(R.id.progressBar);
+        tvStatus = findViewById(R.id.tvStatus);
+        tvReport = findViewById(R.id.tvReport);
+
+        ioExecutor = Executors.newSingleThreadExecutor();
+        backend = new FirebaseCatalogBackend(FirebaseDatabase.getInstance().getReference());
+
+        btnImport.setOnClickListener(v -> {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("*/*");
+            intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"text/csv", "text/comma-separated-values",
+                    "application/json", "text/plain"});
+            startActivityForResult(intent, REQUEST_IMPORT);
+        });
+        btnExportCsv.setOnClickListener(v -> createDocument("text/csv", "catalogo.csv", REQUEST_EXPORT_CSV));
+        btnExportJson.setOnClickListener(v -> createDocument("application/json", "catalogo.json", REQUEST_EXPORT_JSON));
+    }
+
+    private void createDocument(String mimeType, String nombre, int requestCode) {
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType(mimeType);
+        intent.putExtra(Intent.EXTRA_TITLE, nombre);
+        startActivityForResult(intent, requestCode);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode != RESULT_OK || data == null || data.getData() == null || running) return;
+        Uri uri = data.getData();
+        if (requestCode == REQUEST_IMPORT) {
+            startImport(uri);
+        } else if (requestCode == REQUEST_EXPORT_CSV || requestCode == REQUEST_EXPORT_JSON) {
+            startExport(uri, requestCode == REQUEST_EXPORT_JSON);
+        }
+    }
+
+    private void startImport(Uri uri) {
+        long size = fileSize(uri);
+        boolean json = isJson(uri);
+        // Mismo archivo y mismo tamaño: se reanuda donde quedó
+        String fileKey = uri + "#" + size;
+        setRunning(true, "Importando…");
+        progressBar.setIndeterminate(size <= 0);
+        progressBar.setProgress(0);
+        tvReport.setText("");
+
+        ioExecutor.execute(() -> {
+            ImportReport report = null;
+            String error = null;
+            try (CountingInputStream counter = new CountingInputStream(getContentResolver().openInputStream(uri))) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8), BUFFER_SIZE);
+                RecordReader reader = json ? new JsonRecordReader(in) : new CsvRecordReader(in);
+                CatalogImporter importer = new CatalogImporter(backend, ServerValue.TIMESTAMP);
+                report = importer.run(reader, new ImportCheckpoint(getFilesDir()), fileKey, r -> {
+                    // El reporte se sigue modificando en este hilo: se copia el texto antes de publicarlo
+                    String estado = r.getImported() + " importados, " + r.getRejected() + " rechazados";
+                    int porcentaje = size > 0 ? (int) (counter.count * 100 / size) : 0;
+                    runOnUiThread(() -> {
+                        tvStatus.setText(estado);
+                        progressBar.setProgress(porcentaje);
+                    });
+                });
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Importación interrumpida", e);
+                error = e.getMessage();
+            }
+            String texto = report != null ? reportText(report)
+                    : "Importación interrumpida: " + error + "\nVuelva a elegir el mismo archivo para continuar.";
+            boolean ok = report != null;
+            runOnUiThread(() -> {
+                setRunning(false, ok ? "Importación completa" : "Importación interrumpida");
+                if (ok) progressBar.setProgress(100);
+                tvReport.setText(texto);
+            });
+        });
+    }
+
+    private void startExport(Uri uri, boolean json) {
+        setRunning(true, "Exportando…");
+        progressBar.setIndeterminate(true);
+        tvReport.setText("");
+
+        ioExecutor.execute(() -> {
+            String texto;
+            try {
+                OutputStream out = getContentResolver().openOutputStream(uri, "w");
+                if (out == null) throw new IOException("No se pudo abrir el archivo de destino");
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+                RecordWriter records = json ? new JsonRecordWriter(writer) : new CsvRecordWriter(writer);
+                long total = new CatalogExporter(backend).run(records,
+                        n -> runOnUiThread(() -> tvStatus.setText(n + " productos exportados")));
+                texto = "Exportación completa: " + total + " productos";
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error al exportar", e);
+                texto = "Error al exportar: " + e.getMessage();
+            }
+            String resultado = texto;
+            runOnUiThread(() -> {
+                setRunning(false, resultado);
+                progressBar.setIndeterminate(false);
+                Toast.makeText(this, resultado, Toast.LENGTH_SHORT).show();
+            });
+        });
+    }
+
+    private String reportText(ImportReport report) {
+        StringBuilder sb = new StringBuilder(report.summary());
+        int mostrados = 0;
+        for (String error : report.getErrors()) {
+            if (mostrados++ == ERRORS_SHOWN) {
+                sb.append("\n…");
+                break;
+            }
+            sb.append('\n').append(error);
+        }
+        return sb.toString();
+    }
+
+    private void setRunning(boolean value, String estado) {
+        running = value;
+        btnImport.setEnabled(!value);
+        btnExportCsv.setEnabled(!value);
+        btnExportJson.setEnabled(!value);
+        progressBar.setVisibility(value ? View.VISIBLE : View.INVISIBLE);
+        tvStatus.setText(estado);
+    }
+
+    private long fileSize(Uri uri) {
+        try (Cursor cursor = getContentResolver().query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) return cursor.getLong(0);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Tamaño desconocido para " + uri, e);
+        }
+        return -1;
+    }
+
+    private boolean isJson(Uri uri) {
+        String tipo = getContentResolver().getType(uri);
+        if (tipo != null && tipo.contains("json")) return true;
+        String path = uri.getLastPathSegment();
+        return path != null && path.toLowerCase().endsWith(".json");
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Un lote en curso termina igual; el avance queda guardado para reanudar
+        ioExecutor.shutdownNow();
+    }
+
+    // Bytes leídos del archivo, para la barra de progreso
+    private static class CountingInputStream extends FilterInputStream {
+        volatile long count;
+
+        CountingInputStream(@Nullable InputStream in) throws IOException {
+            super(in);
+            if (in == null) throw new IOException("No se pudo abrir el archivo");
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long s = super.skip(n);
+            count += s;
+            return s;
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package com.farmacia.santamarta.ui.admin;
 
 import android.Manifest;
+import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.LruCache;
+import android.util.Size;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
@@ -19,31 +26,83 @@ import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import com.farmacia.santamarta.R;
+import com.farmacia.santamarta.data.ProductMapper;
+import com.farmacia.santamarta.data.SalesSummary;
+import com.farmacia.santamarta.data.StockTally;
+import com.farmacia.santamarta.metrics.Counter;
+import com.farmacia.santamarta.metrics.Histogram;
+import com.farmacia.santamarta.metrics.Metrics;
 import com.farmacia.santamarta.models.Product;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
-import com.google.mlkit.vision.barcode.BarcodeScanner;
-import com.google.mlkit.vision.barcode.BarcodeScanning;
-import com.google.mlkit.vision.barcode.common.Barcode;
-import com.google.mlkit.vision.common.InputImage;
+import com.google.firebase.database.ServerValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class InventoryActivity extends AppCompatActivity {
     private static final int PERMISSION_CAMERA_REQUEST = 1;
+    private static final String TAG = "InventoryActivity";
+    // Un código de barras se lee bien a 720p; más resolución solo encarece cada cuadro
+    private static final Size ANALYSIS_RESOLUTION = new Size(1280, 720);
+    // Zona central (ancho, alto) donde debe estar el código y cuadros iguales para aceptarlo
+    private static final float ROI_WIDTH = 0.8f;
+    private static final float ROI_HEIGHT = 0.4f;
+    private static final int REQUIRED_FRAMES = 3;
+    // Productos recientes en memoria para no leer Firebase en cada escaneo del modo conteo
+    private static final int PRODUCT_CACHE_SIZE = 256;
+    // El conteo se envía tras unos segundos sin escanear, en lotes de este tamaño
+    private static final long COUNT_FLUSH_DELAY_MS = 5_000;
+    private static final int COUNT_BATCH_SIZE = 250;
+    private static final Counter CACHE_ACIERTOS = Metrics.counter("escaner.cache.aciertos");
+    private static final Counter CACHE_FALLOS = Metrics.counter("escaner.cache.fallos");
+    private static final Histogram LECTURA_PRODUCTO = Metrics.histogram("firebase.products.producto");
+
+    private interface ProductCallback {
+        void onProduct(@Nullable Product product);
+    }
+
+    // Producto de la tarjeta en modo manual con el stock que se mostró; van juntos para que
+    // la edición no se aplique a otro código escaneado mientras tanto
+    private static final class Mostrado {
+        final String barcode;
+        final int stock;
+
+        Mostrado(String barcode, int stock) {
+            this.barcode = barcode;
+            this.stock = stock;
+        }
+    }
+
     private PreviewView previewView;
     private TextView tvBarcodeResult, tvProductName, tvProductPrice;
     private EditText etStock;
     private Button btnUpdateStock;
     private View cardProductDetails;
     private DatabaseReference mDatabase;
-    private String currentBarcode;
     private ExecutorService cameraExecutor;
+    private BarcodeAnalyzer barcodeAnalyzer;
+    private final ScanMetrics scanMetrics = new ScanMetrics();
+    private final LruCache<String, Product> productCache = new LruCache<>(PRODUCT_CACHE_SIZE);
+    // La edición manual se envía como diferencia sobre mostrado.stock; null si no hay producto editable
+    @Nullable private Mostrado mostrado;
+    private boolean countMode = false;
+    private final StockTally tally = new StockTally();
+    private TextView tvCountSummary;
+    private Button btnFlushCount;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flushCount;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,6 +116,9 @@ public class InventoryActivity extends AppCompatActivity {
         etStock = findViewById(R.id.etStock);
         btnUpdateStock = findViewById(R.id.btnUpdateStock);
         cardProductDetails = findViewById(R.id.cardProductDetails);
+        tvCountSummary = findViewById(R.id.tvCountSummary);
+        btnFlushCount = findViewById(R.id.btnFlushCount);
+        SwitchMaterial switchCountMode = findViewById(R.id.switchCountMode);
 
         mDatabase = FirebaseDatabase.getInstance().getReference();
         cameraExecutor = Executors.newSingleThreadExecutor();
@@ -68,14 +130,30 @@ public class InventoryActivity extends AppCompatActivity {
         }
 
         btnUpdateStock.setOnClickListener(v -> {
-            if (currentBarcode != null) {
+            if (mostrado != null) {
                 String stockStr = etStock.getText().toString();
                 if (!stockStr.isEmpty()) {
                     int newStock = Integer.parseInt(stockStr);
-                    updateProductStock(currentBarcode, newStock);
+                    updateProductStock(mostrado, newStock);
                 }
             }
         });
+
+        switchCountMode.setOnCheckedChangeListener((button, checked) -> {
+            countMode = checked;
+            if (checked) tally.startCount();
+            btnUpdateStock.setEnabled(!checked);
+            tvCountSummary.setVisibility(checked ? View.VISIBLE : View.GONE);
+            if (barcodeAnalyzer != null) barcodeAnalyzer.reset();
+            if (!checked) flushCount();
+            updateCountSummary();
+        });
+        btnFlushCount.setOnClickListener(v -> flushCount());
+        // Acceso oculto a las métricas de rendimiento
+        tvBarcodeResult.setOnLongClickListener(v -> {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        });
     }
 
     private void startCamera() {
@@ -85,7 +163,7 @@ public class InventoryActivity extends AppCompatActivity {
                 ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
                 bindCameraUseCases(cameraProvider);
             } catch (ExecutionException | InterruptedException e) {
-                Log.e("InventoryActivity", "Error al iniciar cámara", e);
+                Log.e(TAG, "Error al iniciar cámara", e);
             }
         }, ContextCompat.getMainExecutor(this));
     }
@@ -94,67 +172,218 @@ public class InventoryActivity extends AppCompatActivity {
         Preview preview = new Preview.Builder().build();
         preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-        BarcodeScanner scanner = BarcodeScanning.getClient();
         ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
+                .setTargetResolution(ANALYSIS_RESOLUTION)
                 .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                 .build();
 
-        imageAnalysis.setAnalyzer(cameraExecutor, image -> {
-            @SuppressWarnings("UnsafeOptInUsageError")
-            InputImage inputImage = InputImage.fromMediaImage(image.getImage(), image.getImageInfo().getRotationDegrees());
-            scanner.process(inputImage)
-                    .addOnSuccessListener(barcodes -> {
-                        for (Barcode barcode : barcodes) {
-                            String rawValue = barcode.getRawValue();
-                            if (rawValue != null && !rawValue.equals(currentBarcode)) {
-                                currentBarcode = rawValue;
-                                runOnUiThread(() -> loadProductData(currentBarcode));
-                            }
+        if (barcodeAnalyzer == null) {
+            barcodeAnalyzer = new BarcodeAnalyzer(cameraExecutor, ROI_WIDTH, ROI_HEIGHT, REQUIRED_FRAMES, scanMetrics,
+                    (code, frameNanos) -> runOnUiThread(() -> {
+                        if (countMode) {
+                            countScan(code, frameNanos);
+                        } else {
+                            loadProductData(code, frameNanos);
                         }
-                    })
-                    .addOnCompleteListener(task -> image.close());
-        });
+                    }));
+        }
+        imageAnalysis.setAnalyzer(cameraExecutor, barcodeAnalyzer);
 
         CameraSelector cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
         cameraProvider.unbindAll();
         cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis);
     }
 
-    private void loadProductData(String barcode) {
+    private void loadProductData(String barcode, long frameNanos) {
         tvBarcodeResult.setText("Código: " + barcode);
-        mDatabase.child("products").child(barcode).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (snapshot.exists()) {
-                    Product product = snapshot.getValue(Product.class);
-                    if (product != null) {
-                        tvProductName.setText(product.getNombre());
-                        tvProductPrice.setText("Precio: ₡" + product.getPrecio());
-                        etStock.setText(String.valueOf(product.getStock()));
-                        cardProductDetails.setVisibility(View.VISIBLE);
-                    }
-                } else {
-                    Toast.makeText(InventoryActivity.this, "Producto no encontrado", Toast.LENGTH_SHORT).show();
-                    cardProductDetails.setVisibility(View.GONE);
-                }
+        lookupProduct(barcode, true, product -> {
+            if (product == null) {
+                mostrado = null;
+                return;
+            }
+            showProduct(product);
+            etStock.setText(String.valueOf(product.getStock()));
+            mostrado = new Mostrado(barcode, product.getStock());
+            scanMetrics.onDisplayed(SystemClock.elapsedRealtimeNanos() - frameNanos);
+        });
+    }
+
+    // Cada escaneo en modo conteo suma una unidad; nada se escribe hasta flushCount
+    private void countScan(String barcode, long frameNanos) {
+        // El primer escaneo de cada producto lee el stock del servidor: el conteo lo reemplaza
+        lookupProduct(barcode, tally.needsBase(barcode), product -> {
+            if (product == null || !countMode) return;
+            tally.setBase(product.getId(), product.getStock());
+            int contados = tally.add(product.getId());
+            // La tarjeta pasa a mostrar otro producto: lo que había para editar ya no vale
+            mostrado = null;
+            etStock.setText("");
+            showProduct(product);
+            tvBarcodeResult.setText("Código: " + barcode + " · +" + contados);
+            scanMetrics.onDisplayed(SystemClock.elapsedRealtimeNanos() - frameNanos);
+            updateCountSummary();
+            mainHandler.removeCallbacks(flushRunnable);
+            if (tally.productCount() >= COUNT_BATCH_SIZE) {
+                flushCount();
+            } else {
+                mainHandler.postDelayed(flushRunnable, COUNT_FLUSH_DELAY_MS);
+            }
+        });
+    }
+
+    private void showProduct(Product product) {
+        tvProductName.setText(product.getNombre());
+        tvProductPrice.setText("Precio: ₡" + product.getPrecio());
+        cardProductDetails.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Producto por código. Con {@code fresco} se lee siempre del servidor: el
+     * stock que se va a editar no puede venir de la caché, donde no se ven
+     * los pedidos que lo descontaron después.
+     */
+    private void lookupProduct(String barcode, boolean fresco, ProductCallback callback) {
+        Product cached = fresco ? null : productCache.get(barcode);
+        if (cached != null) {
+            CACHE_ACIERTOS.inc();
+            callback.onProduct(cached);
+            return;
+        }
+        if (!fresco) CACHE_FALLOS.inc();
+        long inicio = System.nanoTime();
+        // get() va al servidor mientras haya conexión, en lugar de devolver lo que ya se tenga en memoria
+        mDatabase.child("products").child(barcode).get().addOnCompleteListener(lectura -> {
+            LECTURA_PRODUCTO.recordSince(inicio);
+            if (!lectura.isSuccessful()) {
+                Log.e(TAG, "Error en Firebase", lectura.getException());
+                callback.onProduct(null);
+                return;
+            }
+            DataSnapshot snapshot = lectura.getResult();
+            Product product = snapshot.exists()
+                    ? ProductMapper.fromValue(snapshot.getKey(), snapshot.getValue()) : null;
+            if (product == null || product.isEliminado()) {
+                Toast.makeText(InventoryActivity.this, "Producto no encontrado", Toast.LENGTH_SHORT).show();
+                cardProductDetails.setVisibility(View.GONE);
+                callback.onProduct(null);
+                return;
             }
+            productCache.put(barcode, product);
+            callback.onProduct(product);
+        });
+    }
+
+    /**
+     * Envía el conteo como incrementos de stock: el primer envío de cada
+     * producto lo deja en lo contado ({@link StockTally}). Cada lote es una
+     * sola actualización multi-ruta y no pisa lo que los pedidos descontaron
+     * mientras se contaba.
+     */
+    private void flushCount() {
+        mainHandler.removeCallbacks(flushRunnable);
+        if (tally.isEmpty()) return;
+        List<Map<String, Integer>> lotes = tally.drain(COUNT_BATCH_SIZE);
+        updateCountSummary();
+        for (Map<String, Integer> lote : lotes) sendCount(lote, false);
+    }
+
+    // Las reglas rechazan el lote entero si un producto quedaría en negativo (se vendió
+    // más de lo que quedaba por descontar). Se relee su stock, se ajusta el lote una vez
+    // con StockTally.fitToStock y se reenvía; cualquier otro error lo devuelve al conteo.
+    private void sendCount(Map<String, Integer> lote, boolean ajustado) {
+        Map<String, Object> updates = new HashMap<>();
+        for (Map.Entry<String, Integer> e : lote.entrySet()) {
+            String producto = "products/" + e.getKey() + "/";
+            Object cambio = ServerValue.increment(e.getValue());
+            updates.put(producto + "stock", cambio);
+            updates.put(producto + "updated_at", ServerValue.TIMESTAMP);
+            SalesSummary.stockDelta(e.getKey(), cambio, updates);
+        }
+        mDatabase.updateChildren(updates, (error, ref) -> {
+            if (error == null) {
+                tally.confirm(lote);
+                applyToCache(lote);
+                Toast.makeText(this, "Conteo enviado: " + lote.size() + " productos", Toast.LENGTH_SHORT).show();
+            } else if (error.getCode() == DatabaseError.PERMISSION_DENIED && !ajustado) {
+                fitCount(lote);
+            } else {
+                tally.restore(lote);
+                updateCountSummary();
+                Toast.makeText(this, "Error al enviar el conteo", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e("InventoryActivity", "Error en Firebase", error.toException());
+    private void fitCount(Map<String, Integer> lote) {
+        List<String> ids = new ArrayList<>();
+        List<Task<DataSnapshot>> lecturas = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : lote.entrySet()) {
+            if (e.getValue() >= 0) continue;
+            ids.add(e.getKey());
+            lecturas.add(mDatabase.child("products").child(e.getKey()).child("stock").get());
+        }
+        Tasks.whenAllComplete(lecturas).addOnCompleteListener(t -> {
+            Map<String, Integer> stockActual = new HashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                Task<DataSnapshot> lectura = lecturas.get(i);
+                if (!lectura.isSuccessful()) continue;
+                Object stock = lectura.getResult().getValue();
+                stockActual.put(ids.get(i), stock instanceof Number ? ((Number) stock).intValue() : 0);
+            }
+            List<String> afectados = tally.fitToStock(lote, stockActual);
+            updateCountSummary();
+            if (!afectados.isEmpty()) {
+                Toast.makeText(this, "Revisar el stock de: " + String.join(", ", afectados), Toast.LENGTH_LONG).show();
             }
+            if (!lote.isEmpty()) sendCount(lote, true);
         });
     }
 
-    private void updateProductStock(String barcode, int newStock) {
-        mDatabase.child("products").child(barcode).child("stock").setValue(newStock)
-                .addOnSuccessListener(aVoid -> Toast.makeText(InventoryActivity.this, "Stock actualizado correctamente", Toast.LENGTH_SHORT).show())
+    private void applyToCache(Map<String, Integer> lote) {
+        for (Map.Entry<String, Integer> e : lote.entrySet()) {
+            Product cached = productCache.get(e.getKey());
+            if (cached != null) cached.setStock(cached.getStock() + e.getValue());
+        }
+    }
+
+    private void updateCountSummary() {
+        tvCountSummary.setText("Pendiente: " + tally.unitCount() + " unidades en " + tally.productCount() + " productos");
+        btnFlushCount.setEnabled(!tally.isEmpty());
+    }
+
+    // La edición manual también viaja como diferencia sobre el stock que se mostró
+    private void updateProductStock(Mostrado producto, int newStock) {
+        String barcode = producto.barcode;
+        int delta = newStock - producto.stock;
+        if (delta == 0) return;
+        // Cada escritura marca updated_at para que los clientes descarguen solo el cambio
+        Map<String, Object> updates = new HashMap<>();
+        String ruta = "products/" + barcode + "/";
+        Object cambio = ServerValue.increment(delta);
+        updates.put(ruta + "stock", cambio);
+        updates.put(ruta + "updated_at", ServerValue.TIMESTAMP);
+        SalesSummary.stockDelta(barcode, cambio, updates);
+        mDatabase.updateChildren(updates)
+                .addOnSuccessListener(aVoid -> {
+                    applyToCache(Collections.singletonMap(barcode, delta));
+                    Toast.makeText(InventoryActivity.this, "Stock actualizado correctamente", Toast.LENGTH_SHORT).show();
+                })
                 .addOnFailureListener(e -> Toast.makeText(InventoryActivity.this, "Error al actualizar", Toast.LENGTH_SHORT).show());
+        // Una segunda edición del mismo producto parte de lo que ya se envió
+        if (mostrado == producto) mostrado = new Mostrado(barcode, newStock);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        flushCount();
+        Log.i(TAG, "Escáner: " + scanMetrics.summary());
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (barcodeAnalyzer != null) barcodeAnalyzer.close();
         cameraExecutor.shutdown();
     }
 }
@@ -0,0 +1,128 @@
+package com.farmacia.santamarta.ui.admin;
+
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import com.farmacia.santamarta.R;
+import com.farmacia.santamarta.data.SubscriptionManager;
+import com.farmacia.santamarta.metrics.FrameDropTracker;
+import com.farmacia.santamarta.metrics.Metrics;
+import com.farmacia.santamarta.metrics.MetricsReport;
+import com.google.android.material.switchmaterial.SwitchMaterial;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pantalla oculta con las métricas de rendimiento de esta sesión (ver
+ * {@link Metrics}). Se abre con una pulsación larga en el título del
+ * inventario y permite exportarlas como JSON para comparar equipos. Debajo
+ * se listan los listeners de Firebase abiertos ({@link SubscriptionManager})
+ * para detectar los que quedan vivos de más. Desde aquí también se activa
+ * la medición continua de cuadros de los mapas ({@link FrameDropTracker}).
+ */
+public class MetricsActivity extends AppCompatActivity {
+    private static final String TAG = "MetricsActivity";
+    private static final int REQUEST_EXPORT = 1;
+
+    private TextView tvMetrics;
+    private ExecutorService ioExecutor;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        tvMetrics = findViewById(R.id.tvMetrics);
+        Button btnRefresh = findViewById(R.id.btnRefreshMetrics);
+        Button btnReset = findViewById(R.id.btnResetMetrics);
+        Button btnExport = findViewById(R.id.btnExportMetrics);
+        SwitchMaterial switchFrames = findViewById(R.id.switchFrameTracking);
+        ioExecutor = Executors.newSingleThreadExecutor();
+
+        btnRefresh.setOnClickListener(v -> refresh());
+        switchFrames.setChecked(FrameDropTracker.isEnabled());
+        switchFrames.setOnCheckedChangeListener((button, checked) -> FrameDropTracker.setEnabled(checked));
+        btnReset.setOnClickListener(v -> {
+            Metrics.reset();
+            refresh();
+        });
+        btnExport.setOnClickListener(v -> {
+            String fecha = new SimpleDateFormat("yyyyMMdd_HHmm", Locale.ROOT).format(new Date());
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("application/json");
+            intent.putExtra(Intent.EXTRA_TITLE, "metricas_" + fecha + ".json");
+            startActivityForResult(intent, REQUEST_EXPORT);
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    private void refresh() {
+        String texto = Metrics.snapshot().toText();
+        tvMetrics.setText(texto + "\nSuscripciones\n" + SubscriptionManager.get().summary());
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode != REQUEST_EXPORT || resultCode != RESULT_OK || data == null || data.getData() == null) return;
+        Uri uri = data.getData();
+        // Se toman los valores al elegir el archivo, no los que haya cuando termine de escribirse
+        String json = Metrics.snapshot().toJson(deviceInfo());
+        ioExecutor.execute(() -> {
+            String resultado;
+            try (OutputStream out = getContentResolver().openOutputStream(uri, "w")) {
+                if (out == null) throw new IOException("No se pudo abrir el archivo de destino");
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+                resultado = "Métricas exportadas";
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error al exportar métricas", e);
+                resultado = "Error al exportar: " + e.getMessage();
+            }
+            String mensaje = resultado;
+            runOnUiThread(() -> Toast.makeText(this, mensaje, Toast.LENGTH_SHORT).show());
+        });
+    }
+
+    // Lo necesario para comparar archivos de distintos teléfonos y versiones
+    private Map<String, String> deviceInfo() {
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("fabricante", Build.MANUFACTURER);
+        info.put("modelo", Build.MODEL);
+        info.put("android", Build.VERSION.RELEASE + " (API " + Build.VERSION.SDK_INT + ")");
+        info.put("refresco_hz", String.valueOf(FrameDropTracker.refreshRate(this)));
+        try {
+            info.put("version_app", getPackageManager().getPackageInfo(getPackageName(), 0).versionName);
+        } catch (PackageManager.NameNotFoundException e) {
+            info.put("version_app", "desconocida");
+        }
+        return info;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ioExecutor.shutdown();
+    }
+}
@@ -0,0 +1,68 @@
+package com.farmacia.santamarta.ui.admin;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Acepta un código solo después de leerlo igual en {@code requiredFrames}
+ * cuadros seguidos; una lectura distinta reinicia la cuenta. Un código ya
+ * aceptado no se vuelve a aceptar hasta que deja de verse por unos cuadros,
+ * así sostener el producto frente a la cámara no repite la consulta.
+ */
+public class ScanConsensus {
+    // Cuadros sin lectura que se toleran dentro de una racha (desenfoque, reflejo)
+    private static final int MAX_EMPTY_FRAMES = 2;
+    // Cuadros sin ver el último código aceptado para poder aceptarlo otra vez
+    private static final int REARM_FRAMES = 10;
+
+    private final int requiredFrames;
+    @Nullable private String candidato;
+    private int racha;
+    private int vacios;
+    @Nullable private String aceptado;
+    private int sinAceptado;
+
+    public ScanConsensus(int requiredFrames) {
+        this.requiredFrames = Math.max(1, requiredFrames);
+    }
+
+    /** Registra la lectura de un cuadro (null si no hubo) y devuelve el código si queda aceptado. */
+    @Nullable
+    public String offer(@Nullable String value) {
+        if (aceptado != null && !aceptado.equals(value) && ++sinAceptado >= REARM_FRAMES) {
+            aceptado = null;
+        }
+        if (value == null) {
+            if (++vacios > MAX_EMPTY_FRAMES) {
+                candidato = null;
+                racha = 0;
+            }
+            return null;
+        }
+        vacios = 0;
+        if (value.equals(aceptado)) {
+            sinAceptado = 0;
+            return null;
+        }
+        if (value.equals(candidato)) {
+            racha++;
+        } else {
+            candidato = value;
+            racha = 1;
+        }
+        if (racha < requiredFrames) return null;
+
+        aceptado = value;
+        sinAceptado = 0;
+        candidato = null;
+        racha = 0;
+        return value;
+    }
+
+    public void reset() {
+        candidato = null;
+        racha = 0;
+        vacios = 0;
+        aceptado = null;
+        sinAceptado = 0;
+    }
+}
@@ -0,0 +1,87 @@
+package com.farmacia.santamarta.ui.admin;
+
+import com.farmacia.santamarta.metrics.Counter;
+import com.farmacia.santamarta.metrics.Histogram;
+import com.farmacia.santamarta.metrics.Metrics;
+import java.util.Locale;
+
+/**
+ * Contadores del escáner por etapa: cuadros analizados, cuadros que la
+ * cámara descartó mientras se analizaba otro, tiempo de decodificación y
+ * tiempo desde el cuadro aceptado hasta mostrar el producto. Se escribe
+ * desde el hilo de la cámara y se lee desde el principal. Los mismos valores
+ * se acumulan en {@link Metrics} bajo `escaner.*` para verlos entre sesiones.
+ */
+public class ScanMetrics {
+    private static final Counter CUADROS = Metrics.counter("escaner.cuadros");
+    private static final Counter DESCARTADOS = Metrics.counter("escaner.descartados");
+    private static final Histogram DECODIFICACION = Metrics.histogram("escaner.decodificacion");
+    private static final Histogram ESCANEO = Metrics.histogram("escaner.escaneo_a_resultado");
+
+    private long framesAnalyzed;
+    private long framesDropped;
+    private long decodes;
+    private long decodeTotalNanos;
+    private long decodeMaxNanos;
+    private long displays;
+    private long displayTotalNanos;
+    private long displayMaxNanos;
+
+    // Periodo entre cuadros estimado con la menor separación vista entre marcas de tiempo
+    private long lastFrameNanos;
+    private long framePeriodNanos = Long.MAX_VALUE;
+
+    /**
+     * Registra un cuadro recibido por el analizador. La cámara solo entrega
+     * el más reciente, así que los descartados se estiman por el hueco entre
+     * marcas de tiempo.
+     */
+    public synchronized void onFrame(long timestampNanos) {
+        framesAnalyzed++;
+        CUADROS.inc();
+        if (lastFrameNanos != 0) {
+            long gap = timestampNanos - lastFrameNanos;
+            if (gap > 0 && gap < framePeriodNanos) framePeriodNanos = gap;
+            if (framePeriodNanos != Long.MAX_VALUE) {
+                long descartados = Math.max(0, Math.round((double) gap / framePeriodNanos) - 1);
+                framesDropped += descartados;
+                DESCARTADOS.add(descartados);
+            }
+        }
+        lastFrameNanos = timestampNanos;
+    }
+
+    public synchronized void onDecoded(long nanos) {
+        decodes++;
+        DECODIFICACION.record(nanos);
+        decodeTotalNanos += nanos;
+        decodeMaxNanos = Math.max(decodeMaxNanos, nanos);
+    }
+
+    public synchronized void onDisplayed(long nanos) {
+        displays++;
+        ESCANEO.record(nanos);
+        displayTotalNanos += nanos;
+        displayMaxNanos = Math.max(displayMaxNanos, nanos);
+    }
+
+    public synchronized long getFramesAnalyzed() {
+        return framesAnalyzed;
+    }
+
+    public synchronized long getFramesDropped() {
+        return framesDropped;
+    }
+
+    public synchronized String summary() {
+        return String.format(Locale.ROOT,
+                "cuadros=%d descartados=%d decodificación prom=%.1fms max=%.1fms escaneo-a-pantalla prom=%.1fms max=%.1fms (n=%d)",
+                framesAnalyzed, framesDropped,
+                promedioMs(decodeTotalNanos, decodes), decodeMaxNanos / 1e6,
+                promedioMs(displayTotalNanos, displays), displayMaxNanos / 1e6, displays);
+    }
+
+    private static double promedioMs(long totalNanos, long n) {
+        return n == 0 ? 0 : totalNanos / 1e6 / n;
+    }
+}
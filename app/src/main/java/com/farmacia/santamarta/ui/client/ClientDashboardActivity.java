@@ -1,31 +1,110 @@
 package com.farmacia.santamarta.ui.client;
 
+import android.Manifest;
+import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
+import android.view.View;
 import android.widget.EditText;
+import android.widget.ProgressBar;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.farmacia.santamarta.R;
+import com.farmacia.santamarta.data.Cart;
+import com.farmacia.santamarta.data.CartStorage;
+import com.farmacia.santamarta.data.CatalogCache;
+import com.farmacia.santamarta.data.CatalogStore;
+import com.farmacia.santamarta.data.CatalogSync;
+import com.farmacia.santamarta.data.CheckoutService;
+import com.farmacia.santamarta.data.IntList;
+import com.farmacia.santamarta.data.ProductPager;
+import com.farmacia.santamarta.data.ProductSearchIndex;
+import com.farmacia.santamarta.metrics.FrameDropTracker;
+import com.farmacia.santamarta.metrics.Histogram;
+import com.farmacia.santamarta.metrics.Metrics;
+import com.farmacia.santamarta.models.DeliveryLocation;
 import com.farmacia.santamarta.models.Product;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.ExtendedFloatingActionButton;
-import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class ClientDashboardActivity extends AppCompatActivity {
+public class ClientDashboardActivity extends AppCompatActivity implements CatalogSync.Listener, ProductPager.Callback {
+    private static final String TAG = "ClientDashboard";
+    // Espera tras la última tecla antes de buscar; las teclas intermedias no se procesan
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    // Por encima de este total de filas el diff cuesta más que repintar la lista
+    private static final int MAX_DIFF_ROWS = 4000;
+    private static final int PERMISSION_LOCATION_REQUEST = 2;
+    // Espera antes de reintentar una sincronización cancelada; se duplica hasta el máximo
+    private static final long SYNC_RETRY_MS = 5_000;
+    private static final long SYNC_RETRY_MAX_MS = 60_000;
+    private static final Histogram CARGA_LOCAL = Metrics.histogram("catalogo.carga_local");
+    private static final Histogram BUSQUEDA = Metrics.histogram("busqueda.consulta");
     private RecyclerView rvProducts;
+    private LinearLayoutManager layoutManager;
     private ProductAdapter adapter;
-    private List<Product> allProducts = new ArrayList<>();
-    private List<Product> cart = new ArrayList<>();
-    private DatabaseReference mDatabase;
+    private final Cart cart = new Cart();
+    private CartStorage cartStorage;
+    private CheckoutService checkoutService;
+    private boolean checkingOut = false;
+    // Solo se usa desde searchExecutor; los cambios llegan como tareas en orden
+    private ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private String currentQuery = "";
+    private String currentCategory = null;
+    // Resultados como filas del catálogo, sin copiar productos
+    private IntList searchRows = new IntList();
+    // Filas que muestra el adaptador (resultados u orden por clave); null con el paginador
+    private IntList shownRows;
+    // Consulta y categoría de las que salieron searchRows
+    private String shownQuery = "";
+    private String shownCategory = null;
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::filterProducts;
+    // Cada búsqueda nueva invalida las anteriores que sigan en curso
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    private boolean searchPending = false;
+    private final Set<String> knownCategories = new HashSet<>();
+    private DatabaseReference productsRef;
+    private ProductPager pager;
+    private CatalogSync catalogSync;
+    private CatalogCache catalogCache;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    // true cuando el catálogo completo está en memoria (desde disco o tras la primera descarga)
+    private boolean storeReady = false;
+    private boolean cacheDirty = false;
+    private long syncRetryMs = SYNC_RETRY_MS;
+    private final Runnable syncRetry = this::retrySync;
+    private ChipGroup chipGroupCategories;
+    private ProgressBar progressCatalog;
     private ExtendedFloatingActionButton fabCart;
 
     @Override
@@ -35,17 +114,44 @@ public class ClientDashboardActivity extends AppCompatActivity {
 
         rvProducts = findViewById(R.id.rvProducts);
         fabCart = findViewById(R.id.fabCart);
+        chipGroupCategories = findViewById(R.id.chipGroupCategories);
+        progressCatalog = findViewById(R.id.progressCatalog);
         EditText etSearch = findViewById(R.id.etSearch);
 
-        rvProducts.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new ProductAdapter(new ArrayList<>(), product -> {
-            cart.add(product);
-            updateCartFab();
-            Toast.makeText(this, product.getNombre() + " agregado al carrito", Toast.LENGTH_SHORT).show();
-        });
+        layoutManager = new LinearLayoutManager(this);
+        rvProducts.setLayoutManager(layoutManager);
+        cartStorage = new CartStorage(this);
+        cartStorage.load(cart);
+        checkoutService = new CheckoutService(FirebaseDatabase.getInstance().getReference());
+        updateCartFab();
+        fabCart.setOnClickListener(v -> showCart());
+
+        adapter = new ProductAdapter(new ArrayList<>(), this::addToCart);
         rvProducts.setAdapter(adapter);
+        // Cuadros perdidos al desplazar, para comparar con catálogos grandes en el log
+        rvProducts.addOnScrollListener(new ScrollJankMonitor(TAG, FrameDropTracker.refreshRate(this)));
+        rvProducts.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Se sigue paginando mientras baja el catálogo completo, que puede tardar
+                if (usingPager()) {
+                    pager.onVisibleRange(layoutManager.findFirstVisibleItemPosition(),
+                            layoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
+
+        chipGroupCategories.setOnCheckedStateChangeListener((group, checkedIds) -> {
+            if (checkedIds.isEmpty()) return;
+            int checkedId = checkedIds.get(0);
+            Chip chip = group.findViewById(checkedId);
+            if (chip == null) return;
+            selectCategory(checkedId == R.id.chipAllCategories ? null : chip.getText().toString());
+        });
 
-        mDatabase = FirebaseDatabase.getInstance().getReference().child("products");
+        productsRef = FirebaseDatabase.getInstance().getReference().child("products");
+        catalogSync = new CatalogSync(this, productsRef, this);
+        catalogCache = new CatalogCache(getFilesDir());
         loadProducts();
 
         etSearch.addTextChangedListener(new TextWatcher() {
@@ -53,7 +159,9 @@ public class ClientDashboardActivity extends AppCompatActivity {
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                filterProducts(s.toString());
+                currentQuery = s.toString();
+                mainHandler.removeCallbacks(searchRunnable);
+                mainHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
             }
             @Override
             public void afterTextChanged(Editable s) {}
@@ -61,37 +169,507 @@ public class ClientDashboardActivity extends AppCompatActivity {
     }
 
     private void loadProducts() {
-        mDatabase.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                allProducts.clear();
-                for (DataSnapshot ds : snapshot.getChildren()) {
-                    Product product = ds.getValue(Product.class);
-                    if (product != null) {
-                        allProducts.add(product);
-                    }
-                }
-                adapter.updateList(allProducts);
+        long inicio = SystemClock.elapsedRealtimeNanos();
+        ioExecutor.execute(() -> {
+            CatalogStore store = catalogCache.load();
+            ProductSearchIndex index = new ProductSearchIndex();
+            index.rebuild(store);
+            long nanos = SystemClock.elapsedRealtimeNanos() - inicio;
+            CARGA_LOCAL.record(nanos);
+            long ms = nanos / 1_000_000L;
+            runOnUiThread(() -> onCacheLoaded(store, index, ms));
+        });
+    }
+
+    private void onCacheLoaded(CatalogStore store, ProductSearchIndex index, long ms) {
+        if (isDestroyed()) return;
+        Log.i(TAG, "Catálogo local: " + store.size() + " productos en " + ms + " ms");
+        if (store.size() == 0) {
+            // Primer uso: la primera página se muestra sin esperar el catálogo completo,
+            // que se pide al llegar esa página (onPageLoaded) para guardarlo en disco
+            startPager();
+            filterProducts();
+            return;
+        }
+
+        catalogSync.seed(store);
+        setSearchIndex(index);
+        storeReady = true;
+        addCategories(store);
+        filterProducts();
+        // Solo se piden los productos modificados desde la última sincronización
+        catalogSync.startDelta();
+    }
+
+    private void startPager() {
+        if (pager != null) pager.release();
+        pager = new ProductPager(this, productsRef, currentCategory, this);
+        pager.start();
+    }
+
+    private void selectCategory(String categoria) {
+        currentCategory = categoria;
+        if (pager != null && !storeReady) startPager();
+        filterProducts();
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            Product product = pager.get(i);
+            if (product != null) addCategory(product.getCategoria());
+        }
+        if (usingPager()) adapter.notifyItemRangeInserted(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        if (usingPager()) adapter.notifyItemRangeChanged(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        if (usingPager()) adapter.notifyItemRangeRemoved(positionStart, itemCount);
+    }
+
+    @Override
+    public void onPageError(DatabaseError error) {
+        Toast.makeText(this, "Error al cargar productos", Toast.LENGTH_SHORT).show();
+        startFullDownload();
+    }
+
+    @Override
+    public void onPageLoaded() {
+        startFullDownload();
+    }
+
+    // Una sola descarga completa; el paginador sigue respondiendo al scroll hasta que termine
+    private void startFullDownload() {
+        if (!storeReady && !catalogSync.isActive()) catalogSync.start();
+    }
+
+    @Override
+    public void onCatalogLoaded() {
+        syncRetryMs = SYNC_RETRY_MS;
+        if (!storeReady) {
+            // Termina la primera descarga completa: el índice se construye una vez
+            ProductSearchIndex index = new ProductSearchIndex();
+            index.rebuild(catalogSync.getStore());
+            setSearchIndex(index);
+            addCategories(catalogSync.getStore());
+            storeReady = true;
+            if (pager != null) {
+                pager.release();
+                pager = null;
             }
+            filterProducts();
+        }
+        saveCache();
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Toast.makeText(ClientDashboardActivity.this, "Error al cargar productos", Toast.LENGTH_SHORT).show();
+    @Override
+    public void onProductInserted(int position, int row) {
+        if (!storeReady) return;
+        CatalogStore store = catalogSync.getStore();
+        indexRow(store, row);
+        addCategory(store.getCategoria(row));
+        cacheDirty = true;
+        if (showingKeyOrder()) {
+            adapter.notifyItemInserted(position);
+            // Un diff en curso se calculó sobre la lista anterior: se vuelve a pedir
+            if (searchPending) filterProducts();
+        } else {
+            filterProducts();
+        }
+    }
+
+    @Override
+    public void onProductChanged(int position, int row) {
+        if (!storeReady) return;
+        indexRow(catalogSync.getStore(), row);
+        cacheDirty = true;
+        if (showingKeyOrder()) {
+            adapter.notifyItemChanged(position);
+            return;
+        }
+        if (searchPending) {
+            filterProducts();
+            return;
+        }
+        // Solo se evalúa la fila cambiada contra la consulta que se está mostrando
+        int generation = searchGeneration.get();
+        String query = shownQuery;
+        String categoria = shownCategory;
+        searchExecutor.execute(() -> {
+            boolean coincide = searchIndex.matches(row, query, categoria);
+            mainHandler.post(() -> onRowEvaluated(generation, row, coincide));
+        });
+    }
+
+    private void onRowEvaluated(int generation, int row, boolean coincide) {
+        if (isDestroyed() || generation != searchGeneration.get()) return;
+        int index = searchRows.indexOf(row);
+        if (index >= 0 && coincide) {
+            // Sigue en los resultados: se repinta en su lugar; el orden se rehace en la próxima búsqueda
+            adapter.notifyItemChanged(index);
+        } else if (index >= 0) {
+            searchRows.removeAt(index);
+            adapter.notifyItemRemoved(index);
+        } else if (coincide) {
+            // Entra en los resultados: su posición depende de la relevancia
+            filterProducts();
+        }
+    }
+
+    @Override
+    public void onProductRemoved(int position, int row) {
+        if (!storeReady) return;
+        searchExecutor.execute(() -> searchIndex.remove(row));
+        cacheDirty = true;
+        if (showingKeyOrder()) {
+            adapter.notifyItemRemoved(position);
+        } else {
+            // Aunque no esté en los resultados, una búsqueda pendiente tiene que correr
+            int index = searchRows.indexOf(row);
+            if (index >= 0) {
+                searchRows.removeAt(index);
+                adapter.notifyItemRemoved(index);
+            }
+        }
+        if (searchPending) filterProducts();
+    }
+
+    @Override
+    public void onSyncError(DatabaseError error) {
+        Toast.makeText(this, "Error al cargar productos", Toast.LENGTH_SHORT).show();
+        // Mientras tanto el paginador sigue mostrando páginas o queda el catálogo local
+        mainHandler.removeCallbacks(syncRetry);
+        mainHandler.postDelayed(syncRetry, syncRetryMs);
+        syncRetryMs = Math.min(syncRetryMs * 2, SYNC_RETRY_MAX_MS);
+    }
+
+    private void retrySync() {
+        if (isDestroyed()) return;
+        if (storeReady) {
+            catalogSync.startDelta();
+        } else {
+            startFullDownload();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (cacheDirty) saveCache();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pager != null) pager.release();
+        catalogSync.stop();
+        mainHandler.removeCallbacks(searchRunnable);
+        mainHandler.removeCallbacks(syncRetry);
+        searchGeneration.incrementAndGet();
+        searchExecutor.shutdown();
+        ioExecutor.shutdown();
+    }
+
+    private void saveCache() {
+        if (!storeReady) return;
+        cacheDirty = false;
+        CatalogStore copia = catalogSync.getStore().copy();
+        ioExecutor.execute(() -> {
+            try {
+                catalogCache.save(copia);
+            } catch (IOException e) {
+                Log.e(TAG, "No se pudo guardar el catálogo local", e);
             }
         });
     }
 
-    private void filterProducts(String query) {
-        List<Product> filtered = new ArrayList<>();
-        for (Product p : allProducts) {
-            if (p.getNombre().toLowerCase().contains(query.toLowerCase())) {
-                filtered.add(p);
+    private void filterProducts() {
+        mainHandler.removeCallbacks(searchRunnable);
+        int generation = searchGeneration.incrementAndGet();
+        searchPending = false;
+        progressCatalog.setVisibility(View.GONE);
+        if (usingPager()) {
+            shownRows = null;
+            adapter.setSource(pager);
+            return;
+        }
+        CatalogStore store = catalogSync.getStore();
+        if (!storeReady && isSearching()) {
+            // El texto se busca en el índice del catálogo completo: hasta que termine de
+            // bajar se muestra la carga, no una lista vacía. onCatalogLoaded vuelve a filtrar
+            shownRows = null;
+            adapter.setSource(store.view(new IntList()));
+            progressCatalog.setVisibility(View.VISIBLE);
+            if (pager != null) startFullDownload();
+            return;
+        }
+        if (!isFilteredView()) {
+            // Sin filtros el adaptador lee directamente el orden por clave del catálogo
+            shownRows = store.keyOrder();
+            adapter.setSource(store.keyOrderView());
+            return;
+        }
+
+        // La búsqueda y el diff corren en searchExecutor; aquí solo se copian las filas visibles
+        IntList anteriores = shownRows != null ? shownRows.copy() : null;
+        String query = currentQuery;
+        String categoria = currentCategory;
+        searchPending = true;
+        searchExecutor.execute(() -> {
+            if (generation != searchGeneration.get()) return;
+            long inicioBusqueda = System.nanoTime();
+            IntList filas = searchIndex.search(query, categoria);
+            BUSQUEDA.recordSince(inicioBusqueda);
+            if (generation != searchGeneration.get()) return;
+            DiffUtil.DiffResult diff = diffRows(anteriores, filas);
+            mainHandler.post(() -> showResults(generation, query, categoria, filas, diff));
+        });
+    }
+
+    private void showResults(int generation, String query, @Nullable String categoria, IntList filas,
+                             @Nullable DiffUtil.DiffResult diff) {
+        if (isDestroyed() || generation != searchGeneration.get()) return;
+        searchPending = false;
+        shownQuery = query;
+        shownCategory = categoria;
+        searchRows = filas;
+        shownRows = filas;
+        adapter.setSource(catalogSync.getStore().view(filas), diff);
+    }
+
+    @Nullable
+    private static DiffUtil.DiffResult diffRows(@Nullable IntList anteriores, IntList nuevas) {
+        if (anteriores == null || anteriores.size() + nuevas.size() > MAX_DIFF_ROWS) return null;
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return anteriores.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return nuevas.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return anteriores.get(oldPosition) == nuevas.get(newPosition);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                // Los cambios de una fila ya se avisan aparte con onProductChanged
+                return true;
             }
+        }, false);
+    }
+
+    private void setSearchIndex(ProductSearchIndex index) {
+        searchExecutor.execute(() -> searchIndex = index);
+    }
+
+    // Los campos se leen aquí porque el catálogo solo se modifica en el hilo principal
+    private void indexRow(CatalogStore store, int row) {
+        String nombre = store.getNombre(row);
+        String categoria = store.getCategoria(row);
+        String descripcion = store.getDescripcion(row);
+        searchExecutor.execute(() -> searchIndex.put(row, nombre, categoria, descripcion));
+    }
+
+    // Lo que muestra el adaptador, que puede ir detrás de currentQuery mientras se escribe
+    private boolean showingKeyOrder() {
+        return shownRows != null && shownRows == catalogSync.getStore().keyOrder();
+    }
+
+    private boolean isSearching() {
+        return !currentQuery.trim().isEmpty();
+    }
+
+    private boolean isFilteredView() {
+        return isSearching() || currentCategory != null;
+    }
+
+    // Mientras no hay catálogo local se navega por páginas (también por categoría); la búsqueda espera al índice
+    private boolean usingPager() {
+        return !storeReady && pager != null && !isSearching();
+    }
+
+    private void addCategories(CatalogStore store) {
+        for (String categoria : store.getCategorias()) {
+            addCategory(categoria);
+        }
+    }
+
+    private void addCategory(String categoria) {
+        if (categoria == null || categoria.isEmpty() || !knownCategories.add(categoria)) return;
+        Chip chip = new Chip(this);
+        chip.setText(categoria);
+        chip.setCheckable(true);
+        chipGroupCategories.addView(chip);
+    }
+
+    private void addToCart(Product product) {
+        // El stock mostrado es orientativo; la reserva real se valida en el checkout
+        if (cart.getQuantity(product.getId()) >= product.getStock()) {
+            Toast.makeText(this, "No hay más unidades de " + product.getNombre(), Toast.LENGTH_SHORT).show();
+            return;
         }
-        adapter.updateList(filtered);
+        int cantidad = cart.add(product, 1);
+        onCartChanged();
+        Toast.makeText(this, product.getNombre() + " agregado al carrito (" + cantidad + ")", Toast.LENGTH_SHORT).show();
+    }
+
+    private void onCartChanged() {
+        cartStorage.save(cart);
+        updateCartFab();
     }
 
     private void updateCartFab() {
-        fabCart.setText("Ver Carrito (" + cart.size() + ")");
+        fabCart.setText("Ver Carrito (" + cart.unitCount() + ")");
+    }
+
+    private void showCart() {
+        if (cart.isEmpty()) {
+            Toast.makeText(this, "El carrito está vacío", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        List<Cart.Line> lineas = new ArrayList<>(cart.getLines());
+        String[] textos = new String[lineas.size()];
+        for (int i = 0; i < textos.length; i++) {
+            Cart.Line l = lineas.get(i);
+            textos[i] = l.getCantidad() + " × " + l.getNombre() + "  " + adapter.formatPrice(l.getSubtotal());
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Carrito · Total " + adapter.formatPrice(cart.getTotal()))
+                // Tocar una línea quita una unidad
+                .setItems(textos, (dialog, which) -> {
+                    Cart.Line l = lineas.get(which);
+                    cart.setQuantity(l.getProductId(), l.getCantidad() - 1);
+                    onCartChanged();
+                    showCart();
+                })
+                .setPositiveButton("Confirmar pedido", (dialog, which) -> checkout())
+                .setNeutralButton("Vaciar", (dialog, which) -> {
+                    cart.clear();
+                    onCartChanged();
+                })
+                .setNegativeButton("Seguir comprando", null)
+                .show();
+    }
+
+    private void checkout() {
+        String clienteId = FirebaseAuth.getInstance().getUid();
+        if (clienteId == null) {
+            Toast.makeText(this, "Inicie sesión para hacer el pedido", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (checkingOut) return;
+        // La ubicación sirve como punto de entrega y para buscar el repartidor más cercano
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.ACCESS_FINE_LOCATION},
+                    PERMISSION_LOCATION_REQUEST);
+            return;
+        }
+        startPlacing();
+        LocationServices.getFusedLocationProviderClient(this).getLastLocation().addOnCompleteListener(task -> {
+            DeliveryLocation entrega = null;
+            if (task.isSuccessful() && task.getResult() != null) {
+                entrega = new DeliveryLocation(task.getResult().getLatitude(), task.getResult().getLongitude(),
+                        "Ubicación actual");
+            }
+            placeOrder(clienteId, entrega);
+        });
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode != PERMISSION_LOCATION_REQUEST) return;
+        if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+            checkout();
+        } else {
+            askAddress();
+        }
+    }
+
+    // Sin permiso de ubicación el pedido sale con la dirección escrita y sin reparto automático
+    private void askAddress() {
+        String clienteId = FirebaseAuth.getInstance().getUid();
+        if (clienteId == null || checkingOut) return;
+        EditText etDireccion = new EditText(this);
+        etDireccion.setHint("Dirección de entrega");
+        new AlertDialog.Builder(this)
+                .setTitle("¿A dónde enviamos el pedido?")
+                .setView(etDireccion)
+                .setPositiveButton("Confirmar pedido", (dialog, which) -> {
+                    String direccion = etDireccion.getText().toString().trim();
+                    if (direccion.isEmpty()) {
+                        Toast.makeText(this, "Escriba la dirección de entrega", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    startPlacing();
+                    placeOrder(clienteId, new DeliveryLocation(direccion));
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    private void startPlacing() {
+        checkingOut = true;
+        fabCart.setEnabled(false);
+        fabCart.setText("Enviando pedido…");
+    }
+
+    private void placeOrder(String clienteId, @Nullable DeliveryLocation entrega) {
+        checkoutService.checkout(cart, clienteId, entrega, new CheckoutService.Callback() {
+            @Override
+            public void onOrderPlaced(String orderId) {
+                checkingOut = false;
+                fabCart.setEnabled(true);
+                cart.clear();
+                onCartChanged();
+                Toast.makeText(ClientDashboardActivity.this, "Pedido enviado", Toast.LENGTH_SHORT).show();
+                startActivity(new Intent(ClientDashboardActivity.this, OrderTrackingActivity.class)
+                        .putExtra(OrderTrackingActivity.EXTRA_ORDER_ID, orderId));
+            }
+
+            @Override
+            public void onOutOfStock(Map<String, Integer> disponibles) {
+                checkingOut = false;
+                fabCart.setEnabled(true);
+                // Se ajusta el carrito a lo que hay y el cliente decide si confirma de nuevo
+                StringBuilder sb = new StringBuilder("Sin stock suficiente:");
+                for (Map.Entry<String, Integer> e : disponibles.entrySet()) {
+                    sb.append('\n').append(nombreEnCarrito(e.getKey())).append(": quedan ").append(e.getValue());
+                    cart.setQuantity(e.getKey(), e.getValue());
+                }
+                onCartChanged();
+                new AlertDialog.Builder(ClientDashboardActivity.this)
+                        .setMessage(sb)
+                        .setPositiveButton("Ver carrito", (dialog, which) -> showCart())
+                        .setNegativeButton("Cerrar", null)
+                        .show();
+            }
+
+            @Override
+            public void onError(String mensaje) {
+                checkingOut = false;
+                fabCart.setEnabled(true);
+                updateCartFab();
+                Toast.makeText(ClientDashboardActivity.this, "No se pudo enviar el pedido: " + mensaje, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private String nombreEnCarrito(String productId) {
+        for (Cart.Line l : cart.getLines()) {
+            if (l.getProductId().equals(productId)) return l.getNombre();
+        }
+        return productId;
     }
 }
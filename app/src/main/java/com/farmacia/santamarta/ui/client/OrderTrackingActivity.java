@@ -5,6 +5,12 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.FragmentActivity;
 import com.farmacia.santamarta.R;
+import com.farmacia.santamarta.data.SubscriptionManager;
+import com.farmacia.santamarta.data.TrackingMapper;
+import com.farmacia.santamarta.metrics.FrameDropTracker;
+import com.farmacia.santamarta.metrics.Histogram;
+import com.farmacia.santamarta.metrics.Metrics;
+import com.farmacia.santamarta.models.TrackingPoint;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
@@ -20,11 +26,19 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 public class OrderTrackingActivity extends FragmentActivity implements OnMapReadyCallback {
+    public static final String EXTRA_ORDER_ID = "order_id";
+    // Antigüedad de cada posición al llegar, en hora del servidor
+    private static final Histogram RETRASO = Metrics.histogram("seguimiento.retraso");
     private GoogleMap mMap;
     private DatabaseReference mDatabase;
     private String orderId = "order_001"; // Ejemplo
     private Marker deliveryMarker;
+    private TrackingRenderer trackingRenderer;
+    private long serverOffset = 0;
     private TextView tvStatus;
+    private FrameDropTracker frameTracker;
+    // Los listeners se sueltan solos en segundo plano y al destruir la pantalla
+    private final SubscriptionManager subscriptions = SubscriptionManager.get();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -32,7 +46,10 @@ public class OrderTrackingActivity extends FragmentActivity implements OnMapRead
         setContentView(R.layout.activity_order_tracking);
 
         tvStatus = findViewById(R.id.tvTrackingStatus);
+        String extraOrderId = getIntent().getStringExtra(EXTRA_ORDER_ID);
+        if (extraOrderId != null) orderId = extraOrderId;
         mDatabase = FirebaseDatabase.getInstance().getReference();
+        frameTracker = new FrameDropTracker("seguimiento", FrameDropTracker.refreshRate(this));
 
         SupportMapFragment mapFragment = (SupportMapFragment) getSupportFragmentManager()
                 .findFragmentById(R.id.mapTracking);
@@ -44,21 +61,50 @@ public class OrderTrackingActivity extends FragmentActivity implements OnMapRead
     @Override
     public void onMapReady(GoogleMap googleMap) {
         mMap = googleMap;
+        listenToServerOffset();
         listenToDeliveryLocation();
         listenToOrderStatus();
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        frameTracker.start();
+        if (trackingRenderer != null) trackingRenderer.resume();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        frameTracker.stop();
+        if (trackingRenderer != null) trackingRenderer.pause();
+    }
+
+    // last_update viene en hora del servidor; la animación necesita la misma referencia
+    private void listenToServerOffset() {
+        subscriptions.observe(this, mDatabase.getRoot().child(".info/serverTimeOffset"), new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Long offset = snapshot.getValue(Long.class);
+                serverOffset = offset != null ? offset : 0;
+                if (trackingRenderer != null) trackingRenderer.setServerOffset(serverOffset);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {}
+        });
+    }
+
     private void listenToDeliveryLocation() {
-        mDatabase.child("tracking").child(orderId).addValueEventListener(new ValueEventListener() {
+        subscriptions.observe(this, mDatabase.child("tracking").child(orderId), new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (snapshot.exists()) {
-                    Double lat = snapshot.child("lat").getValue(Double.class);
-                    Double lng = snapshot.child("lng").getValue(Double.class);
-                    if (lat != null && lng != null) {
-                        LatLng deliveryPos = new LatLng(lat, lng);
-                        updateDeliveryMarker(deliveryPos);
+                TrackingPoint point = TrackingMapper.fromValue(orderId, snapshot.getValue());
+                if (point != null) {
+                    if (point.getLastUpdate() > 0) {
+                        RETRASO.recordMillis(System.currentTimeMillis() + serverOffset - point.getLastUpdate());
                     }
+                    updateDeliveryMarker(point);
                 }
             }
 
@@ -68,7 +114,7 @@ public class OrderTrackingActivity extends FragmentActivity implements OnMapRead
     }
 
     private void listenToOrderStatus() {
-        mDatabase.child("orders").child(orderId).child("estado").addValueEventListener(new ValueEventListener() {
+        subscriptions.observe(this, mDatabase.child("orders").child(orderId).child("estado"), new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
                 String status = snapshot.getValue(String.class);
@@ -82,15 +128,19 @@ public class OrderTrackingActivity extends FragmentActivity implements OnMapRead
         });
     }
 
-    private void updateDeliveryMarker(LatLng position) {
+    // El marcador no salta a cada posición: TrackingRenderer lo anima entre una y otra
+    private void updateDeliveryMarker(TrackingPoint point) {
         if (deliveryMarker == null) {
+            LatLng position = new LatLng(point.getLat(), point.getLng());
             deliveryMarker = mMap.addMarker(new MarkerOptions()
                     .position(position)
                     .title("Tu Repartidor")
+                    .flat(true)
                     .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE)));
             mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(position, 15f));
-        } else {
-            deliveryMarker.setPosition(position);
+            trackingRenderer = new TrackingRenderer(deliveryMarker);
+            trackingRenderer.setServerOffset(serverOffset);
         }
+        trackingRenderer.onFix(point);
     }
 }
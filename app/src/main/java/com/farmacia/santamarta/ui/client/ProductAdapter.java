@@ -1,53 +1,130 @@
 package com.farmacia.santamarta.ui.client;
 
+import android.util.LongSparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.farmacia.santamarta.R;
+import com.farmacia.santamarta.data.ProductSource;
 import com.farmacia.santamarta.models.Product;
+import java.text.NumberFormat;
 import java.util.List;
+import java.util.Locale;
 
 public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
-    private List<Product> productList;
+    // Los precios repetidos son comunes; más allá de este tamaño la caché se vacía
+    private static final int MAX_PRICE_CACHE = 2048;
+
+    private ProductSource source;
     private OnProductClickListener listener;
+    private final NumberFormat priceFormat = NumberFormat.getCurrencyInstance(new Locale("es", "CR"));
+    private final LongSparseArray<String> priceText = new LongSparseArray<>();
 
     public interface OnProductClickListener {
         void onAddToCart(Product product);
     }
 
     public ProductAdapter(List<Product> productList, OnProductClickListener listener) {
-        this.productList = productList;
+        this.source = ProductSource.of(productList);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
     @Override
     public ProductViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_product, parent, false);
-        return new ProductViewHolder(view);
+        ProductViewHolder holder = new ProductViewHolder(view);
+        // Un solo listener por ViewHolder; la posición se resuelve al hacer clic
+        holder.btnAddToCart.setOnClickListener(v -> {
+            int pos = holder.getAdapterPosition();
+            if (pos == RecyclerView.NO_POSITION || !source.isLoaded(pos)) return;
+            Product product = source.get(pos);
+            if (product != null) listener.onAddToCart(product);
+        });
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull ProductViewHolder holder, int position) {
-        Product product = productList.get(position);
-        holder.tvName.setText(product.getNombre());
-        holder.tvDescription.setText(product.getDescripcion());
-        holder.tvPrice.setText("₡" + product.getPrecio());
-        holder.btnAddToCart.setOnClickListener(v -> listener.onAddToCart(product));
+        if (!source.isLoaded(position)) {
+            // Página aún no descargada: se muestra la fila vacía hasta que llegue
+            holder.tvName.setText("Cargando...");
+            holder.tvDescription.setText("");
+            holder.tvPrice.setText("");
+            holder.btnAddToCart.setEnabled(false);
+            return;
+        }
+        // Se leen los campos de la fuente sin crear un Product por fila
+        holder.btnAddToCart.setEnabled(true);
+        holder.tvName.setText(source.getNombre(position));
+        holder.tvDescription.setText(source.getDescripcion(position));
+        holder.tvPrice.setText(formatPrice(source.getPrecio(position)));
     }
 
     @Override
     public int getItemCount() {
-        return productList.size();
+        return source.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        // Las filas sin cargar no tienen id; se les da uno negativo por posición
+        if (!source.isLoaded(position)) return -2 - position;
+        return stableId(source.getId(position));
+    }
+
+    public void setSource(ProductSource newSource) {
+        setSource(newSource, null);
     }
 
-    public void updateList(List<Product> newList) {
-        this.productList = newList;
-        notifyDataSetChanged();
+    /** Cambia la fuente avisando solo las diferencias; sin diff se repinta toda la lista. */
+    public void setSource(ProductSource newSource, @Nullable DiffUtil.DiffResult diff) {
+        this.source = newSource;
+        if (diff != null) {
+            diff.dispatchUpdatesTo(this);
+        } else {
+            notifyDataSetChanged();
+        }
+    }
+
+    String formatPrice(double precio) {
+        long clave = Double.doubleToLongBits(precio);
+        String texto = priceText.get(clave);
+        if (texto == null) {
+            if (priceText.size() >= MAX_PRICE_CACHE) priceText.clear();
+            texto = priceFormat.format(precio);
+            priceText.put(clave, texto);
+        }
+        return texto;
+    }
+
+    // Los códigos de barras numéricos sin ceros a la izquierda se usan tal cual;
+    // el resto se resume con FNV-1a de 64 bits
+    static long stableId(String id) {
+        if (id == null) return RecyclerView.NO_ID;
+        if (!id.isEmpty() && id.length() <= 18 && (id.charAt(0) != '0' || id.length() == 1)) {
+            long valor = 0;
+            int i = 0;
+            for (; i < id.length(); i++) {
+                char c = id.charAt(i);
+                if (c < '0' || c > '9') break;
+                valor = valor * 10 + (c - '0');
+            }
+            if (i == id.length()) return valor;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash & Long.MAX_VALUE;
     }
 
     static class ProductViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,63 @@
+package com.farmacia.santamarta.ui.client;
+
+import android.util.Log;
+import android.view.Choreographer;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.farmacia.santamarta.metrics.Counter;
+import com.farmacia.santamarta.metrics.Metrics;
+
+/**
+ * Cuenta los cuadros perdidos mientras la lista se desplaza. Un cuadro que
+ * tarda más de un intervalo de refresco cuenta como tantos perdidos como
+ * intervalos completos se saltó. Al detenerse el desplazamiento se registra
+ * el resumen en el log y se suma a `cuadros.lista_productos.*` en {@link Metrics}.
+ */
+public class ScrollJankMonitor extends RecyclerView.OnScrollListener implements Choreographer.FrameCallback {
+    private static final Counter TOTAL = Metrics.counter("cuadros.lista_productos.total");
+    private static final Counter PERDIDOS = Metrics.counter("cuadros.lista_productos.perdidos");
+    private final String tag;
+    private final long frameIntervalNanos;
+    private boolean activo = false;
+    private long ultimoCuadro;
+    private int cuadros;
+    private int perdidos;
+
+    public ScrollJankMonitor(String tag, float refreshRate) {
+        this.tag = tag;
+        this.frameIntervalNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState != RecyclerView.SCROLL_STATE_IDLE && !activo) {
+            activo = true;
+            ultimoCuadro = 0;
+            cuadros = 0;
+            perdidos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        } else if (newState == RecyclerView.SCROLL_STATE_IDLE && activo) {
+            activo = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+            if (cuadros > 0) {
+                TOTAL.add(cuadros);
+                PERDIDOS.add(perdidos);
+                Log.i(tag, "Scroll: " + cuadros + " cuadros, " + perdidos + " perdidos ("
+                        + (100 * perdidos / (cuadros + perdidos)) + "%) con "
+                        + recyclerView.getAdapter().getItemCount() + " filas");
+            }
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!activo) return;
+        if (ultimoCuadro != 0) {
+            long saltados = (frameTimeNanos - ultimoCuadro) / frameIntervalNanos - 1;
+            if (saltados > 0) perdidos += saltados;
+            cuadros++;
+        }
+        ultimoCuadro = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
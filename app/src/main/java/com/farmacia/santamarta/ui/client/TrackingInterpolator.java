@@ -0,0 +1,102 @@
+package com.farmacia.santamarta.ui.client;
+
+/**
+ * Calcula dónde dibujar al repartidor entre dos posiciones recibidas.
+ * A partir de la última posición se proyecta la velocidad medida entre las
+ * dos últimas (con {@code last_update}); cuando llega una posición nueva no
+ * se salta a ella, sino que se pasa de la trayectoria vieja a la nueva en
+ * {@link #BLEND_MS}. Los tiempos son milisegundos del reloj del servidor.
+ */
+public class TrackingInterpolator {
+    static final long BLEND_MS = 1_000;
+    // No se proyecta más allá de esto: si no llegan posiciones el marcador se detiene
+    static final long MAX_EXTRAPOLATION_MS = 10_000;
+    // Entre posiciones más separadas no se calcula velocidad (p. ej. tras un corte de red)
+    private static final long MAX_GAP_MS = 60_000;
+
+    private boolean hayPosicion = false;
+    // Trayectoria actual: posición, hora y velocidad en grados por milisegundo
+    private double lat, lng, vLat, vLng;
+    private long tiempo, alcance;
+    // Trayectoria anterior, de la que se parte durante la transición
+    private double prevLat, prevLng, prevVLat, prevVLng;
+    private long prevTiempo, prevAlcance;
+    private long inicioTransicion = -BLEND_MS;
+
+    /** Registra una posición; las que llegan fuera de orden se ignoran. */
+    public void addFix(double fixLat, double fixLng, long fixTime, long now) {
+        if (!hayPosicion) {
+            lat = fixLat;
+            lng = fixLng;
+            tiempo = fixTime;
+            hayPosicion = true;
+            return;
+        }
+        if (fixTime <= tiempo) return;
+
+        prevLat = lat;
+        prevLng = lng;
+        prevVLat = vLat;
+        prevVLng = vLng;
+        prevTiempo = tiempo;
+        prevAlcance = alcance;
+        inicioTransicion = now;
+
+        long dt = fixTime - tiempo;
+        if (dt <= MAX_GAP_MS) {
+            vLat = (fixLat - lat) / dt;
+            vLng = (fixLng - lng) / dt;
+            // Medio intervalo extra cubre la demora de red y el retraso de la siguiente posición
+            alcance = Math.min(dt + dt / 2, MAX_EXTRAPOLATION_MS);
+        } else {
+            vLat = 0;
+            vLng = 0;
+            alcance = 0;
+        }
+        lat = fixLat;
+        lng = fixLng;
+        tiempo = fixTime;
+    }
+
+    public boolean hasFix() {
+        return hayPosicion;
+    }
+
+    /** Escribe en {@code out} la latitud y longitud a dibujar en {@code now}. */
+    public void position(long now, double[] out) {
+        proyectar(lat, lng, vLat, vLng, tiempo, alcance, now, out);
+        long t = now - inicioTransicion;
+        if (t >= 0 && t < BLEND_MS) {
+            double nuevaLat = out[0];
+            double nuevaLng = out[1];
+            proyectar(prevLat, prevLng, prevVLat, prevVLng, prevTiempo, prevAlcance, now, out);
+            double a = (double) t / BLEND_MS;
+            a = a * a * (3 - 2 * a);
+            out[0] += (nuevaLat - out[0]) * a;
+            out[1] += (nuevaLng - out[1]) * a;
+        }
+    }
+
+    /** Rumbo en grados desde el norte, para rotar el marcador. */
+    public float bearing() {
+        double este = vLng * Math.cos(Math.toRadians(lat));
+        return (float) ((Math.toDegrees(Math.atan2(este, vLat)) + 360) % 360);
+    }
+
+    public boolean isMoving() {
+        return vLat != 0 || vLng != 0;
+    }
+
+    /** true si el marcador ya no cambia hasta la próxima posición: se pueden pausar los cuadros. */
+    public boolean isSettled(long now) {
+        if (now - inicioTransicion < BLEND_MS) return false;
+        return !isMoving() || now - tiempo >= alcance;
+    }
+
+    private static void proyectar(double lat, double lng, double vLat, double vLng, long tiempo,
+                                  long alcance, long now, double[] out) {
+        long dt = Math.max(0, Math.min(now - tiempo, alcance));
+        out[0] = lat + vLat * dt;
+        out[1] = lng + vLng * dt;
+    }
+}
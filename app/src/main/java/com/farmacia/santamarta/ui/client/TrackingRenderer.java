@@ -0,0 +1,71 @@
+package com.farmacia.santamarta.ui.client;
+
+import android.view.Choreographer;
+import com.farmacia.santamarta.models.TrackingPoint;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+
+/**
+ * Mueve el marcador del repartidor en cada cuadro de pantalla con la
+ * posición que calcula {@link TrackingInterpolator}. Cuando el marcador ya
+ * no cambia deja de pedir cuadros hasta que llega otra posición.
+ */
+public class TrackingRenderer implements Choreographer.FrameCallback {
+    private final Marker marker;
+    private final TrackingInterpolator interpolator = new TrackingInterpolator();
+    private final double[] posicion = new double[2];
+    // Diferencia con el reloj del servidor (`.info/serverTimeOffset`), en el que viene last_update
+    private long serverOffset = 0;
+    private boolean animando = false;
+    private boolean detenido = false;
+
+    public TrackingRenderer(Marker marker) {
+        this.marker = marker;
+    }
+
+    public void setServerOffset(long serverOffset) {
+        this.serverOffset = serverOffset;
+    }
+
+    public void onFix(TrackingPoint point) {
+        // Sin last_update no hay con qué medir la velocidad: se toma la hora de llegada
+        long now = serverNow();
+        long fixTime = point.getLastUpdate() > 0 ? point.getLastUpdate() : now;
+        interpolator.addFix(point.getLat(), point.getLng(), fixTime, now);
+        // Detenido fuera de pantalla: solo el ciclo de vida vuelve a animar
+        if (!detenido) resume();
+    }
+
+    public void resume() {
+        detenido = false;
+        if (animando || !interpolator.hasFix()) return;
+        animando = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /** Deja de animar; se llama al salir de la pantalla. */
+    public void pause() {
+        detenido = true;
+        animando = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (detenido) return;
+        long now = serverNow();
+        interpolator.position(now, posicion);
+        marker.setPosition(new LatLng(posicion[0], posicion[1]));
+        if (interpolator.isMoving()) marker.setRotation(interpolator.bearing());
+
+        if (interpolator.isSettled(now)) {
+            animando = false;
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    private long serverNow() {
+        return System.currentTimeMillis() + serverOffset;
+    }
+}
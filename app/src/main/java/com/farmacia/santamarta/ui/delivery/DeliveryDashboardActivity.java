@@ -8,38 +8,139 @@ import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
 import androidx.fragment.app.FragmentActivity;
 import com.farmacia.santamarta.R;
+import com.farmacia.santamarta.data.DispatchService;
+import com.farmacia.santamarta.data.LocationPublisher;
+import com.farmacia.santamarta.data.NearbyOrdersWatcher;
+import com.farmacia.santamarta.data.OrderMapper;
+import com.farmacia.santamarta.data.OrderRepository;
+import com.farmacia.santamarta.data.RiderSearch;
+import com.farmacia.santamarta.data.RoutePlanner;
+import com.farmacia.santamarta.metrics.FrameDropTracker;
+import com.farmacia.santamarta.metrics.Histogram;
+import com.farmacia.santamarta.metrics.Metrics;
+import com.farmacia.santamarta.models.DeliveryLocation;
+import com.farmacia.santamarta.models.Order;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
 import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
-import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.LatLng;
-import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class DeliveryDashboardActivity extends FragmentActivity implements OnMapReadyCallback {
+    // Tiempo máximo del planificador por cada replanificación (corre fuera del hilo principal)
+    private static final long ROUTE_BUDGET_NS = 10_000_000L;
+    private static final Histogram RUTA = Metrics.histogram("reparto.ruta");
     private GoogleMap mMap;
+    private MapOverlayManager mapOverlay;
     private FusedLocationProviderClient fusedLocationClient;
     private DatabaseReference mDatabase;
-    private String currentOrderId = "order_001"; // Ejemplo
-    private String deliveryId = "delivery_001"; // Ejemplo
-    private Button btnUpdateStatus;
+    // Próxima entrega de la ruta; null si no tiene pedidos asignados
+    @Nullable private String currentOrderId;
+    private String deliveryId = "delivery_001"; // Ejemplo, si no hay sesión
+    // Pedidos asignados (orders_por_repartidor) con su estado, en el orden en que llegaron
+    private final Map<String, String> assignedOrders = new LinkedHashMap<>();
+    // Punto de entrega de cada pedido asignado, leído una vez
+    private final Map<String, DeliveryLocation> destinations = new HashMap<>();
+    // Pedidos en el orden de visita calculado por RoutePlanner
+    private List<String> route = new ArrayList<>();
+    private final ExecutorService routeExecutor = Executors.newSingleThreadExecutor();
+    // Cada replanificación invalida el resultado de las anteriores que sigan en curso
+    private int routeGeneration = 0;
+    private Button btnUpdateStatus, btnAcceptNearby;
+    private TextView tvOrderTitle, tvCustomerAddress, tvNearbyOrders;
+    private LocationPublisher locationPublisher;
+    private DispatchService dispatchService;
+    private NearbyOrdersWatcher nearbyOrders;
+    private OrderRepository orderRepository;
+    private OrderRepository.Subscription assignedSubscription;
+    @Nullable private String orderEstado;
+    private Location lastLocation;
+    // Intervalo del LocationRequest activo; 0 si no se están pidiendo posiciones
+    private long currentInterval = 0;
+    private FrameDropTracker frameTracker;
+
+    private final LocationCallback locationCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult locationResult) {
+            // Si llegan varias posiciones juntas solo importa la última
+            Location location = locationResult.getLastLocation();
+            if (location == null) return;
+            boolean primera = lastLocation == null;
+            lastLocation = location;
+            locationPublisher.onLocation(location);
+            if (primera) replanRoute();
+            nearbyOrders.onLocation(location.getLatitude(), location.getLongitude());
+            updateMapMarker(location);
+            if (LocationPublisher.intervalFor(location, orderEstado) != currentInterval) {
+                startLocationUpdates();
+            }
+        }
+    };
+
+    // El índice trae el estado de cada pedido, así que no hace falta escuchar orders/{id}
+    private final OrderRepository.IndexListener assignedListener = new OrderRepository.IndexListener() {
+        @Override
+        public void onOrderAdded(String orderId, Object valor) {
+            assignedOrders.put(orderId, String.valueOf(valor));
+            loadDestination(orderId);
+            onAssignedChanged();
+        }
+
+        @Override
+        public void onOrderChanged(String orderId, Object valor) {
+            assignedOrders.put(orderId, String.valueOf(valor));
+            if (orderId.equals(currentOrderId)) setCurrentOrder(orderId);
+        }
+
+        @Override
+        public void onOrderRemoved(String orderId) {
+            assignedOrders.remove(orderId);
+            destinations.remove(orderId);
+            onAssignedChanged();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_delivery_dashboard);
 
+        String uid = FirebaseAuth.getInstance().getUid();
+        if (uid != null) deliveryId = uid;
+        tvOrderTitle = findViewById(R.id.tvOrderTitle);
+        tvCustomerAddress = findViewById(R.id.tvCustomerAddress);
+        tvNearbyOrders = findViewById(R.id.tvNearbyOrders);
+
         mDatabase = FirebaseDatabase.getInstance().getReference();
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        locationPublisher = new LocationPublisher(mDatabase, deliveryId, null);
+        locationPublisher.start();
+        locationPublisher.setAvailability(true, 0);
+        dispatchService = new DispatchService(mDatabase);
+        nearbyOrders = new NearbyOrdersWatcher(mDatabase, count -> updateNearbyUi());
+        orderRepository = new OrderRepository(mDatabase);
+        assignedSubscription = orderRepository.watchByRider(deliveryId, assignedListener);
 
         SupportMapFragment mapFragment = (SupportMapFragment) getSupportFragmentManager()
                 .findFragmentById(R.id.map);
@@ -48,53 +149,229 @@ public class DeliveryDashboardActivity extends FragmentActivity implements OnMap
         }
 
         btnUpdateStatus = findViewById(R.id.btnUpdateStatus);
-        btnUpdateStatus.setOnClickListener(v -> updateOrderStatus("ENTREGADO"));
+        btnUpdateStatus.setOnClickListener(v -> advanceOrder());
+        btnAcceptNearby = findViewById(R.id.btnAcceptNearby);
+        btnAcceptNearby.setOnClickListener(v -> acceptNearestOrder());
+        setCurrentOrder(null);
+        updateNearbyUi();
+        frameTracker = new FrameDropTracker("reparto", FrameDropTracker.refreshRate(this));
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        frameTracker.start();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        frameTracker.stop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        assignedSubscription.remove();
+        nearbyOrders.release();
+        routeExecutor.shutdownNow();
+        fusedLocationClient.removeLocationUpdates(locationCallback);
+        locationPublisher.stop();
+        if (mapOverlay != null) mapOverlay.release();
+    }
+
+    // Cambia el pedido que se muestra y que se marca al entregar
+    private void setCurrentOrder(@Nullable String orderId) {
+        String estado = orderId != null ? assignedOrders.get(orderId) : null;
+        boolean cambio = orderId == null ? currentOrderId != null : !orderId.equals(currentOrderId);
+        cambio |= estado == null ? orderEstado != null : !estado.equals(orderEstado);
+        currentOrderId = orderId;
+        orderEstado = estado;
+        if (orderId == null) {
+            tvOrderTitle.setText("Sin pedidos asignados");
+            tvCustomerAddress.setText("");
+        } else {
+            int paradas = route.size();
+            tvOrderTitle.setText("Pedido #" + orderId + (paradas > 1 ? " (1 de " + paradas + ")" : ""));
+            DeliveryLocation destino = destinations.get(orderId);
+            tvCustomerAddress.setText(destino != null ? "Dirección: " + destino.getDireccionTexto() : "");
+        }
+        // Primero se recoge en la farmacia y después se entrega
+        btnUpdateStatus.setText(Order.EN_CAMINO.equals(estado) ? "Marcar como Entregado" : "Recoger pedido");
+        btnUpdateStatus.setEnabled(orderId != null);
+        if (cambio && mMap != null) startLocationUpdates();
+    }
+
+    private void onAssignedChanged() {
+        // La carga viaja en riders_geo para que el reparto prefiera a quien lleva menos
+        locationPublisher.setAvailability(assignedOrders.size() < RiderSearch.MAX_CARGA, assignedOrders.size());
+        // Todos los clientes con pedido en esta ruta ven al repartidor
+        locationPublisher.setOrderIds(assignedOrders.keySet());
+        updateNearbyUi();
+        replanRoute();
+    }
+
+    /**
+     * Recalcula el orden de visita desde la posición actual. Se llama cuando
+     * cambian los pedidos asignados o llega un punto de entrega, no con cada
+     * posición: la ruta no cambia mientras el repartidor la sigue.
+     */
+    private void replanRoute() {
+        int generacion = ++routeGeneration;
+        List<String> conDestino = new ArrayList<>();
+        List<String> sinDestino = new ArrayList<>();
+        for (String id : assignedOrders.keySet()) {
+            DeliveryLocation d = destinations.get(id);
+            (d != null && d.hasCoordinates() ? conDestino : sinDestino).add(id);
+        }
+        if (lastLocation == null || conDestino.size() < 2) {
+            // Con una sola parada (o sin posición todavía) no hay nada que ordenar
+            List<String> orden = new ArrayList<>(conDestino);
+            orden.addAll(sinDestino);
+            showRoute(orden);
+            return;
+        }
+        double[] lats = new double[conDestino.size()];
+        double[] lngs = new double[conDestino.size()];
+        for (int i = 0; i < lats.length; i++) {
+            DeliveryLocation d = destinations.get(conDestino.get(i));
+            lats[i] = d.getLat();
+            lngs[i] = d.getLng();
+        }
+        double lat = lastLocation.getLatitude(), lng = lastLocation.getLongitude();
+        routeExecutor.execute(() -> {
+            long inicio = System.nanoTime();
+            int[] visita = RoutePlanner.plan(lat, lng, lats, lngs, ROUTE_BUDGET_NS);
+            RUTA.recordSince(inicio);
+            List<String> orden = new ArrayList<>(visita.length + sinDestino.size());
+            for (int i : visita) orden.add(conDestino.get(i));
+            // Los pedidos sin punto de entrega van al final, en el orden en que llegaron
+            orden.addAll(sinDestino);
+            runOnUiThread(() -> {
+                if (generacion == routeGeneration) showRoute(orden);
+            });
+        });
+    }
+
+    private void showRoute(List<String> orden) {
+        route = orden;
+        if (mapOverlay != null) {
+            List<LatLng> paradas = new ArrayList<>(orden.size());
+            List<String> titulos = new ArrayList<>(orden.size());
+            for (String id : orden) {
+                DeliveryLocation d = destinations.get(id);
+                if (d == null || !d.hasCoordinates()) continue;
+                paradas.add(new LatLng(d.getLat(), d.getLng()));
+                titulos.add(d.getDireccionTexto() != null ? d.getDireccionTexto() : "Pedido #" + id);
+            }
+            mapOverlay.setStops(paradas, titulos);
+        }
+        // La primera parada de la ruta es la próxima entrega
+        setCurrentOrder(orden.isEmpty() ? null : orden.get(0));
+    }
+
+    private void updateNearbyUi() {
+        int cerca = nearbyOrders.count();
+        tvNearbyOrders.setText(cerca == 0 ? "No hay pedidos pendientes cerca" : "Pedidos pendientes cerca: " + cerca);
+        btnAcceptNearby.setEnabled(cerca > 0 && assignedOrders.size() < RiderSearch.MAX_CARGA);
+    }
+
+    private void acceptNearestOrder() {
+        if (lastLocation == null) return;
+        NearbyOrdersWatcher.NearbyOrder pedido = nearbyOrders.nearest(lastLocation.getLatitude(), lastLocation.getLongitude());
+        if (pedido == null) return;
+        btnAcceptNearby.setEnabled(false);
+        // Con la celda de su entrada en riders_geo, la asignación también sube su carga
+        String celda = locationPublisher.getPublishedCell();
+        dispatchService.assign(pedido.orderId, deliveryId, celda, new DispatchService.Callback() {
+            @Override
+            public void onAssigned(@Nullable String riderId) {
+                Toast.makeText(DeliveryDashboardActivity.this, "Pedido aceptado", Toast.LENGTH_SHORT).show();
+                updateNearbyUi();
+            }
+
+            @Override
+            public void onError(String mensaje) {
+                Toast.makeText(DeliveryDashboardActivity.this, mensaje, Toast.LENGTH_SHORT).show();
+                updateNearbyUi();
+            }
+        });
     }
 
     @Override
     public void onMapReady(GoogleMap googleMap) {
         mMap = googleMap;
+        mapOverlay = new MapOverlayManager(mMap);
+        showRoute(route);
         startLocationUpdates();
     }
 
+    // Se vuelve a llamar cuando cambia la velocidad o el estado del pedido para ajustar el intervalo
     private void startLocationUpdates() {
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
             ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.ACCESS_FINE_LOCATION}, 1);
             return;
         }
 
+        long interval = LocationPublisher.intervalFor(lastLocation, orderEstado);
+        if (interval == currentInterval) return;
+        currentInterval = interval;
+        if (interval == 0) {
+            // Pedido cerrado: no hace falta seguir gastando batería en el GPS
+            fusedLocationClient.removeLocationUpdates(locationCallback);
+            return;
+        }
+
+        // Sin filtro de distancia: LocationThrottle descarta las cercanas y aun así
+        // publica cada MAX_SILENCE_MS aunque el repartidor no se mueva
         LocationRequest locationRequest = LocationRequest.create()
-                .setInterval(5000)
-                .setFastestInterval(2000)
-                .setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
+                .setInterval(interval)
+                .setFastestInterval(interval / 2)
+                .setPriority(Order.EN_CAMINO.equals(orderEstado)
+                        ? LocationRequest.PRIORITY_HIGH_ACCURACY
+                        : LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
 
-        fusedLocationClient.requestLocationUpdates(locationRequest, new LocationCallback() {
-            @Override
-            public void onLocationResult(@NonNull LocationResult locationResult) {
-                for (Location location : locationResult.getLocations()) {
-                    updateLocationInFirebase(location);
-                    updateMapMarker(location);
-                }
-            }
-        }, getMainLooper());
+        // Reemplaza la solicitud anterior registrada con el mismo callback
+        fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, getMainLooper());
     }
 
-    private void updateLocationInFirebase(Location location) {
-        LatLng latLng = new LatLng(location.getLatitude(), location.getLongitude());
-        mDatabase.child("tracking").child(currentOrderId).child("lat").setValue(latLng.latitude);
-        mDatabase.child("tracking").child(currentOrderId).child("lng").setValue(latLng.longitude);
-        mDatabase.child("tracking").child(currentOrderId).child("last_update").setValue(System.currentTimeMillis());
+    private void updateMapMarker(Location location) {
+        mapOverlay.updateRider(new LatLng(location.getLatitude(), location.getLongitude()), location.getBearing());
     }
 
-    private void updateMapMarker(Location location) {
-        LatLng currentPos = new LatLng(location.getLatitude(), location.getLongitude());
-        mMap.clear();
-        mMap.addMarker(new MarkerOptions().position(currentPos).title("Tu ubicación"));
-        mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(currentPos, 15f));
+    private void loadDestination(String orderId) {
+        mDatabase.child("orders").child(orderId).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Order order = OrderMapper.fromValue(snapshot.getKey(), snapshot.getValue());
+                // Si mientras tanto se quitó de los asignados, esta respuesta ya no sirve
+                if (!assignedOrders.containsKey(orderId) || order == null || order.getUbicacionEntrega() == null) return;
+                destinations.put(orderId, order.getUbicacionEntrega());
+                replanRoute();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {}
+        });
     }
 
-    private void updateOrderStatus(String status) {
-        mDatabase.child("orders").child(currentOrderId).child("estado").setValue(status)
-                .addOnSuccessListener(aVoid -> Toast.makeText(this, "Pedido actualizado a: " + status, Toast.LENGTH_SHORT).show());
+    // Pasa el pedido actual al siguiente estado; el repositorio actualiza también sus índices
+    private void advanceOrder() {
+        if (currentOrderId == null) return;
+        String nuevo = Order.EN_CAMINO.equals(orderEstado) ? Order.ENTREGADO : Order.EN_CAMINO;
+        btnUpdateStatus.setEnabled(false);
+        orderRepository.transition(currentOrderId, nuevo, new OrderRepository.Callback() {
+            @Override
+            public void onSuccess() {
+                Toast.makeText(DeliveryDashboardActivity.this, "Pedido actualizado a: " + nuevo, Toast.LENGTH_SHORT).show();
+                btnUpdateStatus.setEnabled(currentOrderId != null);
+            }
+
+            @Override
+            public void onError(String mensaje) {
+                Toast.makeText(DeliveryDashboardActivity.this, mensaje, Toast.LENGTH_SHORT).show();
+                btnUpdateStatus.setEnabled(currentOrderId != null);
+            }
+        });
     }
 }
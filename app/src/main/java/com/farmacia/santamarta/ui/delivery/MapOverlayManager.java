@@ -0,0 +1,141 @@
+package com.farmacia.santamarta.ui.delivery;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.CameraUpdateFactory;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dibuja sobre el mapa del repartidor los marcadores de su posición y de
+ * las entregas, y la línea que las recorre en orden. Se crean una vez y se
+ * actualizan en su lugar. Las posiciones que llegan en ráfaga se juntan en
+ * un solo dibujo por cuadro, y la cámara se mueve como mucho una vez por
+ * {@link #CAMERA_INTERVAL_MS} y solo si el repartidor sale de la vista.
+ */
+public class MapOverlayManager implements Choreographer.FrameCallback {
+    private static final long CAMERA_INTERVAL_MS = 1_000;
+    private static final int CAMERA_ANIMATION_MS = 300;
+    private static final float ZOOM = 15f;
+
+    private final GoogleMap map;
+    @Nullable private Marker riderMarker;
+    // Un marcador por parada, en el orden de la ruta; se reutilizan al replanificar
+    private final List<Marker> stopMarkers = new ArrayList<>();
+    @Nullable private Polyline route;
+    private final List<LatLng> routePoints = new ArrayList<>();
+
+    // Última posición recibida y todavía no dibujada
+    @Nullable private LatLng pendingRider;
+    private float pendingBearing;
+    private boolean renderScheduled = false;
+    private long lastCameraMove = 0;
+    private boolean cameraAnimating = false;
+
+    private final GoogleMap.CancelableCallback cameraCallback = new GoogleMap.CancelableCallback() {
+        @Override
+        public void onFinish() {
+            cameraAnimating = false;
+        }
+
+        @Override
+        public void onCancel() {
+            cameraAnimating = false;
+        }
+    };
+
+    public MapOverlayManager(GoogleMap map) {
+        this.map = map;
+    }
+
+    /** Paradas de entrega en el orden de visita; con una lista vacía se quitan la ruta y los marcadores. */
+    public void setStops(List<LatLng> stops, List<String> titulos) {
+        for (int i = 0; i < stops.size(); i++) {
+            String titulo = (i + 1) + ". " + titulos.get(i);
+            if (i < stopMarkers.size()) {
+                Marker marker = stopMarkers.get(i);
+                marker.setPosition(stops.get(i));
+                marker.setTitle(titulo);
+            } else {
+                stopMarkers.add(map.addMarker(new MarkerOptions().position(stops.get(i)).title(titulo)
+                        .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_RED))));
+            }
+        }
+        while (stopMarkers.size() > stops.size()) {
+            stopMarkers.remove(stopMarkers.size() - 1).remove();
+        }
+        if (stops.isEmpty() && route != null) {
+            route.remove();
+            route = null;
+        }
+        updateRoute();
+    }
+
+    /** Puede llamarse varias veces por cuadro; solo se dibuja la última posición. */
+    public void updateRider(LatLng position, float bearing) {
+        pendingRider = position;
+        pendingBearing = bearing;
+        if (!renderScheduled) {
+            renderScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public void release() {
+        Choreographer.getInstance().removeFrameCallback(this);
+        renderScheduled = false;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        renderScheduled = false;
+        LatLng position = pendingRider;
+        if (position == null) return;
+        pendingRider = null;
+
+        if (riderMarker == null) {
+            riderMarker = map.addMarker(new MarkerOptions().position(position).title("Tu ubicación").flat(true));
+            map.moveCamera(CameraUpdateFactory.newLatLngZoom(position, ZOOM));
+            lastCameraMove = SystemClock.uptimeMillis();
+        } else {
+            riderMarker.setPosition(position);
+            moveCameraIfNeeded(position);
+        }
+        riderMarker.setRotation(pendingBearing);
+        updateRoute();
+    }
+
+    private void moveCameraIfNeeded(LatLng position) {
+        long now = SystemClock.uptimeMillis();
+        if (cameraAnimating || now - lastCameraMove < CAMERA_INTERVAL_MS) return;
+        LatLngBounds visible = map.getProjection().getVisibleRegion().latLngBounds;
+        if (visible.contains(position)) return;
+        lastCameraMove = now;
+        cameraAnimating = true;
+        map.animateCamera(CameraUpdateFactory.newLatLng(position), CAMERA_ANIMATION_MS, cameraCallback);
+    }
+
+    // La línea reutiliza la misma lista de puntos; no se crea otra Polyline
+    private void updateRoute() {
+        if (riderMarker == null || stopMarkers.isEmpty()) return;
+        routePoints.clear();
+        routePoints.add(riderMarker.getPosition());
+        for (Marker stop : stopMarkers) {
+            routePoints.add(stop.getPosition());
+        }
+        if (route == null) {
+            route = map.addPolyline(new PolylineOptions().addAll(routePoints).width(8f).color(0xFF1976D2));
+        } else {
+            route.setPoints(routePoints);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.farmacia.santamarta.ui.admin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class ScanConsensusTest {
+
+    @Test
+    public void aceptaDespuesDeLosCuadrosRequeridos() {
+        ScanConsensus consenso = new ScanConsensus(3);
+        assertNull(consenso.offer("123"));
+        assertNull(consenso.offer("123"));
+        assertEquals("123", consenso.offer("123"));
+    }
+
+    @Test
+    public void unaLecturaDistintaReiniciaLaCuenta() {
+        ScanConsensus consenso = new ScanConsensus(2);
+        assertNull(consenso.offer("123"));
+        assertNull(consenso.offer("999"));
+        assertNull(consenso.offer("123"));
+        assertEquals("123", consenso.offer("123"));
+    }
+
+    @Test
+    public void toleraUnosCuadrosVacios() {
+        ScanConsensus consenso = new ScanConsensus(2);
+        assertNull(consenso.offer("123"));
+        assertNull(consenso.offer(null));
+        assertNull(consenso.offer(null));
+        assertEquals("123", consenso.offer("123"));
+    }
+
+    @Test
+    public void demasiadosCuadrosVaciosReinicianLaCuenta() {
+        ScanConsensus consenso = new ScanConsensus(2);
+        assertNull(consenso.offer("123"));
+        for (int i = 0; i < 3; i++) assertNull(consenso.offer(null));
+        assertNull(consenso.offer("123"));
+        assertEquals("123", consenso.offer("123"));
+    }
+
+    @Test
+    public void noRepiteElCodigoMientrasSigueALaVista() {
+        ScanConsensus consenso = new ScanConsensus(1);
+        assertEquals("123", consenso.offer("123"));
+        for (int i = 0; i < 20; i++) assertNull(consenso.offer("123"));
+    }
+
+    @Test
+    public void vuelveAAceptarloTrasDejarDeVerlo() {
+        ScanConsensus consenso = new ScanConsensus(1);
+        assertEquals("123", consenso.offer("123"));
+        for (int i = 0; i < 10; i++) assertNull(consenso.offer(null));
+        assertEquals("123", consenso.offer("123"));
+    }
+
+    @Test
+    public void resetOlvidaElCodigoAceptado() {
+        ScanConsensus consenso = new ScanConsensus(1);
+        assertEquals("123", consenso.offer("123"));
+        consenso.reset();
+        assertEquals("123", consenso.offer("123"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.farmacia.santamarta.bench;
+
+import com.farmacia.santamarta.data.Cart;
+import com.farmacia.santamarta.models.OrderItem;
+import com.farmacia.santamarta.models.Product;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Operaciones del carrito ({@link Cart}) con carritos de distinto tamaño:
+ * agregar con el botón de la lista, cambiar cantidades, total y armado del
+ * pedido al confirmar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CartBenchmark {
+    @Param({"5", "50"})
+    int lines;
+
+    private List<Product> products;
+    private Cart cart;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = Fixtures.products(10_000);
+    }
+
+    // Cada iteración parte del mismo carrito; addExisting no deja crecer las cantidades sin límite
+    @Setup(Level.Iteration)
+    public void fillCart() {
+        cart = new Cart();
+        for (int i = 0; i < lines; i++) cart.add(products.get(i), 1 + i % 3);
+    }
+
+    /** Tocar "agregar" sobre un producto que ya está en el carrito. */
+    @Benchmark
+    public int addExisting() {
+        return cart.add(products.get(siguiente++ % lines), 1);
+    }
+
+    @Benchmark
+    public int setQuantity() {
+        int i = siguiente++;
+        return cart.setQuantity(products.get(i % lines).getId(), 1 + i % 5);
+    }
+
+    @Benchmark
+    public double total() {
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public List<OrderItem> toOrderItems() {
+        return cart.toOrderItems();
+    }
+
+    /** Armar un carrito desde cero y confirmarlo, como en una compra completa. */
+    @Benchmark
+    public List<OrderItem> fillAndCheckout() {
+        Cart nuevo = new Cart();
+        for (int i = 0; i < lines; i++) nuevo.add(products.get((siguiente + i * 37) % products.size()), 1 + i % 3);
+        siguiente++;
+        nuevo.getTotal();
+        return nuevo.toOrderItems();
+    }
+}
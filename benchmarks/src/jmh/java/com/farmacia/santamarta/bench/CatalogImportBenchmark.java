@@ -0,0 +1,117 @@
+package com.farmacia.santamarta.bench;
+
+import com.farmacia.santamarta.data.io.CatalogExporter;
+import com.farmacia.santamarta.data.io.CatalogImporter;
+import com.farmacia.santamarta.data.io.CsvRecordReader;
+import com.farmacia.santamarta.data.io.CsvRecordWriter;
+import com.farmacia.santamarta.data.io.ImportCheckpoint;
+import com.farmacia.santamarta.data.io.ImportReport;
+import com.farmacia.santamarta.data.io.JsonRecordReader;
+import com.farmacia.santamarta.data.io.RecordReader;
+import com.farmacia.santamarta.models.Product;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Importación y exportación del catálogo ({@link CatalogImporter},
+ * {@link CatalogExporter}) sin red: los lotes van a un destino que solo
+ * cuenta y el avance se guarda en un directorio temporal como en el
+ * teléfono. Mide el análisis del archivo, la validación y el armado de los
+ * lotes. 50,000 filas es el tamaño de archivo que se usó para medir la
+ * importación: {@code ./gradlew :benchmarks:jmh -Pjmh.includes=CatalogImport}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogImportBenchmark {
+    @Param({"10000", "50000", "100000"})
+    int size;
+
+    private List<Product> products;
+    private final Map<String, Integer> posiciones = new HashMap<>();
+    private String csv;
+    private String json;
+    private File dir;
+    private ImportCheckpoint checkpoint;
+    private long escritos;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        products = Fixtures.products(size);
+        for (int i = 0; i < size; i++) posiciones.put(products.get(i).getId(), i);
+        csv = Fixtures.csv(products);
+        json = Fixtures.json(products);
+        dir = Files.createTempDirectory("catalog-import").toFile();
+        checkpoint = new ImportCheckpoint(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        checkpoint.clear();
+        dir.delete();
+    }
+
+    @Benchmark
+    public ImportReport importCsv() throws IOException {
+        return importar(new CsvRecordReader(new StringReader(csv)));
+    }
+
+    @Benchmark
+    public ImportReport importJson() throws IOException {
+        return importar(new JsonRecordReader(new StringReader(json)));
+    }
+
+    @Benchmark
+    public long exportCsv() throws IOException {
+        CatalogExporter exporter = new CatalogExporter((afterKey, limit) -> {
+            // La lista está en orden de clave: la página siguiente empieza después de afterKey
+            int desde = afterKey == null ? 0 : posiciones.get(afterKey) + 1;
+            List<Product> pagina = products.subList(Math.min(desde, products.size()),
+                    Math.min(desde + limit, products.size()));
+            return new CatalogExporter.Page(pagina, pagina.size(),
+                    pagina.isEmpty() ? null : pagina.get(pagina.size() - 1).getId());
+        });
+        return exporter.run(new CsvRecordWriter(new NullWriter()), exportados -> {});
+    }
+
+    private ImportReport importar(RecordReader reader) throws IOException {
+        // El archivo se importa completo cada vez: al terminar, run() borra el avance guardado
+        CatalogImporter importer = new CatalogImporter(updates -> escritos += updates.size(), 0L);
+        try {
+            return importer.run(reader, checkpoint, "bench#" + size, report -> {});
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static final class NullWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {}
+
+        @Override
+        public void write(String str, int off, int len) {}
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,105 @@
+package com.farmacia.santamarta.bench;
+
+import com.farmacia.santamarta.data.Geohash;
+import com.farmacia.santamarta.data.RiderSearch;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Búsqueda del repartidor más cercano para un pedido: por anillos de
+ * celdas sobre `riders_geo` en memoria ({@link RiderSearch}, lo que hace
+ * DispatchService con Firebase) contra recorrer todos los repartidores.
+ * Ambos eligen con la misma penalización por carga.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DispatchBenchmark {
+    private static final int PEDIDOS = 1_024;
+    private static final int MAX_RINGS = 4;
+    // Igual que RiderSearch: metros extra por cada pedido que ya lleva
+    private static final double PENALIZACION_CARGA_M = 400;
+
+    @Param({"200", "2000", "20000"})
+    int riders;
+
+    private String[] ids;
+    private double[] lats, lngs;
+    private int[] cargas;
+    private final Map<String, List<Integer>> celdas = new HashMap<>();
+    private final double[] pedidoLat = new double[PEDIDOS];
+    private final double[] pedidoLng = new double[PEDIDOS];
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(riders);
+        ids = new String[riders];
+        lats = new double[riders];
+        lngs = new double[riders];
+        cargas = new int[riders];
+        for (int i = 0; i < riders; i++) {
+            ids[i] = "rider_" + i;
+            lats[i] = Fixtures.lat(random);
+            lngs[i] = Fixtures.lng(random);
+            cargas[i] = random.nextInt(RiderSearch.MAX_CARGA + 1);
+            String celda = Geohash.encode(lats[i], lngs[i], Geohash.PRECISION);
+            List<Integer> enCelda = celdas.get(celda);
+            if (enCelda == null) {
+                enCelda = new ArrayList<>();
+                celdas.put(celda, enCelda);
+            }
+            enCelda.add(i);
+        }
+        for (int i = 0; i < PEDIDOS; i++) {
+            pedidoLat[i] = Fixtures.lat(random);
+            pedidoLng[i] = Fixtures.lng(random);
+        }
+    }
+
+    @Benchmark
+    public String ringSearch() {
+        int p = siguiente++ & (PEDIDOS - 1);
+        RiderSearch search = new RiderSearch(pedidoLat[p], pedidoLng[p], Geohash.PRECISION, MAX_RINGS, 0);
+        while (!search.isDone()) {
+            for (String celda : search.nextCells()) {
+                List<Integer> enCelda = celdas.get(celda);
+                if (enCelda == null) continue;
+                for (int i : enCelda) search.offer(ids[i], celda, lats[i], lngs[i], cargas[i], 1);
+            }
+            search.ringDone();
+        }
+        return search.best();
+    }
+
+    /** Referencia: leer todos los repartidores disponibles, como antes de los índices por celda. */
+    @Benchmark
+    public String bruteForce() {
+        int p = siguiente++ & (PEDIDOS - 1);
+        String mejor = null;
+        double mejorPuntaje = Double.MAX_VALUE;
+        for (int i = 0; i < riders; i++) {
+            if (cargas[i] >= RiderSearch.MAX_CARGA) continue;
+            double puntaje = Geohash.distanceMeters(pedidoLat[p], pedidoLng[p], lats[i], lngs[i])
+                    + cargas[i] * PENALIZACION_CARGA_M;
+            if (puntaje < mejorPuntaje) {
+                mejorPuntaje = puntaje;
+                mejor = ids[i];
+            }
+        }
+        return mejor;
+    }
+}
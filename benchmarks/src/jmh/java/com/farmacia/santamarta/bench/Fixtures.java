@@ -0,0 +1,121 @@
+package com.farmacia.santamarta.bench;
+
+import com.farmacia.santamarta.data.CatalogStore;
+import com.farmacia.santamarta.data.io.CsvRecordWriter;
+import com.farmacia.santamarta.data.io.JsonRecordWriter;
+import com.farmacia.santamarta.data.io.RecordWriter;
+import com.farmacia.santamarta.models.Product;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Datos de prueba parecidos a los de la farmacia: nombres de medicamento con
+ * forma y concentración, laboratorio, una docena de categorías y precios en
+ * colones, con el código de barras como id. Siempre los mismos para la
+ * misma cantidad, así los resultados de distintas corridas se pueden
+ * comparar.
+ */
+final class Fixtures {
+    // Zona de reparto: Valle de El General alrededor de San Isidro
+    static final double LAT_MIN = 9.25, LAT_MAX = 9.52;
+    static final double LNG_MIN = -83.85, LNG_MAX = -83.58;
+
+    private static final String[] PRINCIPIOS = {
+            "Acetaminofén", "Ibuprofeno", "Naproxeno", "Diclofenaco", "Amoxicilina", "Azitromicina",
+            "Ciprofloxacina", "Loratadina", "Cetirizina", "Omeprazol", "Ranitidina", "Metformina",
+            "Losartán", "Enalapril", "Atorvastatina", "Salbutamol", "Clotrimazol", "Vitamina C",
+            "Complejo B", "Hierro", "Ácido fólico", "Dexametasona", "Prednisona", "Metronidazol",
+            "Sales de rehidratación", "Bloqueador solar", "Alcohol en gel", "Suero fisiológico"};
+    private static final String[] FORMAS = {
+            "tabletas", "cápsulas", "jarabe", "suspensión", "crema", "gotas", "gel", "ampollas", "sobres"};
+    private static final String[] DOSIS = {"5 mg", "10 mg", "20 mg", "50 mg", "100 mg", "250 mg", "400 mg", "500 mg", "1 g"};
+    private static final String[] LABORATORIOS = {
+            "Genfar", "MK", "La Santé", "Bayer", "Stein", "Calox", "Gutis", "Sanofi", "Pfizer", "Lafar"};
+    private static final String[] CATEGORIAS = {
+            "Analgésicos", "Antibióticos", "Antialérgicos", "Gastrointestinal", "Cardiovascular",
+            "Respiratorio", "Dermatología", "Vitaminas", "Diabetes", "Antiinflamatorios",
+            "Cuidado personal", "Primeros auxilios"};
+
+    /** Búsquedas como las escribe un cliente: prefijos cortos, palabras sueltas y combinaciones. */
+    static final String[] QUERIES = {
+            "ac", "acet", "ibupro", "ibuprofeno 400", "amoxi", "jarabe", "loratadina", "omepra",
+            "vitamina c", "crema", "gotas", "metformina 500", "suero", "sol", "bayer", "gel"};
+
+    private Fixtures() {}
+
+    static List<Product> products(int n) {
+        Random random = new Random(n);
+        List<Product> products = new ArrayList<>(n);
+        // Códigos de barras EAN-13 con prefijo de Costa Rica, crecientes: el orden de la lista es el de las claves
+        long codigo = 744_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            String nombre = PRINCIPIOS[random.nextInt(PRINCIPIOS.length)] + " "
+                    + DOSIS[random.nextInt(DOSIS.length)] + " "
+                    + FORMAS[random.nextInt(FORMAS.length)] + " x" + (1 + random.nextInt(60));
+            String laboratorio = LABORATORIOS[random.nextInt(LABORATORIOS.length)];
+            // Precios en colones redondeados a 5, como en la caja
+            double precio = 5 * (100 + random.nextInt(6_000));
+            codigo += 1 + random.nextInt(40);
+            Product p = new Product(ean13(codigo), nombre, "Laboratorio " + laboratorio,
+                    precio, random.nextInt(300), CATEGORIAS[random.nextInt(CATEGORIAS.length)]);
+            p.setUpdatedAt(1_700_000_000_000L + i * 1_000L);
+            products.add(p);
+        }
+        return products;
+    }
+
+    private static String ean13(long doce) {
+        String digitos = Long.toString(doce);
+        int suma = 0;
+        for (int i = 0; i < 12; i++) suma += (digitos.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        return digitos + (10 - suma % 10) % 10;
+    }
+
+    static CatalogStore store(List<Product> products) {
+        CatalogStore store = new CatalogStore(products.size());
+        for (Product p : products) store.insert(p);
+        return store;
+    }
+
+    /** Nodo `products/{id}` tal como lo entrega Firebase: enteros como Long y decimales como Double. */
+    static Map<String, Object> rawValue(Product p) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("nombre", p.getNombre());
+        m.put("descripcion", p.getDescripcion());
+        m.put("precio", p.getPrecio() == Math.rint(p.getPrecio()) ? (Object) (long) p.getPrecio() : (Object) p.getPrecio());
+        m.put("stock", (long) p.getStock());
+        m.put("categoria", p.getCategoria());
+        m.put("updated_at", p.getUpdatedAt());
+        return m;
+    }
+
+    static String csv(List<Product> products) throws IOException {
+        StringWriter out = new StringWriter(products.size() * 96);
+        write(new CsvRecordWriter(out), products);
+        return out.toString();
+    }
+
+    static String json(List<Product> products) throws IOException {
+        StringWriter out = new StringWriter(products.size() * 160);
+        write(new JsonRecordWriter(out), products);
+        return out.toString();
+    }
+
+    private static void write(RecordWriter writer, List<Product> products) throws IOException {
+        for (Product p : products) writer.write(p);
+        writer.close();
+    }
+
+    static double lat(Random random) {
+        return LAT_MIN + random.nextDouble() * (LAT_MAX - LAT_MIN);
+    }
+
+    static double lng(Random random) {
+        return LNG_MIN + random.nextDouble() * (LNG_MAX - LNG_MIN);
+    }
+}
@@ -0,0 +1,76 @@
+package com.farmacia.santamarta.bench;
+
+import com.farmacia.santamarta.data.Geohash;
+import com.farmacia.santamarta.data.LocationThrottle;
+import com.farmacia.santamarta.models.Order;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Filtro de posiciones del repartidor ({@link LocationThrottle}) sobre un
+ * recorrido simulado de una hora a una posición por segundo: tramos en
+ * moto, semáforos y esperas en la entrega con el ruido normal del GPS.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocationThrottleBenchmark {
+    private static final int FIXES = 3_600;
+    // ~1 m en grados
+    private static final double METRO = 1.0 / 111_320;
+
+    private final double[] lats = new double[FIXES];
+    private final double[] lngs = new double[FIXES];
+    private final long[] horas = new long[FIXES];
+    private final float[] velocidades = new float[FIXES];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(FIXES);
+        double lat = 9.3727, lng = -83.7033, rumbo = 0;
+        for (int i = 0; i < FIXES; i++) {
+            // Cada 5 minutos: 4 en movimiento y 1 detenido
+            float velocidad = (i % 300) < 240 ? 6f + random.nextFloat() * 8f : 0f;
+            rumbo += (random.nextDouble() - 0.5) * 0.3;
+            lat += Math.cos(rumbo) * velocidad * METRO;
+            lng += Math.sin(rumbo) * velocidad * METRO;
+            lats[i] = lat + random.nextGaussian() * 4 * METRO;
+            lngs[i] = lng + random.nextGaussian() * 4 * METRO;
+            horas[i] = 1_700_000_000_000L + i * 1_000L;
+            velocidades[i] = velocidad;
+        }
+    }
+
+    /** Decide qué posiciones del recorrido se publican; devuelve cuántas salieron. */
+    @Benchmark
+    public int filterTrace() {
+        LocationThrottle throttle = new LocationThrottle();
+        int publicadas = 0;
+        for (int i = 0; i < FIXES; i++) {
+            if (throttle.shouldPublish(lats[i], lngs[i], horas[i])) {
+                throttle.published(lats[i], lngs[i], horas[i]);
+                publicadas++;
+            }
+        }
+        return publicadas;
+    }
+
+    /** Lo que se calcula con cada posición publicada además del filtro: intervalo y celda de riders_geo. */
+    @Benchmark
+    public long intervalAndCell() {
+        long suma = 0;
+        for (int i = 0; i < FIXES; i++) {
+            suma += LocationThrottle.intervalFor(true, velocidades[i], Order.EN_CAMINO);
+            suma += Geohash.encode(lats[i], lngs[i], Geohash.PRECISION).hashCode();
+        }
+        return suma;
+    }
+}
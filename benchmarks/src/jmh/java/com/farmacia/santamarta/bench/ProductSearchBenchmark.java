@@ -0,0 +1,65 @@
+package com.farmacia.santamarta.bench;
+
+import com.farmacia.santamarta.data.CatalogStore;
+import com.farmacia.santamarta.data.IntList;
+import com.farmacia.santamarta.data.ProductSearchIndex;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Búsqueda y filtro por categoría del catálogo del cliente ({@link ProductSearchIndex}). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductSearchBenchmark {
+    @Param({"10000", "100000"})
+    int size;
+
+    private CatalogStore store;
+    private ProductSearchIndex index;
+    private List<String> categorias;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = Fixtures.store(Fixtures.products(size));
+        index = new ProductSearchIndex();
+        index.rebuild(store);
+        categorias = store.getCategorias();
+    }
+
+    /** Una consulta distinta por invocación, recorriendo {@link Fixtures#QUERIES}. */
+    @Benchmark
+    public IntList search() {
+        return index.search(Fixtures.QUERIES[siguiente++ % Fixtures.QUERIES.length]);
+    }
+
+    @Benchmark
+    public IntList searchInCategory() {
+        int i = siguiente++;
+        return index.search(Fixtures.QUERIES[i % Fixtures.QUERIES.length], categorias.get(i % categorias.size()));
+    }
+
+    /** Solo el chip de categoría, sin texto. */
+    @Benchmark
+    public IntList filterByCategory() {
+        return index.search("", categorias.get(siguiente++ % categorias.size()));
+    }
+
+    /** Lo que cuesta indexar el catálogo completo después de una carga. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ProductSearchIndex rebuild() {
+        ProductSearchIndex nuevo = new ProductSearchIndex();
+        nuevo.rebuild(store);
+        return nuevo;
+    }
+}
@@ -0,0 +1,79 @@
+package com.farmacia.santamarta.bench;
+
+import com.farmacia.santamarta.models.Product;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mapeo por reflexión a la manera de getValue(Product.class), para comparar
+ * con {@code ProductMapper}: constructor vacío y un setter por propiedad,
+ * ambos buscados una sola vez y guardados como {@link Method}. Cada campo se
+ * busca por nombre y se convierte según el tipo del parámetro, como hace el
+ * SDK. Las claves snake_case se pasan a camelCase (el SDK lo haría con
+ * {@code @PropertyName}) para que los dos caminos escriban los mismos campos.
+ */
+final class ReflectiveProductMapper {
+    private final Constructor<Product> constructor;
+    private final Map<String, Method> setters = new HashMap<>();
+    private final Method setId;
+
+    ReflectiveProductMapper() {
+        try {
+            constructor = Product.class.getConstructor();
+            setId = Product.class.getMethod("setId", String.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Method m : Product.class.getMethods()) {
+            if (m.getName().startsWith("set") && m.getParameterTypes().length == 1) {
+                String nombre = m.getName().substring(3);
+                setters.put(Character.toLowerCase(nombre.charAt(0)) + nombre.substring(1), m);
+            }
+        }
+    }
+
+    Product fromValue(String key, Map<String, Object> value) {
+        try {
+            Product p = constructor.newInstance();
+            for (Map.Entry<String, Object> campo : value.entrySet()) {
+                Method setter = setters.get(propiedad(campo.getKey()));
+                if (setter == null) continue;
+                setter.invoke(p, convertir(campo.getValue(), setter.getParameterTypes()[0]));
+            }
+            setId.invoke(p, key);
+            return p;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String propiedad(String clave) {
+        int guion = clave.indexOf('_');
+        if (guion < 0) return clave;
+        StringBuilder sb = new StringBuilder(clave.length());
+        boolean mayuscula = false;
+        for (int i = 0; i < clave.length(); i++) {
+            char c = clave.charAt(i);
+            if (c == '_') {
+                mayuscula = true;
+            } else {
+                sb.append(mayuscula ? Character.toUpperCase(c) : c);
+                mayuscula = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    // Firebase entrega los números como Long o Double
+    private static Object convertir(Object valor, Class<?> tipo) {
+        if (valor instanceof Number) {
+            Number n = (Number) valor;
+            if (tipo == int.class) return n.intValue();
+            if (tipo == long.class) return n.longValue();
+            if (tipo == double.class) return n.doubleValue();
+        }
+        return valor;
+    }
+}
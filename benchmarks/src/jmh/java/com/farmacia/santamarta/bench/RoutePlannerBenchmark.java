@@ -0,0 +1,57 @@
+package com.farmacia.santamarta.bench;
+
+import com.farmacia.santamarta.data.RoutePlanner;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Planificación de la ruta del repartidor ({@link RoutePlanner}) con el
+ * mismo presupuesto que usa la app. Con pocas paradas termina mucho antes
+ * del límite; lo que interesa es cuándo empieza a agotarlo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoutePlannerBenchmark {
+    // Igual que DeliveryDashboardActivity
+    private static final long BUDGET_NS = 10_000_000L;
+    private static final int RUTAS = 64;
+
+    @Param({"3", "8", "20", "30"})
+    int stops;
+
+    private final double[] inicioLat = new double[RUTAS];
+    private final double[] inicioLng = new double[RUTAS];
+    private double[][] lats, lngs;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(stops);
+        lats = new double[RUTAS][stops];
+        lngs = new double[RUTAS][stops];
+        for (int r = 0; r < RUTAS; r++) {
+            inicioLat[r] = Fixtures.lat(random);
+            inicioLng[r] = Fixtures.lng(random);
+            for (int i = 0; i < stops; i++) {
+                lats[r][i] = Fixtures.lat(random);
+                lngs[r][i] = Fixtures.lng(random);
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] plan() {
+        int r = siguiente++ & (RUTAS - 1);
+        return RoutePlanner.plan(inicioLat[r], inicioLng[r], lats[r], lngs[r], BUDGET_NS);
+    }
+}
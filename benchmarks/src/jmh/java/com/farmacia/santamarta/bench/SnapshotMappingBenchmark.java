@@ -0,0 +1,116 @@
+package com.farmacia.santamarta.bench;
+
+import com.farmacia.santamarta.data.CatalogStore;
+import com.farmacia.santamarta.data.OrderMapper;
+import com.farmacia.santamarta.data.ProductMapper;
+import com.farmacia.santamarta.models.DeliveryLocation;
+import com.farmacia.santamarta.models.Order;
+import com.farmacia.santamarta.models.OrderItem;
+import com.farmacia.santamarta.models.Product;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Conversión de los valores crudos de Firebase: la carga completa del
+ * catálogo ({@link ProductMapper} hacia {@link CatalogStore}) y los pedidos
+ * ({@link OrderMapper}) en ambos sentidos. {@code productFromValueReflective}
+ * recorre los mismos valores con un mapeo por reflexión
+ * ({@link ReflectiveProductMapper}) para comparar el costo por registro con
+ * {@code productFromValue}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnapshotMappingBenchmark {
+    private static final int ORDERS = 1_000;
+
+    @Param({"10000", "100000"})
+    int size;
+
+    private List<String> ids;
+    private List<Map<String, Object>> raw;
+    private List<Order> orders;
+    private List<Map<String, Object>> rawOrders;
+    private ReflectiveProductMapper reflective;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Product> products = Fixtures.products(size);
+        ids = new ArrayList<>(size);
+        raw = new ArrayList<>(size);
+        for (Product p : products) {
+            ids.add(p.getId());
+            raw.add(Fixtures.rawValue(p));
+        }
+        reflective = new ReflectiveProductMapper();
+
+        Random random = new Random(ORDERS);
+        orders = new ArrayList<>(ORDERS);
+        rawOrders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Order o = new Order();
+            o.setId(String.format("order_%05d", i));
+            o.setClienteId("cliente_" + random.nextInt(500));
+            o.setEstado(Order.PENDIENTE);
+            o.setTimestamp(1_700_000_000_000L + i);
+            List<OrderItem> items = new ArrayList<>();
+            int lineas = 1 + random.nextInt(6);
+            double total = 0;
+            for (int j = 0; j < lineas; j++) {
+                Product p = products.get(random.nextInt(size));
+                int cantidad = 1 + random.nextInt(3);
+                items.add(new OrderItem(p.getId(), cantidad, p.getPrecio() * cantidad));
+                total += p.getPrecio() * cantidad;
+            }
+            o.setProductos(items);
+            o.setTotal(total);
+            o.setUbicacionEntrega(new DeliveryLocation(Fixtures.lat(random), Fixtures.lng(random), "San Isidro"));
+            orders.add(o);
+            rawOrders.add(OrderMapper.toMap(o));
+        }
+    }
+
+    /** Carga completa del catálogo: de los valores crudos a las columnas de CatalogStore. */
+    @Benchmark
+    public CatalogStore productsIntoStore() {
+        CatalogStore store = new CatalogStore(size);
+        for (int i = 0; i < size; i++) store.insert(ProductMapper.fromValue(ids.get(i), raw.get(i)));
+        return store;
+    }
+
+    @Benchmark
+    public void productFromValue(Blackhole bh) {
+        for (int i = 0; i < size; i++) bh.consume(ProductMapper.fromValue(ids.get(i), raw.get(i)));
+    }
+
+    /** Lo mismo que productFromValue, con setters por reflexión como getValue(Product.class). */
+    @Benchmark
+    public void productFromValueReflective(Blackhole bh) {
+        for (int i = 0; i < size; i++) bh.consume(reflective.fromValue(ids.get(i), raw.get(i)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void orderFromValue(Blackhole bh) {
+        for (int i = 0; i < ORDERS; i++) bh.consume(OrderMapper.fromValue(orders.get(i).getId(), rawOrders.get(i)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void orderToMap(Blackhole bh) {
+        for (int i = 0; i < ORDERS; i++) bh.consume(OrderMapper.toMap(orders.get(i)));
+    }
+}
@@ -0,0 +1,135 @@
+package com.farmacia.santamarta.data;
+
+import com.farmacia.santamarta.models.OrderItem;
+import com.farmacia.santamarta.models.Product;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Carrito por id de producto: una línea por producto con su cantidad. El
+ * total y la cantidad de unidades se mantienen al agregar o quitar, sin
+ * recorrer las líneas. Los montos se llevan en céntimos para que sumar y
+ * restar muchas veces no acumule error de redondeo.
+ */
+public class Cart {
+
+    public static class Line {
+        private final String productId;
+        private final String nombre;
+        private final long precioCentimos;
+        private int cantidad;
+
+        Line(String productId, String nombre, long precioCentimos, int cantidad) {
+            this.productId = productId;
+            this.nombre = nombre;
+            this.precioCentimos = precioCentimos;
+            this.cantidad = cantidad;
+        }
+
+        public String getProductId() { return productId; }
+        public String getNombre() { return nombre; }
+        public double getPrecio() { return precioCentimos / 100.0; }
+        public int getCantidad() { return cantidad; }
+        public double getSubtotal() { return precioCentimos * cantidad / 100.0; }
+    }
+
+    private final LinkedHashMap<String, Line> lineas = new LinkedHashMap<>();
+    private long totalCentimos;
+    private int unidades;
+
+    /** Suma unidades del producto con el precio que tenía al agregarlo; devuelve la cantidad de la línea. */
+    public int add(Product product, int cantidad) {
+        Line linea = lineas.get(product.getId());
+        if (linea == null) {
+            if (cantidad <= 0) return 0;
+            linea = new Line(product.getId(), product.getNombre(), centimos(product.getPrecio()), 0);
+            lineas.put(product.getId(), linea);
+        }
+        return setQuantity(linea, linea.cantidad + cantidad);
+    }
+
+    /** Cambia la cantidad de una línea existente; con 0 o menos la quita. */
+    public int setQuantity(String productId, int cantidad) {
+        Line linea = lineas.get(productId);
+        return linea != null ? setQuantity(linea, cantidad) : 0;
+    }
+
+    public void remove(String productId) {
+        setQuantity(productId, 0);
+    }
+
+    public void clear() {
+        lineas.clear();
+        totalCentimos = 0;
+        unidades = 0;
+    }
+
+    /** Para reconstruir el carrito guardado, con el precio de entonces. */
+    public void restore(String productId, String nombre, double precio, int cantidad) {
+        if (cantidad <= 0 || lineas.containsKey(productId)) return;
+        Line linea = new Line(productId, nombre, centimos(precio), 0);
+        lineas.put(productId, linea);
+        setQuantity(linea, cantidad);
+    }
+
+    public int getQuantity(String productId) {
+        Line linea = lineas.get(productId);
+        return linea != null ? linea.cantidad : 0;
+    }
+
+    public Collection<Line> getLines() {
+        return Collections.unmodifiableCollection(lineas.values());
+    }
+
+    public int lineCount() {
+        return lineas.size();
+    }
+
+    public int unitCount() {
+        return unidades;
+    }
+
+    public double getTotal() {
+        return totalCentimos / 100.0;
+    }
+
+    public boolean isEmpty() {
+        return lineas.isEmpty();
+    }
+
+    /** Líneas en el formato de `orders/{id}/productos`. */
+    public List<OrderItem> toOrderItems() {
+        List<OrderItem> items = new ArrayList<>(lineas.size());
+        for (Line linea : lineas.values()) {
+            items.add(new OrderItem(linea.productId, linea.cantidad, linea.getSubtotal()));
+        }
+        return items;
+    }
+
+    /** Unidades por producto, para reservar el stock en el checkout. */
+    public Map<String, Integer> quantities() {
+        Map<String, Integer> cantidades = new LinkedHashMap<>();
+        for (Line linea : lineas.values()) {
+            cantidades.put(linea.productId, linea.cantidad);
+        }
+        return cantidades;
+    }
+
+    private int setQuantity(Line linea, int cantidad) {
+        int nueva = Math.max(cantidad, 0);
+        int delta = nueva - linea.cantidad;
+        totalCentimos += delta * linea.precioCentimos;
+        unidades += delta;
+        linea.cantidad = nueva;
+        if (nueva == 0) lineas.remove(linea.productId);
+        return nueva;
+    }
+
+    private static long centimos(double precio) {
+        return Math.round(precio * 100);
+    }
+}
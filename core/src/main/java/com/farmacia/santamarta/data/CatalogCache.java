@@ -0,0 +1,143 @@
+package com.farmacia.santamarta.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Copia del catálogo en disco para abrir la app sin red.
+ * Formato binario secuencial: encabezado, diccionario de categorías y un
+ * registro por producto. Se lee de una sola pasada con un búfer grande, por
+ * lo que el tiempo de carga crece solo con el tamaño del archivo.
+ * Los textos van como largo + bytes UTF-8 (writeUTF no admite más de 64 KB).
+ */
+public class CatalogCache {
+    private static final int MAGIC = 0x53414e54; // "SANT"
+    private static final int FORMAT_VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+
+    public CatalogCache(File dir) {
+        this.file = new File(dir, "catalog_v" + FORMAT_VERSION + ".bin");
+    }
+
+    /** Devuelve la copia guardada, o un catálogo vacío si no existe o está dañada. */
+    public CatalogStore load() {
+        if (!file.exists()) return new CatalogStore();
+        long largo = file.length();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return new CatalogStore();
+            }
+            long lastSync = in.readLong();
+
+            Textos textos = new Textos(in, largo);
+            String[] categorias = new String[textos.count()];
+            for (int i = 0; i < categorias.length; i++) {
+                categorias[i] = textos.read();
+            }
+
+            int count = textos.count();
+            CatalogStore store = new CatalogStore(Math.max(count, 16));
+            for (int i = 0; i < count; i++) {
+                String id = textos.read();
+                String nombre = textos.read();
+                String descripcion = textos.read();
+                double precio = in.readDouble();
+                int stock = in.readInt();
+                int cat = in.readInt();
+                long updatedAt = in.readLong();
+                // Los registros se guardaron en orden de clave: cada uno va al final
+                store.insert(id, nombre, descripcion, precio, stock, cat >= 0 ? categorias[cat] : null, updatedAt);
+            }
+            store.setLastUpdatedAt(lastSync);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            // Un archivo truncado o con datos inválidos se descarta; la próxima sincronización lo reconstruye
+            file.delete();
+            return new CatalogStore();
+        }
+    }
+
+    /** Lee conteos y textos reutilizando un solo búfer de bytes. */
+    private static final class Textos {
+        private final DataInputStream in;
+        private final long largo;
+        private byte[] buffer = new byte[256];
+
+        Textos(DataInputStream in, long largo) {
+            this.in = in;
+            this.largo = largo;
+        }
+
+        // Un conteo no puede superar los bytes del archivo; evita reservar arreglos absurdos
+        int count() throws IOException {
+            int n = in.readInt();
+            if (n < 0 || n > largo) throw new IOException("Conteo inválido: " + n);
+            return n;
+        }
+
+        String read() throws IOException {
+            int n = count();
+            if (n > buffer.length) buffer = new byte[Math.max(n, buffer.length * 2)];
+            in.readFully(buffer, 0, n);
+            return new String(buffer, 0, n, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Escribe en un archivo temporal y lo renombra, así nunca queda una copia a medias.
+     * Recibe una copia del catálogo ({@link CatalogStore#copy()}) porque corre fuera del hilo principal.
+     */
+    public void save(CatalogStore store) throws IOException {
+        List<String> categorias = store.getCategorias();
+        IntList orden = store.keyOrder();
+
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(store.getLastUpdatedAt());
+            out.writeInt(categorias.size());
+            for (String cat : categorias) {
+                writeString(out, cat);
+            }
+            out.writeInt(orden.size());
+            for (int i = 0; i < orden.size(); i++) {
+                int row = orden.get(i);
+                writeString(out, store.getId(row));
+                writeString(out, store.getNombre(row));
+                writeString(out, store.getDescripcion(row));
+                out.writeDouble(store.getPrecio(row));
+                out.writeInt(store.getStock(row));
+                out.writeInt(store.getCategoriaCode(row));
+                out.writeLong(store.getUpdatedAt(row));
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("No se pudo reemplazar " + file.getName());
+        }
+        // La copia del formato anterior ya no se puede leer
+        new File(file.getParentFile(), "catalog_v" + (FORMAT_VERSION - 1) + ".bin").delete();
+    }
+
+    public long sizeBytes() {
+        return file.length();
+    }
+}
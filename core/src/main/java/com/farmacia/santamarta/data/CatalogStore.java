@@ -0,0 +1,296 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.models.Product;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catálogo en columnas: un arreglo por campo en lugar de un objeto Product
+ * por producto. Precio y stock son primitivos y la categoría se guarda como
+ * código de un diccionario, así 10k productos comparten unas pocas cadenas.
+ *
+ * Cada producto ocupa una fila que no cambia mientras exista; las filas
+ * borradas quedan vacías hasta la próxima carga completa. Las vistas y los
+ * resultados de búsqueda son listas de filas ({@link IntList}), no copias.
+ */
+public class CatalogStore {
+    // Mismo orden que usa Firebase para las claves: enteros de 32 bits primero, luego texto
+    public static final Comparator<String> KEY_ORDER = CatalogStore::compareKeys;
+    // parseKey de una clave que no es entera; queda fuera del rango de int
+    private static final long NO_ENTERO = Long.MIN_VALUE;
+
+    private String[] ids;
+    private String[] nombres;
+    private String[] descripciones;
+    private double[] precios;
+    private int[] stocks;
+    private int[] categorias;
+    private long[] updatedAt;
+    private int rowCount;
+
+    private final List<String> diccionario = new ArrayList<>();
+    private final Map<String, Integer> codigos = new HashMap<>();
+    // Filas vivas ordenadas por clave: es la vista "sin filtros" del catálogo
+    private final IntList orden = new IntList();
+    private long lastUpdatedAt;
+
+    public CatalogStore() {
+        this(256);
+    }
+
+    public CatalogStore(int capacity) {
+        ids = new String[capacity];
+        nombres = new String[capacity];
+        descripciones = new String[capacity];
+        precios = new double[capacity];
+        stocks = new int[capacity];
+        categorias = new int[capacity];
+        updatedAt = new long[capacity];
+    }
+
+    public int size() {
+        return orden.size();
+    }
+
+    /** Cantidad de filas usadas, incluidas las borradas; sirve para dimensionar índices. */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public IntList keyOrder() {
+        return orden;
+    }
+
+    // Sin mapa id -> fila: la búsqueda binaria sobre el orden por clave evita un Integer por producto
+    public int rowOf(String id) {
+        int position = binarySearch(id);
+        return position >= 0 ? orden.get(position) : -1;
+    }
+
+    public int positionOf(String id) {
+        return Math.max(-1, binarySearch(id));
+    }
+
+    /** Agrega un producto nuevo y devuelve su posición en el orden por clave. */
+    public int insert(Product p) {
+        return insert(p.getId(), p.getNombre(), p.getDescripcion(), p.getPrecio(), p.getStock(),
+                p.getCategoria(), p.getUpdatedAt());
+    }
+
+    /** Variante sin objeto intermedio; si las claves llegan en orden cada inserción va al final. */
+    public int insert(String id, String nombre, String descripcion, double precio, int stock,
+                      @Nullable String categoria, long updated) {
+        int row = rowCount++;
+        ensureCapacity(rowCount);
+        ids[row] = id;
+        write(row, nombre, descripcion, precio, stock, categoria, updated);
+        int position = -(binarySearch(id) + 1);
+        orden.add(position, row);
+        return position;
+    }
+
+    public void update(int row, Product p) {
+        write(row, p.getNombre(), p.getDescripcion(), p.getPrecio(), p.getStock(), p.getCategoria(), p.getUpdatedAt());
+    }
+
+    /** Borra un producto y devuelve la posición que ocupaba, o -1 si no existía. */
+    public int remove(String id) {
+        int position = binarySearch(id);
+        if (position < 0) return -1;
+        int row = orden.removeAt(position);
+        ids[row] = null;
+        nombres[row] = null;
+        descripciones[row] = null;
+        return position;
+    }
+
+    public boolean isLive(int row) {
+        return row < rowCount && ids[row] != null;
+    }
+
+    public String getId(int row) { return ids[row]; }
+    public String getNombre(int row) { return nombres[row]; }
+    public String getDescripcion(int row) { return descripciones[row]; }
+    public double getPrecio(int row) { return precios[row]; }
+    public int getStock(int row) { return stocks[row]; }
+    public long getUpdatedAt(int row) { return updatedAt[row]; }
+    public int getCategoriaCode(int row) { return categorias[row]; }
+
+    @Nullable
+    public String getCategoria(int row) {
+        int code = categorias[row];
+        return code >= 0 ? diccionario.get(code) : null;
+    }
+
+    public List<String> getCategorias() {
+        return Collections.unmodifiableList(diccionario);
+    }
+
+    /** Mayor updated_at guardado; es el punto de partida de la próxima sincronización. */
+    public long getLastUpdatedAt() {
+        return lastUpdatedAt;
+    }
+
+    public void setLastUpdatedAt(long lastUpdatedAt) {
+        this.lastUpdatedAt = Math.max(this.lastUpdatedAt, lastUpdatedAt);
+    }
+
+    /** Crea un Product solo cuando hace falta un objeto (carrito, detalle). */
+    public Product toProduct(int row) {
+        Product p = new Product(ids[row], nombres[row], descripciones[row], precios[row], stocks[row], getCategoria(row));
+        p.setUpdatedAt(updatedAt[row]);
+        return p;
+    }
+
+    /** Copia compacta (sin filas borradas) para escribirla en disco fuera del hilo principal. */
+    public CatalogStore copy() {
+        CatalogStore copy = new CatalogStore(Math.max(orden.size(), 16));
+        for (int i = 0; i < orden.size(); i++) {
+            int row = orden.get(i);
+            int dst = copy.rowCount++;
+            copy.ids[dst] = ids[row];
+            copy.nombres[dst] = nombres[row];
+            copy.descripciones[dst] = descripciones[row];
+            copy.precios[dst] = precios[row];
+            copy.stocks[dst] = stocks[row];
+            copy.categorias[dst] = copy.intern(getCategoria(row));
+            copy.updatedAt[dst] = updatedAt[row];
+            copy.orden.add(dst);
+        }
+        copy.lastUpdatedAt = lastUpdatedAt;
+        return copy;
+    }
+
+    public ProductSource view(IntList rows) {
+        return new View(rows);
+    }
+
+    public ProductSource keyOrderView() {
+        return new View(orden);
+    }
+
+    private void write(int row, String nombre, String descripcion, double precio, int stock,
+                       @Nullable String categoria, long updated) {
+        nombres[row] = nombre != null ? nombre : "";
+        descripciones[row] = descripcion != null ? descripcion : "";
+        precios[row] = precio;
+        stocks[row] = stock;
+        categorias[row] = intern(categoria);
+        updatedAt[row] = updated;
+        lastUpdatedAt = Math.max(lastUpdatedAt, updated);
+    }
+
+    private int intern(@Nullable String categoria) {
+        if (categoria == null || categoria.isEmpty()) return -1;
+        Integer code = codigos.get(categoria);
+        if (code == null) {
+            code = diccionario.size();
+            diccionario.add(categoria);
+            codigos.put(categoria, code);
+        }
+        return code;
+    }
+
+    private int binarySearch(String id) {
+        int lo = 0;
+        int hi = orden.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareKeys(ids[orden.get(mid)], id);
+            if (cmp < 0) lo = mid + 1;
+            else if (cmp > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) return;
+        int n = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, n);
+        nombres = Arrays.copyOf(nombres, n);
+        descripciones = Arrays.copyOf(descripciones, n);
+        precios = Arrays.copyOf(precios, n);
+        stocks = Arrays.copyOf(stocks, n);
+        categorias = Arrays.copyOf(categorias, n);
+        updatedAt = Arrays.copyOf(updatedAt, n);
+    }
+
+    public static int compareKeys(String a, String b) {
+        long ia = parseKey(a);
+        long ib = parseKey(b);
+        if (ia != NO_ENTERO && ib != NO_ENTERO) return Long.compare(ia, ib);
+        if (ia != NO_ENTERO) return -1;
+        if (ib != NO_ENTERO) return 1;
+        return a.compareTo(b);
+    }
+
+    // Se llama en cada comparación de la búsqueda binaria: sin excepciones ni boxing,
+    // y una clave de texto se descarta en el primer carácter
+    static long parseKey(String key) {
+        int n = key.length();
+        if (n == 0 || n > 11) return NO_ENTERO;
+        boolean negativo = key.charAt(0) == '-';
+        int i = negativo ? 1 : 0;
+        if (i == n) return NO_ENTERO;
+        // Sin ceros a la izquierda ni "-0": Firebase los ordena como texto
+        if (key.charAt(i) == '0' && (negativo || n > 1)) return NO_ENTERO;
+        long valor = 0;
+        for (; i < n; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') return NO_ENTERO;
+            valor = valor * 10 + (c - '0');
+        }
+        if (negativo) valor = -valor;
+        return valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE ? NO_ENTERO : valor;
+    }
+
+    private class View implements ProductSource {
+        private final IntList rows;
+
+        View(IntList rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+
+        @Override
+        public boolean isLoaded(int position) {
+            return isLive(rows.get(position));
+        }
+
+        @Override
+        public String getId(int position) {
+            return ids[rows.get(position)];
+        }
+
+        @Override
+        public String getNombre(int position) {
+            return nombres[rows.get(position)];
+        }
+
+        @Override
+        public String getDescripcion(int position) {
+            return descripciones[rows.get(position)];
+        }
+
+        @Override
+        public double getPrecio(int position) {
+            return precios[rows.get(position)];
+        }
+
+        @Override
+        public Product get(int position) {
+            return toProduct(rows.get(position));
+        }
+    }
+}
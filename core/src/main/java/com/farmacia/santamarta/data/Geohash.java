@@ -0,0 +1,104 @@
+package com.farmacia.santamarta.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geohash para indexar posiciones por celda en Firebase. Con la misma
+ * precisión, dos puntos cercanos comparten prefijo o caen en celdas
+ * vecinas, así que "lo que está cerca" se lee como unas pocas rutas
+ * `.../{celda}` sin importar cuántos pedidos o repartidores haya en total.
+ */
+public final class Geohash {
+    /** ~1.2 km × 0.6 km: en una ciudad, la celda y sus vecinas cubren el radio de reparto. */
+    public static final int PRECISION = 6;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double METROS_POR_GRADO = 111_195; // 6 371 km · π / 180
+
+    private Geohash() {}
+
+    public static String encode(double lat, double lng, int precision) {
+        double latMin = -90, latMax = 90, lngMin = -180, lngMax = 180;
+        StringBuilder sb = new StringBuilder(precision);
+        boolean esLng = true;
+        int bits = 0, valor = 0;
+        while (sb.length() < precision) {
+            if (esLng) {
+                double medio = (lngMin + lngMax) / 2;
+                valor <<= 1;
+                if (lng >= medio) {
+                    valor |= 1;
+                    lngMin = medio;
+                } else {
+                    lngMax = medio;
+                }
+            } else {
+                double medio = (latMin + latMax) / 2;
+                valor <<= 1;
+                if (lat >= medio) {
+                    valor |= 1;
+                    latMin = medio;
+                } else {
+                    latMax = medio;
+                }
+            }
+            esLng = !esLng;
+            if (++bits == 5) {
+                sb.append(BASE32.charAt(valor));
+                bits = 0;
+                valor = 0;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Alto de una celda en grados de latitud. */
+    public static double cellHeightDegrees(int precision) {
+        return 180 / Math.pow(2, (5 * precision) / 2);
+    }
+
+    /** Ancho de una celda en grados de longitud. */
+    public static double cellWidthDegrees(int precision) {
+        return 360 / Math.pow(2, (5 * precision + 1) / 2);
+    }
+
+    /** El lado más corto de una celda en metros a esa latitud. */
+    public static double minCellSideMeters(int precision, double lat) {
+        double alto = cellHeightDegrees(precision) * METROS_POR_GRADO;
+        double ancho = cellWidthDegrees(precision) * METROS_POR_GRADO * Math.cos(Math.toRadians(lat));
+        return Math.min(alto, ancho);
+    }
+
+    /**
+     * Celdas a exactamente {@code k} celdas de distancia (en cuadrado) de la
+     * que contiene el punto: 1 celda para k = 0, 8 para k = 1, 16 para k = 2…
+     */
+    public static List<String> ring(double lat, double lng, int precision, int k) {
+        double alto = cellHeightDegrees(precision);
+        double ancho = cellWidthDegrees(precision);
+        // Se parte del centro de la celda para que los desplazamientos caigan en el medio de cada vecina
+        double latCentro = (Math.floor((lat + 90) / alto) + 0.5) * alto - 90;
+        double lngCentro = (Math.floor((lng + 180) / ancho) + 0.5) * ancho - 180;
+        List<String> celdas = new ArrayList<>(k == 0 ? 1 : 8 * k);
+        for (int dy = -k; dy <= k; dy++) {
+            for (int dx = -k; dx <= k; dx++) {
+                if (Math.max(Math.abs(dx), Math.abs(dy)) != k) continue;
+                double la = latCentro + dy * alto;
+                if (la <= -90 || la >= 90) continue;
+                double lo = lngCentro + dx * ancho;
+                if (lo >= 180) lo -= 360;
+                if (lo < -180) lo += 360;
+                celdas.add(encode(la, lo, precision));
+            }
+        }
+        return celdas;
+    }
+
+    /** Distancia aproximada en metros (equirrectangular); de sobra para distancias dentro de una ciudad. */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * 6_371_000;
+    }
+}
@@ -0,0 +1,55 @@
+package com.farmacia.santamarta.data;
+
+import com.farmacia.santamarta.models.Order;
+
+/**
+ * Decide qué posiciones del repartidor vale la pena publicar y cada cuánto
+ * pedirlas al GPS. No depende de android.location: {@code LocationPublisher}
+ * le pasa latitud, longitud, hora y velocidad de cada Location.
+ */
+public final class LocationThrottle {
+    public static final float MIN_DISTANCE_M = 15f;
+    // Aunque el repartidor esté detenido, se publica de vez en cuando para que el cliente vea que sigue activo
+    public static final long MAX_SILENCE_MS = 60_000;
+
+    // Intervalos de LocationRequest según velocidad y estado del pedido
+    public static final long INTERVAL_FAST_MS = 3_000;
+    public static final long INTERVAL_NORMAL_MS = 5_000;
+    public static final long INTERVAL_STOPPED_MS = 15_000;
+    public static final long INTERVAL_IDLE_MS = 30_000;
+    private static final float SPEED_FAST_MS = 8f;    // ~30 km/h
+    private static final float SPEED_STOPPED_MS = 1f;
+
+    private boolean hayUltima = false;
+    private double ultimaLat, ultimaLng;
+    private long ultimaHora;
+
+    /** true si la posición se alejó lo suficiente de la última publicada o pasó mucho tiempo desde ella. */
+    public boolean shouldPublish(double lat, double lng, long hora) {
+        if (!hayUltima) return true;
+        return hora - ultimaHora >= MAX_SILENCE_MS
+                || Geohash.distanceMeters(ultimaLat, ultimaLng, lat, lng) >= MIN_DISTANCE_M;
+    }
+
+    public void published(double lat, double lng, long hora) {
+        hayUltima = true;
+        ultimaLat = lat;
+        ultimaLng = lng;
+        ultimaHora = hora;
+    }
+
+    /** La próxima posición se publica sin importar la distancia. */
+    public void reset() {
+        hayUltima = false;
+    }
+
+    /** Intervalo sugerido para el LocationRequest; 0 si no hay que seguir pidiendo posiciones. */
+    public static long intervalFor(boolean hasSpeed, float speed, String estado) {
+        if (Order.ENTREGADO.equals(estado) || Order.CANCELADO.equals(estado)) return 0;
+        if (!Order.EN_CAMINO.equals(estado)) return INTERVAL_IDLE_MS;
+        if (!hasSpeed) return INTERVAL_NORMAL_MS;
+        if (speed >= SPEED_FAST_MS) return INTERVAL_FAST_MS;
+        if (speed < SPEED_STOPPED_MS) return INTERVAL_STOPPED_MS;
+        return INTERVAL_NORMAL_MS;
+    }
+}
@@ -0,0 +1,153 @@
+package com.farmacia.santamarta.data;
+
+import com.farmacia.santamarta.models.DeliveryLocation;
+import com.farmacia.santamarta.models.Order;
+import com.farmacia.santamarta.models.OrderItem;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Arma las actualizaciones multi-ruta que crean un pedido o cambian su
+ * estado o repartidor junto con todos sus índices, para que nunca se vea un
+ * índice que no coincide con el pedido:
+ * <ul>
+ *   <li>`orders_por_cliente/{cliente}/{id}`: estado actual (se conserva como historial).</li>
+ *   <li>`orders_por_repartidor/{repartidor}/{id}`: estado actual, solo mientras no está cerrado.</li>
+ *   <li>`orders_por_estado/{estado}/{id}`: timestamp de creación, para ordenar.</li>
+ *   <li>`orders_geo/{celda}/{id}`: mientras espera repartidor, si tiene punto de entrega en el mapa (ver {@code DispatchService}).</li>
+ * </ul>
+ * Cada cambio sube `version` en 1. La regla de `version` solo acepta el
+ * valor siguiente al guardado, así que de dos cambios calculados sobre la
+ * misma lectura el segundo se rechaza completo y se reintenta con datos
+ * frescos ({@code OrderRepository}).
+ */
+public final class OrderIndexes {
+    public static final String POR_CLIENTE = "orders_por_cliente";
+    public static final String POR_REPARTIDOR = "orders_por_repartidor";
+    public static final String POR_ESTADO = "orders_por_estado";
+    public static final String GEO = "orders_geo";
+
+    private OrderIndexes() {}
+
+    public static boolean isClosed(String estado) {
+        return Order.ENTREGADO.equals(estado) || Order.CANCELADO.equals(estado);
+    }
+
+    /** Transiciones permitidas; la farmacia puede saltarse PREPARANDO si el repartidor recoge enseguida. */
+    public static boolean canTransition(String desde, String hacia) {
+        if (desde == null || hacia == null || desde.equals(hacia) || isClosed(desde)) return false;
+        switch (hacia) {
+            case Order.PREPARANDO:
+                return Order.PENDIENTE.equals(desde);
+            case Order.EN_CAMINO:
+                return Order.PENDIENTE.equals(desde) || Order.PREPARANDO.equals(desde);
+            case Order.ENTREGADO:
+                return Order.EN_CAMINO.equals(desde);
+            case Order.CANCELADO:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Pedido nuevo en PENDIENTE, versión 0, con sus índices. {@code timestamp}
+     * es el valor para `timestamp` (ServerValue.TIMESTAMP en Firebase).
+     */
+    public static Map<String, Object> create(Order order, Object timestamp) {
+        String id = order.getId();
+        Map<String, Object> valor = OrderMapper.toMap(order);
+        valor.remove("repartidor_id");
+        valor.put("estado", Order.PENDIENTE);
+        valor.put("version", 0);
+        valor.put("timestamp", timestamp);
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("orders/" + id, valor);
+        updates.put(POR_CLIENTE + "/" + order.getClienteId() + "/" + id, Order.PENDIENTE);
+        updates.put(POR_ESTADO + "/" + Order.PENDIENTE + "/" + id, timestamp);
+        DeliveryLocation u = order.getUbicacionEntrega();
+        if (u != null && u.hasCoordinates()) {
+            Map<String, Object> geo = new HashMap<>();
+            geo.put("lat", u.getLat());
+            geo.put("lng", u.getLng());
+            geo.put("timestamp", timestamp);
+            updates.put(geoPath(u, id), geo);
+        }
+        return updates;
+    }
+
+    /** Cambio de estado sobre el pedido tal como se leyó; falla si la transición no está permitida. */
+    public static Map<String, Object> transition(Order actual, String nuevo) {
+        String desde = actual.getEstado();
+        if (!canTransition(desde, nuevo)) {
+            throw new IllegalStateException("Transición no permitida: " + desde + " → " + nuevo);
+        }
+        String id = actual.getId();
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("orders/" + id + "/estado", nuevo);
+        updates.put("orders/" + id + "/version", actual.getVersion() + 1);
+        if (desde != null) updates.put(POR_ESTADO + "/" + desde + "/" + id, null);
+        updates.put(POR_ESTADO + "/" + nuevo + "/" + id, actual.getTimestamp());
+        if (actual.getClienteId() != null) {
+            updates.put(POR_CLIENTE + "/" + actual.getClienteId() + "/" + id, nuevo);
+        }
+        boolean cerrado = isClosed(nuevo);
+        if (actual.getRepartidorId() != null) {
+            updates.put(POR_REPARTIDOR + "/" + actual.getRepartidorId() + "/" + id, cerrado ? null : nuevo);
+        } else if (cerrado && hasPoint(actual)) {
+            // Cancelado antes de tener repartidor: deja de ofrecerse
+            updates.put(geoPath(actual.getUbicacionEntrega(), id), null);
+        }
+        return updates;
+    }
+
+    /**
+     * Agrega a {@code updates} la devolución al stock de lo que reservó el
+     * pedido. Va en la misma escritura que lo pasa a CANCELADO: la regla de
+     * `version` hace que se devuelva una sola vez aunque se reintente.
+     */
+    public static void releaseStock(Order order, SalesSummary.Incremento incremento, Object timestamp,
+                                    Map<String, Object> updates) {
+        if (order.getProductos() == null) return;
+        // Un producto repetido en varias líneas tiene que ir en una sola ruta
+        Map<String, long[]> unidades = new LinkedHashMap<>();
+        for (OrderItem item : order.getProductos()) {
+            if (item == null || item.getProductId() == null || item.getCantidad() <= 0) continue;
+            long[] u = unidades.get(item.getProductId());
+            if (u == null) unidades.put(item.getProductId(), u = new long[1]);
+            u[0] += item.getCantidad();
+        }
+        for (Map.Entry<String, long[]> e : unidades.entrySet()) {
+            String producto = "products/" + e.getKey();
+            Object devolucion = incremento.de(e.getValue()[0]);
+            updates.put(producto + "/stock", devolucion);
+            updates.put(producto + "/updated_at", timestamp);
+            SalesSummary.stockDelta(e.getKey(), devolucion, updates);
+        }
+    }
+
+    /** Asigna repartidor a un pedido abierto que todavía no tiene. */
+    public static Map<String, Object> assign(Order actual, String riderId) {
+        if (actual.getRepartidorId() != null || isClosed(actual.getEstado())) {
+            throw new IllegalStateException("El pedido ya no se puede asignar");
+        }
+        String id = actual.getId();
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("orders/" + id + "/repartidor_id", riderId);
+        updates.put("orders/" + id + "/version", actual.getVersion() + 1);
+        updates.put(POR_REPARTIDOR + "/" + riderId + "/" + id, actual.getEstado());
+        if (hasPoint(actual)) updates.put(geoPath(actual.getUbicacionEntrega(), id), null);
+        return updates;
+    }
+
+    // Solo los pedidos con punto en el mapa entran a orders_geo
+    private static boolean hasPoint(Order order) {
+        return order.getUbicacionEntrega() != null && order.getUbicacionEntrega().hasCoordinates();
+    }
+
+    static String geoPath(DeliveryLocation u, String orderId) {
+        return GEO + "/" + Geohash.encode(u.getLat(), u.getLng(), Geohash.PRECISION) + "/" + orderId;
+    }
+}
@@ -0,0 +1,82 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.models.DeliveryLocation;
+import com.farmacia.santamarta.models.Order;
+import com.farmacia.santamarta.models.OrderItem;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Conversión sin reflexión para los nodos `orders/{id}`. */
+public final class OrderMapper {
+    private OrderMapper() {}
+
+    @Nullable
+    public static Order fromValue(String key, Object value) {
+        if (!(value instanceof Map)) return null;
+        Map<String, Object> map = SnapshotValues.map(value);
+        Order o = new Order();
+        o.setId(key);
+        o.setClienteId(SnapshotValues.string(map, "cliente_id"));
+        o.setRepartidorId(SnapshotValues.string(map, "repartidor_id"));
+        o.setTotal(SnapshotValues.number(map, "total"));
+        o.setEstado(SnapshotValues.string(map, "estado"));
+        o.setTimestamp(SnapshotValues.integer(map, "timestamp"));
+        o.setVersion(SnapshotValues.integer(map, "version"));
+
+        List<OrderItem> items = new ArrayList<>();
+        for (Object raw : SnapshotValues.list(map.get("productos"))) {
+            Map<String, Object> item = SnapshotValues.map(raw);
+            if (item.isEmpty()) continue;
+            items.add(new OrderItem(SnapshotValues.string(item, "product_id"),
+                    (int) SnapshotValues.integer(item, "cantidad"),
+                    SnapshotValues.number(item, "subtotal")));
+        }
+        o.setProductos(items);
+
+        Object ubicacion = map.get("ubicacion_entrega");
+        if (ubicacion instanceof Map) {
+            Map<String, Object> u = SnapshotValues.map(ubicacion);
+            String direccion = SnapshotValues.string(u, "direccion_texto");
+            o.setUbicacionEntrega(u.containsKey("lat") && u.containsKey("lng")
+                    ? new DeliveryLocation(SnapshotValues.number(u, "lat"), SnapshotValues.number(u, "lng"), direccion)
+                    : new DeliveryLocation(direccion));
+        }
+        return o;
+    }
+
+    public static Map<String, Object> toMap(Order o) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", o.getId());
+        map.put("cliente_id", o.getClienteId());
+        map.put("repartidor_id", o.getRepartidorId());
+        map.put("total", o.getTotal());
+        map.put("estado", o.getEstado());
+        map.put("timestamp", o.getTimestamp());
+        map.put("version", o.getVersion());
+
+        List<Map<String, Object>> items = new ArrayList<>(o.getProductos().size());
+        for (OrderItem item : o.getProductos()) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("product_id", item.getProductId());
+            m.put("cantidad", item.getCantidad());
+            m.put("subtotal", item.getSubtotal());
+            items.add(m);
+        }
+        map.put("productos", items);
+
+        DeliveryLocation u = o.getUbicacionEntrega();
+        if (u != null) {
+            Map<String, Object> m = new HashMap<>();
+            if (u.hasCoordinates()) {
+                m.put("lat", u.getLat());
+                m.put("lng", u.getLng());
+            }
+            m.put("direccion_texto", u.getDireccionTexto());
+            map.put("ubicacion_entrega", m);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,45 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.models.Product;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversión directa entre el valor crudo de un nodo `products/{id}` y
+ * {@link Product}, sin el mapeo por reflexión de getValue(Product.class).
+ * Se usa con {@code DataSnapshot.getKey()} y {@code DataSnapshot.getValue()}.
+ */
+public final class ProductMapper {
+    private ProductMapper() {}
+
+    @Nullable
+    public static Product fromValue(String key, Object value) {
+        if (!(value instanceof Map)) return null;
+        Map<String, Object> map = SnapshotValues.map(value);
+        Product p = new Product();
+        // La clave del nodo es el código de barras y manda sobre el campo id
+        p.setId(key);
+        p.setNombre(SnapshotValues.string(map, "nombre"));
+        p.setDescripcion(SnapshotValues.string(map, "descripcion"));
+        p.setPrecio(SnapshotValues.number(map, "precio"));
+        p.setStock((int) SnapshotValues.integer(map, "stock"));
+        p.setCategoria(SnapshotValues.string(map, "categoria"));
+        p.setUpdatedAt(SnapshotValues.integer(map, "updated_at"));
+        p.setEliminado(SnapshotValues.bool(map, "eliminado"));
+        return p;
+    }
+
+    /** Campos editables del producto; updated_at lo agrega quien escribe con ServerValue.TIMESTAMP. */
+    public static Map<String, Object> toMap(Product p) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", p.getId());
+        map.put("nombre", p.getNombre());
+        map.put("descripcion", p.getDescripcion());
+        map.put("precio", p.getPrecio());
+        map.put("stock", p.getStock());
+        map.put("categoria", p.getCategoria());
+        if (p.isEliminado()) map.put("eliminado", true);
+        return map;
+    }
+}
@@ -0,0 +1,345 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.Nullable;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de búsqueda en memoria sobre las filas de un {@link CatalogStore}.
+ * Normaliza acentos y mayúsculas una sola vez al indexar; las consultas usan
+ * prefijos de palabra (términos cortos) o trigramas (términos de 3+ letras),
+ * así el costo depende de los candidatos y no del tamaño del catálogo.
+ *
+ * No es seguro entre hilos: cada instancia se usa desde un solo hilo.
+ */
+public class ProductSearchIndex {
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9\u00f1]+");
+
+    // Pesos por campo: el nombre pesa más que la categoría y la descripción
+    private static final int PESO_NOMBRE = 4;
+    private static final int PESO_CATEGORIA = 2;
+    private static final int PESO_DESCRIPCION = 1;
+
+    // Texto normalizado por fila; null si la fila no está indexada
+    private String[] nombres = new String[0];
+    private String[] categorias = new String[0];
+    private String[] descripciones = new String[0];
+    private int count;
+
+    private final Map<String, IntList> trigramas = new HashMap<>();
+    private final TreeMap<String, IntList> palabras = new TreeMap<>();
+    // Filas por categoría normalizada, para filtrar sin recorrer todo el catálogo
+    private final Map<String, IntList> porCategoria = new HashMap<>();
+
+    // Se reutilizan entre consultas; solo se marcan y limpian las filas candidatas
+    private final BitSet marcados = new BitSet();
+    private final BitSet vistos = new BitSet();
+
+    public void rebuild(CatalogStore store) {
+        nombres = new String[store.rowCount()];
+        categorias = new String[store.rowCount()];
+        descripciones = new String[store.rowCount()];
+        count = 0;
+        trigramas.clear();
+        palabras.clear();
+        porCategoria.clear();
+
+        // La categoría se normaliza una vez por código del diccionario
+        List<String> dict = store.getCategorias();
+        String[] categoriasNorm = new String[dict.size()];
+        for (int i = 0; i < categoriasNorm.length; i++) categoriasNorm[i] = normalize(dict.get(i));
+
+        IntList orden = store.keyOrder();
+        for (int i = 0; i < orden.size(); i++) {
+            int row = orden.get(i);
+            int code = store.getCategoriaCode(row);
+            index(row, store.getNombre(row), code >= 0 ? categoriasNorm[code] : "", store.getDescripcion(row));
+        }
+    }
+
+    public void put(CatalogStore store, int row) {
+        put(row, store.getNombre(row), store.getCategoria(row), store.getDescripcion(row));
+    }
+
+    /** Variante con los campos ya leídos, para indexar fuera del hilo que modifica el catálogo. */
+    public void put(int row, String nombre, @Nullable String categoria, String descripcion) {
+        remove(row);
+        index(row, nombre, normalize(categoria), descripcion);
+    }
+
+    public void remove(int row) {
+        if (row >= nombres.length || nombres[row] == null) return;
+        desindexar(row, nombres[row]);
+        desindexar(row, categorias[row]);
+        desindexar(row, descripciones[row]);
+        quitar(porCategoria, categorias[row], row);
+        nombres[row] = null;
+        categorias[row] = null;
+        descripciones[row] = null;
+        count--;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public IntList search(String query) {
+        return search(query, null);
+    }
+
+    /**
+     * Devuelve las filas que contienen todos los términos de la consulta,
+     * ordenadas por relevancia. Una consulta vacía no filtra por texto; la
+     * categoría, si se indica, se compara ya normalizada.
+     */
+    public IntList search(String query, @Nullable String categoria) {
+        String q = normalize(query);
+        String[] terminos = SEPARADORES.split(q);
+        String cat = categoria != null ? normalize(categoria) : null;
+
+        IntList resultado = null;
+        for (String termino : terminos) {
+            if (termino.isEmpty()) continue;
+            if (resultado == null) {
+                resultado = candidatos(termino, null);
+            } else {
+                marcar(resultado, true);
+                IntList siguiente = candidatos(termino, marcados);
+                marcar(resultado, false);
+                resultado = siguiente;
+            }
+            if (resultado.isEmpty()) return resultado;
+        }
+
+        if (resultado == null) {
+            if (cat != null) {
+                IntList enCategoria = porCategoria.get(cat);
+                return enCategoria != null ? ordenar(enCategoria, null) : new IntList();
+            }
+            IntList todas = new IntList(count);
+            for (int row = 0; row < nombres.length; row++) {
+                if (nombres[row] != null) todas.add(row);
+            }
+            return ordenar(todas, null);
+        }
+
+        IntList filtradas = new IntList(resultado.size());
+        for (int i = 0; i < resultado.size(); i++) {
+            int row = resultado.get(i);
+            if (cat == null || cat.equals(categorias[row])) filtradas.add(row);
+        }
+        int[] puntajes = new int[filtradas.size()];
+        for (int i = 0; i < puntajes.length; i++) {
+            for (String termino : terminos) {
+                if (!termino.isEmpty()) puntajes[i] += puntuar(filtradas.get(i), termino);
+            }
+        }
+        return ordenar(filtradas, puntajes);
+    }
+
+    /**
+     * true si la fila saldría en {@code search(query, categoria)}: misma regla
+     * por término que la búsqueda, pero sin recorrer el índice.
+     */
+    public boolean matches(int row, String query, @Nullable String categoria) {
+        if (row >= nombres.length || nombres[row] == null) return false;
+        if (categoria != null && !normalize(categoria).equals(categorias[row])) return false;
+        for (String termino : SEPARADORES.split(normalize(query))) {
+            if (termino.isEmpty()) continue;
+            boolean encontrado = termino.length() < 3
+                    ? empiezaPalabra(nombres[row], termino) || empiezaPalabra(categorias[row], termino)
+                            || empiezaPalabra(descripciones[row], termino)
+                    : nombres[row].contains(termino) || categorias[row].contains(termino)
+                            || descripciones[row].contains(termino);
+            if (!encontrado) return false;
+        }
+        return true;
+    }
+
+    public static String normalize(String texto) {
+        if (texto == null || texto.isEmpty()) return "";
+        String sinAcentos = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        // La ñ se descompone en n + tilde; se recompone para no confundir "año" con "ano"
+        sinAcentos = sinAcentos.replace("n\u0303", "\u00f1");
+        return MARCAS_DIACRITICAS.matcher(sinAcentos).replaceAll("");
+    }
+
+    // Prefijo de alguna palabra del campo, como las claves de `palabras`
+    private static boolean empiezaPalabra(String campo, String termino) {
+        for (int i = campo.indexOf(termino); i >= 0; i = campo.indexOf(termino, i + 1)) {
+            if (i == 0 || esSeparador(campo.charAt(i - 1))) return true;
+        }
+        return false;
+    }
+
+    private static boolean esSeparador(char c) {
+        return !((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '\u00f1');
+    }
+
+    private void index(int row, String nombre, String categoriaNorm, String descripcion) {
+        ensureCapacity(row + 1);
+        nombres[row] = normalize(nombre);
+        categorias[row] = categoriaNorm;
+        descripciones[row] = normalize(descripcion);
+        indexar(row, nombres[row]);
+        indexar(row, categorias[row]);
+        indexar(row, descripciones[row]);
+        agregar(porCategoria, categoriaNorm, row);
+        count++;
+    }
+
+    private void indexar(int row, String campo) {
+        if (campo.isEmpty()) return;
+        for (String palabra : SEPARADORES.split(campo)) {
+            if (palabra.isEmpty()) continue;
+            agregar(palabras, palabra, row);
+            for (int i = 0; i + 3 <= palabra.length(); i++) {
+                agregar(trigramas, palabra.substring(i, i + 3), row);
+            }
+        }
+    }
+
+    // Las claves de una fila se recalculan desde su texto normalizado; no se guardan aparte
+    private void desindexar(int row, String campo) {
+        if (campo.isEmpty()) return;
+        for (String palabra : SEPARADORES.split(campo)) {
+            if (palabra.isEmpty()) continue;
+            quitar(palabras, palabra, row);
+            for (int i = 0; i + 3 <= palabra.length(); i++) {
+                quitar(trigramas, palabra.substring(i, i + 3), row);
+            }
+        }
+    }
+
+    private static void agregar(Map<String, IntList> mapa, String clave, int row) {
+        IntList filas = mapa.get(clave);
+        if (filas == null) {
+            filas = new IntList(4);
+            mapa.put(clave, filas);
+        }
+        // Las claves de una misma fila llegan seguidas; se registra una sola vez
+        if (filas.isEmpty() || filas.get(filas.size() - 1) != row) filas.add(row);
+    }
+
+    private static void quitar(Map<String, IntList> mapa, String clave, int row) {
+        IntList filas = mapa.get(clave);
+        if (filas == null) return;
+        filas.removeValueUnordered(row);
+        if (filas.isEmpty()) mapa.remove(clave);
+    }
+
+    private void marcar(IntList filas, boolean valor) {
+        for (int i = 0; i < filas.size(); i++) marcados.set(filas.get(i), valor);
+    }
+
+    private IntList candidatos(String termino, @Nullable BitSet previos) {
+        IntList candidatos = new IntList();
+        if (termino.length() < 3) {
+            // Términos cortos: solo prefijos de palabra
+            SortedMap<String, IntList> rango = palabras.subMap(termino, termino + Character.MAX_VALUE);
+            for (IntList filas : rango.values()) {
+                for (int i = 0; i < filas.size(); i++) {
+                    int row = filas.get(i);
+                    if ((previos == null || previos.get(row)) && !vistos.get(row)) {
+                        vistos.set(row);
+                        candidatos.add(row);
+                    }
+                }
+            }
+            for (int i = 0; i < candidatos.size(); i++) vistos.clear(candidatos.get(i));
+            return candidatos;
+        }
+
+        // Se parte de la lista de trigramas más corta y se verifica el resto
+        IntList menor = null;
+        for (int i = 0; i + 3 <= termino.length(); i++) {
+            IntList filas = trigramas.get(termino.substring(i, i + 3));
+            if (filas == null) return candidatos;
+            if (menor == null || filas.size() < menor.size()) menor = filas;
+        }
+        for (int i = 0; i < menor.size(); i++) {
+            int row = menor.get(i);
+            if (previos != null && !previos.get(row)) continue;
+            if (nombres[row].contains(termino) || categorias[row].contains(termino)
+                    || descripciones[row].contains(termino)) {
+                candidatos.add(row);
+            }
+        }
+        return candidatos;
+    }
+
+    private int puntuar(int row, String termino) {
+        return PESO_NOMBRE * puntuarCampo(nombres[row], termino)
+                + PESO_CATEGORIA * puntuarCampo(categorias[row], termino)
+                + PESO_DESCRIPCION * puntuarCampo(descripciones[row], termino);
+    }
+
+    private static int puntuarCampo(String campo, String termino) {
+        int i = campo.indexOf(termino);
+        if (i < 0) return 0;
+        // Inicio del campo > inicio de palabra > en medio; la palabra completa suma uno más
+        int fin = i + termino.length();
+        int completa = fin == campo.length() || !Character.isLetterOrDigit(campo.charAt(fin)) ? 1 : 0;
+        if (i == 0) return 3 + completa;
+        return Character.isLetterOrDigit(campo.charAt(i - 1)) ? 1 : 2 + completa;
+    }
+
+    // Ordena por puntaje descendente y luego por nombre; el costo es el de los resultados
+    private IntList ordenar(IntList filas, @Nullable int[] puntajes) {
+        int[] rows = filas.toArray();
+        int[] orden = new int[rows.length];
+        for (int i = 0; i < orden.length; i++) orden[i] = i;
+        // Mergesort sobre posiciones: sin Integer[] ni comparador en caja
+        ordenar(orden, new int[orden.length], 0, orden.length, rows, puntajes);
+        IntList resultado = new IntList(orden.length);
+        for (int i : orden) resultado.add(rows[i]);
+        return resultado;
+    }
+
+    private void ordenar(int[] orden, int[] tmp, int desde, int hasta, int[] rows, @Nullable int[] puntajes) {
+        if (hasta - desde <= 16) {
+            for (int i = desde + 1; i < hasta; i++) {
+                int actual = orden[i];
+                int j = i - 1;
+                for (; j >= desde && comparar(orden[j], actual, rows, puntajes) > 0; j--) orden[j + 1] = orden[j];
+                orden[j + 1] = actual;
+            }
+            return;
+        }
+        int medio = (desde + hasta) >>> 1;
+        ordenar(orden, tmp, desde, medio, rows, puntajes);
+        ordenar(orden, tmp, medio, hasta, rows, puntajes);
+        if (comparar(orden[medio - 1], orden[medio], rows, puntajes) <= 0) return;
+        System.arraycopy(orden, desde, tmp, desde, hasta - desde);
+        int i = desde, j = medio;
+        for (int k = desde; k < hasta; k++) {
+            if (j >= hasta || (i < medio && comparar(tmp[i], tmp[j], rows, puntajes) <= 0)) {
+                orden[k] = tmp[i++];
+            } else {
+                orden[k] = tmp[j++];
+            }
+        }
+    }
+
+    private int comparar(int a, int b, int[] rows, @Nullable int[] puntajes) {
+        if (puntajes != null && puntajes[a] != puntajes[b]) return puntajes[b] - puntajes[a];
+        return nombres[rows[a]].compareTo(nombres[rows[b]]);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= nombres.length) return;
+        int n = Math.max(capacity, nombres.length * 2);
+        nombres = Arrays.copyOf(nombres, n);
+        categorias = Arrays.copyOf(categorias, n);
+        descripciones = Arrays.copyOf(descripciones, n);
+    }
+}
@@ -0,0 +1,67 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.models.Product;
+import java.util.List;
+
+/**
+ * Fuente de filas para la lista de productos. El adaptador lee cada campo
+ * por posición, sin crear un Product por fila. Una posición puede no estar
+ * cargada todavía ({@link #isLoaded}) mientras su página se descarga.
+ */
+public interface ProductSource {
+    int size();
+
+    boolean isLoaded(int position);
+
+    String getId(int position);
+
+    String getNombre(int position);
+
+    String getDescripcion(int position);
+
+    double getPrecio(int position);
+
+    /** Materializa el producto; reservado para acciones del usuario, no para el bind. */
+    @Nullable
+    Product get(int position);
+
+    static ProductSource of(List<Product> products) {
+        return new ProductSource() {
+            @Override
+            public int size() {
+                return products.size();
+            }
+
+            @Override
+            public boolean isLoaded(int position) {
+                return true;
+            }
+
+            @Override
+            public String getId(int position) {
+                return products.get(position).getId();
+            }
+
+            @Override
+            public String getNombre(int position) {
+                return products.get(position).getNombre();
+            }
+
+            @Override
+            public String getDescripcion(int position) {
+                return products.get(position).getDescripcion();
+            }
+
+            @Override
+            public double getPrecio(int position) {
+                return products.get(position).getPrecio();
+            }
+
+            @Override
+            public Product get(int position) {
+                return products.get(position);
+            }
+        };
+    }
+}
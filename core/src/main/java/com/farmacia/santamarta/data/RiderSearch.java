@@ -0,0 +1,96 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Búsqueda del repartidor disponible más cercano a un punto sobre el índice
+ * `riders_geo/{celda}`. Avanza por anillos de celdas alrededor del punto:
+ * quien la usa pide las celdas del siguiente anillo con {@link #nextCells()},
+ * las lee (en Firebase o en memoria) y entrega cada repartidor con
+ * {@link #offer}. Se detiene en cuanto ningún repartidor fuera de lo ya
+ * leído podría estar más cerca, así el costo depende de cuántos hay
+ * alrededor y no del total.
+ */
+public class RiderSearch {
+    /** Pedidos en curso a partir de los cuales el repartidor no recibe más (también en la regla de `carga`). */
+    public static final int MAX_CARGA = 3;
+    // Cada pedido que ya lleva cuenta como esta distancia extra al comparar
+    static final double PENALIZACION_CARGA_M = 400;
+
+    private final double lat, lng;
+    private final int precision;
+    private final int maxRings;
+    private final long minLastUpdate;
+    private final double ladoCelda;
+    private int anillo = 0;
+    private boolean terminado = false;
+    @Nullable private String mejor;
+    @Nullable private String mejorCelda;
+    private double mejorPuntaje = Double.MAX_VALUE;
+    private double mejorDistancia = Double.MAX_VALUE;
+
+    /**
+     * @param maxRings      anillos a revisar como máximo (0 = solo la celda del punto)
+     * @param minLastUpdate se ignoran repartidores sin posición desde antes de este instante
+     */
+    public RiderSearch(double lat, double lng, int precision, int maxRings, long minLastUpdate) {
+        this.lat = lat;
+        this.lng = lng;
+        this.precision = precision;
+        this.maxRings = maxRings;
+        this.minLastUpdate = minLastUpdate;
+        this.ladoCelda = Geohash.minCellSideMeters(precision, lat);
+    }
+
+    /** Celdas del siguiente anillo a leer; vacío cuando la búsqueda terminó. */
+    public List<String> nextCells() {
+        if (isDone()) return Collections.emptyList();
+        return Geohash.ring(lat, lng, precision, anillo);
+    }
+
+    /** Se llama después de entregar todos los repartidores de las celdas de {@link #nextCells()}. */
+    public void ringDone() {
+        // Tras el anillo k, todo lo no leído está al menos a k lados de celda del punto
+        if (mejorPuntaje <= anillo * ladoCelda || anillo >= maxRings) terminado = true;
+        anillo++;
+    }
+
+    public void offer(String riderId, String cell, double riderLat, double riderLng, int carga, long lastUpdate) {
+        if (carga >= MAX_CARGA || lastUpdate < minLastUpdate) return;
+        double distancia = Geohash.distanceMeters(lat, lng, riderLat, riderLng);
+        double puntaje = distancia + carga * PENALIZACION_CARGA_M;
+        if (puntaje < mejorPuntaje || (puntaje == mejorPuntaje && mejor != null && riderId.compareTo(mejor) < 0)) {
+            mejor = riderId;
+            mejorCelda = cell;
+            mejorPuntaje = puntaje;
+            mejorDistancia = distancia;
+        }
+    }
+
+    public boolean isDone() {
+        return terminado;
+    }
+
+    /** Repartidor elegido, o null si no hay ninguno disponible en el radio revisado. */
+    @Nullable
+    public String best() {
+        return mejor;
+    }
+
+    /** Celda del índice donde está el elegido. */
+    @Nullable
+    public String bestCell() {
+        return mejorCelda;
+    }
+
+    public double bestDistanceMeters() {
+        return mejorDistancia;
+    }
+
+    /** Anillos leídos hasta ahora. */
+    public int ringsRead() {
+        return anillo;
+    }
+}
@@ -0,0 +1,203 @@
+package com.farmacia.santamarta.data;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Orden de visita para un repartidor con varias entregas: parte de su
+ * posición, pasa una vez por cada parada y no vuelve a la farmacia.
+ * Arma una ruta con vecino más cercano y la mejora con 2-opt (invertir un
+ * tramo) y Or-opt (mover 1 a 3 paradas seguidas a otro lugar). Si sobra
+ * tiempo, perturba la mejor ruta y vuelve a mejorarla unas cuantas veces
+ * para salir de óptimos locales. Todo se corta al acabarse el tiempo dado;
+ * con la misma entrada el resultado es siempre el mismo.
+ */
+public final class RoutePlanner {
+    // Perturbaciones como máximo; con 20 paradas caben de sobra en unos pocos milisegundos
+    private static final int MAX_KICKS = 100;
+
+    private RoutePlanner() {}
+
+    /**
+     * @param lats, lngs  paradas
+     * @param budgetNanos tiempo máximo para las mejoras; la ruta inicial se calcula siempre
+     * @return índices de las paradas en el orden de visita
+     */
+    public static int[] plan(double startLat, double startLng, double[] lats, double[] lngs, long budgetNanos) {
+        int n = lats.length;
+        if (n == 0) return new int[0];
+        long limite = System.nanoTime() + budgetNanos;
+
+        // Nodo 0 = repartidor, 1..n = paradas
+        double[][] d = new double[n + 1][n + 1];
+        for (int i = 0; i <= n; i++) {
+            double lai = i == 0 ? startLat : lats[i - 1];
+            double lni = i == 0 ? startLng : lngs[i - 1];
+            for (int j = i + 1; j <= n; j++) {
+                double dist = Geohash.distanceMeters(lai, lni, lats[j - 1], lngs[j - 1]);
+                d[i][j] = dist;
+                d[j][i] = dist;
+            }
+        }
+
+        int[] ruta = nearestNeighbour(d, n);
+        localSearch(ruta, d, limite);
+        double largo = length(ruta, d);
+
+        if (n >= 4) {
+            // Semilla fija: misma entrada, misma ruta
+            Random random = new Random(n);
+            int[] prueba = new int[ruta.length];
+            for (int k = 0; k < MAX_KICKS && System.nanoTime() < limite; k++) {
+                System.arraycopy(ruta, 0, prueba, 0, ruta.length);
+                kick(prueba, random);
+                localSearch(prueba, d, limite);
+                double l = length(prueba, d);
+                if (l < largo - 1e-6) {
+                    largo = l;
+                    System.arraycopy(prueba, 0, ruta, 0, ruta.length);
+                }
+            }
+        }
+
+        int[] orden = new int[n];
+        for (int i = 0; i < n; i++) orden[i] = ruta[i + 1] - 1;
+        return orden;
+    }
+
+    private static void localSearch(int[] ruta, double[][] d, long limite) {
+        boolean mejoro = true;
+        while (mejoro && System.nanoTime() < limite) {
+            mejoro = twoOpt(ruta, d, limite);
+            mejoro |= orOpt(ruta, d);
+        }
+    }
+
+    // Double bridge: corta la ruta en cuatro tramos A B C D y los une como A C B D
+    private static void kick(int[] ruta, Random random) {
+        int n = ruta.length - 1;
+        int[] cortes = {1 + random.nextInt(n), 1 + random.nextInt(n), 1 + random.nextInt(n)};
+        Arrays.sort(cortes);
+        int a = cortes[0], b = cortes[1], c = cortes[2];
+        if (a == b || b == c) return;
+        int[] copia = ruta.clone();
+        int k = a;
+        for (int i = b; i < c; i++) ruta[k++] = copia[i];
+        for (int i = a; i < b; i++) ruta[k++] = copia[i];
+    }
+
+    private static double length(int[] ruta, double[][] d) {
+        double total = 0;
+        for (int i = 1; i < ruta.length; i++) total += d[ruta[i - 1]][ruta[i]];
+        return total;
+    }
+
+    /** Largo en metros de recorrer las paradas en {@code orden} desde el inicio. */
+    public static double length(double startLat, double startLng, double[] lats, double[] lngs, int[] orden) {
+        double total = 0;
+        double la = startLat, ln = startLng;
+        for (int i : orden) {
+            total += Geohash.distanceMeters(la, ln, lats[i], lngs[i]);
+            la = lats[i];
+            ln = lngs[i];
+        }
+        return total;
+    }
+
+    static int[] nearestNeighbour(double[][] d, int n) {
+        int[] ruta = new int[n + 1];
+        boolean[] visitado = new boolean[n + 1];
+        visitado[0] = true;
+        for (int k = 1; k <= n; k++) {
+            int actual = ruta[k - 1];
+            int mejor = -1;
+            for (int j = 1; j <= n; j++) {
+                if (!visitado[j] && (mejor < 0 || d[actual][j] < d[actual][mejor])) mejor = j;
+            }
+            ruta[k] = mejor;
+            visitado[mejor] = true;
+        }
+        return ruta;
+    }
+
+    // Invierte ruta[i..j] cuando acorta; el último tramo no tiene arista de salida (ruta abierta)
+    private static boolean twoOpt(int[] ruta, double[][] d, long limite) {
+        int n = ruta.length - 1;
+        boolean mejoro = false;
+        for (int i = 1; i < n; i++) {
+            if (System.nanoTime() > limite) break;
+            for (int j = i + 1; j <= n; j++) {
+                int a = ruta[i - 1], b = ruta[i], c = ruta[j];
+                double antes = d[a][b];
+                double despues = d[a][c];
+                if (j < n) {
+                    int e = ruta[j + 1];
+                    antes += d[c][e];
+                    despues += d[b][e];
+                }
+                if (despues < antes - 1e-6) {
+                    for (int x = i, y = j; x < y; x++, y--) {
+                        int t = ruta[x];
+                        ruta[x] = ruta[y];
+                        ruta[y] = t;
+                    }
+                    mejoro = true;
+                }
+            }
+        }
+        return mejoro;
+    }
+
+    // Mueve un tramo de 1 a 3 paradas a la mejor posición, sin invertirlo
+    private static boolean orOpt(int[] ruta, double[][] d) {
+        int n = ruta.length - 1;
+        boolean mejoro = false;
+        for (int largo = 1; largo <= 3; largo++) {
+            for (int i = 1; i + largo - 1 <= n; i++) {
+                int fin = i + largo - 1;
+                int prev = ruta[i - 1], primero = ruta[i], ultimo = ruta[fin];
+                double quitar = d[prev][primero];
+                double unir = 0;
+                if (fin < n) {
+                    int sig = ruta[fin + 1];
+                    quitar += d[ultimo][sig];
+                    unir = d[prev][sig];
+                }
+                double ahorro = quitar - unir;
+                // Insertar entre ruta[p] y ruta[p+1] (o al final si p == n), fuera del tramo
+                int mejorP = -1;
+                double mejorCosto = ahorro - 1e-6;
+                for (int p = 0; p <= n; p++) {
+                    if (p >= i - 1 && p <= fin) continue;
+                    int x = ruta[p];
+                    double costo = d[x][primero];
+                    if (p < n) costo += d[ultimo][ruta[p + 1]] - d[x][ruta[p + 1]];
+                    if (costo < mejorCosto) {
+                        mejorCosto = costo;
+                        mejorP = p;
+                    }
+                }
+                if (mejorP >= 0) {
+                    mover(ruta, i, fin, mejorP);
+                    mejoro = true;
+                }
+            }
+        }
+        return mejoro;
+    }
+
+    private static void mover(int[] ruta, int i, int fin, int p) {
+        int largo = fin - i + 1;
+        int[] tramo = new int[largo];
+        System.arraycopy(ruta, i, tramo, 0, largo);
+        if (p > fin) {
+            // Lo que está entre el tramo y p se corre hacia atrás
+            System.arraycopy(ruta, fin + 1, ruta, i, p - fin);
+            System.arraycopy(tramo, 0, ruta, p - largo + 1, largo);
+        } else {
+            // p < i - 1: se corre hacia adelante lo que está entre p+1 e i-1
+            System.arraycopy(ruta, p + 1, ruta, p + 1 + largo, i - p - 1);
+            System.arraycopy(tramo, 0, ruta, p + 1, largo);
+        }
+    }
+}
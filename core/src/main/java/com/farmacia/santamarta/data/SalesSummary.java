@@ -0,0 +1,111 @@
+package com.farmacia.santamarta.data;
+
+import com.farmacia.santamarta.models.Order;
+import com.farmacia.santamarta.models.OrderItem;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Resúmenes del panel de control que se mantienen con cada escritura en
+ * lugar de recorrer `orders` y `products` al abrirlo:
+ * <ul>
+ *   <li>`resumen/ventas_diarias/{yyyy-MM-dd}`: { total, pedidos, unidades } de los pedidos entregados ese día.</li>
+ *   <li>`ventas_por_producto/{producto}`: { unidades, total, nombre }; indexado por `unidades` para pedir los más vendidos.</li>
+ *   <li>`resumen/stock/{producto}`: { stock, nombre }, copia del stock de cada producto; indexado por `stock` para pedir los de stock bajo.</li>
+ * </ul>
+ * Las ventas se suman como incrementos en la misma actualización que pasa
+ * el pedido a ENTREGADO: la regla de `version` hace que esa escritura
+ * ocurra una sola vez por pedido, así que un reintento no cuenta doble.
+ * La copia del stock recibe el mismo incremento que `products/{id}/stock`
+ * en la misma escritura, así nunca se separa del valor real.
+ */
+public final class SalesSummary {
+    public static final String VENTAS_DIARIAS = "resumen/ventas_diarias";
+    public static final String STOCK = "resumen/stock";
+    public static final String VENTAS_POR_PRODUCTO = "ventas_por_producto";
+    public static final int UMBRAL_STOCK_BAJO = 10;
+    // Los días se cortan a medianoche en la farmacia, no en UTC
+    private static final TimeZone ZONA = TimeZone.getTimeZone("America/Costa_Rica");
+
+    /** Valor que suma {@code delta} en el servidor (ServerValue.increment en Firebase). */
+    public interface Incremento {
+        Object de(Number delta);
+    }
+
+    private SalesSummary() {}
+
+    /** Clave del día de {@code millis} en la hora de Costa Rica; ordena igual como texto que como fecha. */
+    public static String dayKey(long millis) {
+        SimpleDateFormat formato = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        formato.setTimeZone(ZONA);
+        return formato.format(new Date(millis));
+    }
+
+    /** Agrega a {@code updates} la venta del pedido entregado en {@code entregadoEn}. */
+    public static void addSale(Order order, long entregadoEn, Incremento incremento, Map<String, Object> updates) {
+        // Un producto repetido en varias líneas tiene que ir en una sola ruta
+        Map<String, long[]> unidades = new LinkedHashMap<>();
+        Map<String, Double> montos = new HashMap<>();
+        long totalUnidades = 0;
+        if (order.getProductos() != null) {
+            for (OrderItem item : order.getProductos()) {
+                if (item == null || item.getProductId() == null || item.getCantidad() <= 0) continue;
+                long[] u = unidades.get(item.getProductId());
+                if (u == null) unidades.put(item.getProductId(), u = new long[1]);
+                u[0] += item.getCantidad();
+                Double monto = montos.get(item.getProductId());
+                montos.put(item.getProductId(), (monto != null ? monto : 0) + item.getSubtotal());
+                totalUnidades += item.getCantidad();
+            }
+        }
+
+        String dia = VENTAS_DIARIAS + "/" + dayKey(entregadoEn) + "/";
+        updates.put(dia + "total", incremento.de(order.getTotal()));
+        updates.put(dia + "pedidos", incremento.de(1L));
+        updates.put(dia + "unidades", incremento.de(totalUnidades));
+        for (Map.Entry<String, long[]> e : unidades.entrySet()) {
+            String producto = VENTAS_POR_PRODUCTO + "/" + e.getKey() + "/";
+            updates.put(producto + "unidades", incremento.de(e.getValue()[0]));
+            updates.put(producto + "total", incremento.de(montos.get(e.getKey())));
+        }
+    }
+
+    public static boolean isLowStock(long stock) {
+        return stock <= UMBRAL_STOCK_BAJO;
+    }
+
+    /**
+     * Agrega a {@code updates} el cambio de stock en la copia del resumen.
+     * {@code incremento} es el mismo valor que se escribe en
+     * `products/{id}/stock` en esa actualización.
+     */
+    public static void stockDelta(String productId, Object incremento, Map<String, Object> updates) {
+        updates.put(STOCK + "/" + productId + "/stock", incremento);
+    }
+
+    /**
+     * Stock escrito como valor absoluto (importación del catálogo): la entrada
+     * se reemplaza completa, o se quita si el producto quedó eliminado.
+     */
+    public static void stockSet(String productId, String nombre, long stock, boolean eliminado,
+                                Map<String, Object> updates) {
+        if (eliminado) {
+            updates.put(STOCK + "/" + productId, null);
+            return;
+        }
+        Map<String, Object> entrada = new LinkedHashMap<>();
+        entrada.put("stock", stock);
+        entrada.put("nombre", nombre != null ? nombre : productId);
+        updates.put(STOCK + "/" + productId, entrada);
+    }
+
+    /** Nombre con el que el panel muestra el producto entre los más vendidos, sin leer `products`. */
+    public static void productName(String productId, String nombre, Map<String, Object> updates) {
+        if (nombre != null) updates.put(VENTAS_POR_PRODUCTO + "/" + productId + "/nombre", nombre);
+    }
+}
@@ -0,0 +1,87 @@
+package com.farmacia.santamarta.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lectura tolerante de los valores crudos de Firebase (Map, List, Long,
+ * Double, String, Boolean). Un campo ausente o de otro tipo devuelve el
+ * valor por defecto en lugar de fallar.
+ */
+public final class SnapshotValues {
+    private SnapshotValues() {}
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> map(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : Collections.emptyMap();
+    }
+
+    // Firebase guarda las listas como List si las claves son 0..n-1, si no como Map
+    public static List<Object> list(Object value) {
+        if (value instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<Object> list = (List<Object>) value;
+            return list;
+        }
+        if (value instanceof Map) return new ArrayList<>(((Map<?, ?>) value).values());
+        return Collections.emptyList();
+    }
+
+    public static String string(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    public static double number(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException ignored) {
+                // se trata como ausente
+            }
+        }
+        return 0;
+    }
+
+    public static long integer(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        if (value instanceof Number) return ((Number) value).longValue();
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException ignored) {
+                // "12.0" llega así desde hojas de cálculo
+                return (long) number(map, key);
+            }
+        }
+        return 0;
+    }
+
+    public static boolean bool(Map<String, Object> map, String key) {
+        return Boolean.TRUE.equals(map.get(key));
+    }
+
+    /**
+     * Tamaño aproximado en bytes del valor como JSON, sin serializarlo: sirve
+     * para comparar cuánto trae cada suscripción, no para cobrar datos.
+     */
+    public static long estimateBytes(Object value) {
+        if (value == null) return 4;
+        if (value instanceof String) return ((String) value).length() + 2;
+        if (value instanceof Boolean) return 5;
+        if (value instanceof Number) return 8;
+        long total = 2;
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                total += String.valueOf(e.getKey()).length() + 4 + estimateBytes(e.getValue());
+            }
+        } else if (value instanceof List) {
+            for (Object o : (List<?>) value) total += 1 + estimateBytes(o);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,153 @@
+package com.farmacia.santamarta.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Conteo local de unidades escaneadas, agrupado por código de barras.
+ * Contar un estante deja el stock en lo contado: al primer escaneo de cada
+ * producto se guarda el stock que tenía ({@link #setBase}) y el primer envío
+ * manda {@code contado - base}; lo que se escanee después de ese envío se
+ * suma tal cual. Los envíos son incrementos de `stock` en lotes multi-ruta,
+ * así no pisan los cambios que hagan los pedidos mientras tanto.
+ */
+public class StockTally {
+    private final LinkedHashMap<String, Integer> pendientes = new LinkedHashMap<>();
+    private int unidades;
+    // Stock al primer escaneo, todavía sin descontar de un envío
+    private final Map<String, Integer> bases = new HashMap<>();
+    // Bases que salieron en un lote aún sin confirmar
+    private final Map<String, Integer> enVuelo = new HashMap<>();
+    // Productos cuyo stock ya quedó en lo contado durante este conteo
+    private final Set<String> enviados = new HashSet<>();
+
+    /** Suma una unidad y devuelve el total pendiente de ese producto. */
+    public int add(String productId) {
+        return add(productId, 1);
+    }
+
+    public int add(String productId, int cantidad) {
+        Integer actual = pendientes.get(productId);
+        int total = (actual != null ? actual : 0) + cantidad;
+        if (total == 0) {
+            pendientes.remove(productId);
+        } else {
+            pendientes.put(productId, total);
+        }
+        unidades += cantidad;
+        return total;
+    }
+
+    public int get(String productId) {
+        Integer actual = pendientes.get(productId);
+        return actual != null ? actual : 0;
+    }
+
+    /** true si todavía no se conoce el stock del que parte el conteo de este producto. */
+    public boolean needsBase(String productId) {
+        return !bases.containsKey(productId) && !enVuelo.containsKey(productId) && !enviados.contains(productId);
+    }
+
+    /** Stock que tenía el producto al empezar a contarlo (leído del servidor). */
+    public void setBase(String productId, int stock) {
+        if (needsBase(productId)) bases.put(productId, stock);
+    }
+
+    /** Empieza un conteo nuevo: cada producto vuelve a partir de su stock al escanearlo. */
+    public void startCount() {
+        // Lo que quedó pendiente de un envío fallido conserva su base
+        bases.keySet().retainAll(pendientes.keySet());
+        enviados.clear();
+    }
+
+    public int productCount() {
+        return pendientes.size();
+    }
+
+    public int unitCount() {
+        return unidades;
+    }
+
+    public boolean isEmpty() {
+        return pendientes.isEmpty();
+    }
+
+    /**
+     * Saca lo pendiente en lotes de hasta {@code batchSize} productos y deja
+     * el conteo vacío. Cada valor es el incremento a enviar: lo contado menos
+     * la base si es el primer envío del producto.
+     */
+    public List<Map<String, Integer>> drain(int batchSize) {
+        List<Map<String, Integer>> lotes = new ArrayList<>();
+        Map<String, Integer> lote = null;
+        for (Map.Entry<String, Integer> e : pendientes.entrySet()) {
+            if (lote == null || lote.size() >= batchSize) {
+                lote = new LinkedHashMap<>();
+                lotes.add(lote);
+            }
+            int delta = e.getValue();
+            Integer base = bases.remove(e.getKey());
+            if (base != null) {
+                enVuelo.put(e.getKey(), base);
+                delta -= base;
+            }
+            lote.put(e.getKey(), delta);
+        }
+        pendientes.clear();
+        unidades = 0;
+        return lotes;
+    }
+
+    /** El lote se escribió: sus productos ya quedaron en lo contado. */
+    public void confirm(Map<String, Integer> lote) {
+        for (String id : lote.keySet()) {
+            if (enVuelo.remove(id) != null) enviados.add(id);
+        }
+    }
+
+    /**
+     * Ajusta un lote que la regla de `stock` (nunca negativo) rechazó, con el
+     * stock que hay ahora en el servidor: los pedidos pudieron bajarlo mientras
+     * se contaba. Un incremento que lo dejaría bajo cero se limita a
+     * {@code -stock}, así el producto queda en 0. Los productos con incremento
+     * negativo y sin stock conocido salen del lote y vuelven al conteo.
+     * Devuelve los productos ajustados o devueltos, para avisarle al usuario.
+     */
+    public List<String> fitToStock(Map<String, Integer> lote, Map<String, Integer> stockActual) {
+        List<String> afectados = new ArrayList<>();
+        Map<String, Integer> devueltos = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : lote.entrySet()) {
+            int delta = e.getValue();
+            if (delta >= 0) continue;
+            Integer stock = stockActual.get(e.getKey());
+            if (stock == null) {
+                devueltos.put(e.getKey(), delta);
+            } else if (stock + delta < 0) {
+                e.setValue(-Math.max(stock, 0));
+                afectados.add(e.getKey());
+            }
+        }
+        lote.keySet().removeAll(devueltos.keySet());
+        restore(devueltos);
+        afectados.addAll(devueltos.keySet());
+        return afectados;
+    }
+
+    /** Devuelve un lote que no se pudo enviar; se suma a lo escaneado mientras tanto. */
+    public void restore(Map<String, Integer> lote) {
+        for (Map.Entry<String, Integer> e : lote.entrySet()) {
+            int contados = e.getValue();
+            Integer base = enVuelo.remove(e.getKey());
+            if (base != null) {
+                bases.put(e.getKey(), base);
+                contados += base;
+            }
+            add(e.getKey(), contados);
+        }
+    }
+}
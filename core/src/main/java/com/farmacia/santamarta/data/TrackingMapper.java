@@ -0,0 +1,29 @@
+package com.farmacia.santamarta.data;
+
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.models.TrackingPoint;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Conversión sin reflexión para los nodos `tracking/{orderId}`. */
+public final class TrackingMapper {
+    private TrackingMapper() {}
+
+    /** Devuelve null si falta lat o lng: una posición a medias no se dibuja. */
+    @Nullable
+    public static TrackingPoint fromValue(String orderId, Object value) {
+        if (!(value instanceof Map)) return null;
+        Map<String, Object> map = SnapshotValues.map(value);
+        if (!(map.get("lat") instanceof Number) || !(map.get("lng") instanceof Number)) return null;
+        return new TrackingPoint(orderId, SnapshotValues.number(map, "lat"),
+                SnapshotValues.number(map, "lng"), SnapshotValues.integer(map, "last_update"));
+    }
+
+    public static Map<String, Object> toMap(TrackingPoint point) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("lat", point.getLat());
+        map.put("lng", point.getLng());
+        map.put("last_update", point.getLastUpdate());
+        return map;
+    }
+}
@@ -0,0 +1,70 @@
+package com.farmacia.santamarta.data.io;
+
+import androidx.annotation.Nullable;
+import com.farmacia.santamarta.models.Product;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Exporta el catálogo por páginas ordenadas por clave: solo una página de
+ * {@link #PAGE_SIZE} productos está en memoria a la vez.
+ */
+public class CatalogExporter {
+    public static final int PAGE_SIZE = 500;
+
+    /** Origen de las páginas; la implementación de Firebase es {@code FirebaseCatalogBackend}. */
+    public interface PageSource {
+        /** Hasta {@code limit} hijos con clave mayor que {@code afterKey} (o desde el inicio si es null). */
+        Page page(@Nullable String afterKey, int limit) throws IOException;
+    }
+
+    /**
+     * Una página leída. {@code children} y {@code lastKey} cuentan todos los
+     * hijos recorridos, también los que no se pudieron convertir en producto,
+     * para que un nodo ilegible no se confunda con el final del catálogo.
+     */
+    public static final class Page {
+        final List<Product> products;
+        final int children;
+        @Nullable final String lastKey;
+
+        public Page(List<Product> products, int children, @Nullable String lastKey) {
+            this.products = products;
+            this.children = children;
+            this.lastKey = lastKey;
+        }
+    }
+
+    public interface Listener {
+        void onProgress(long exported);
+    }
+
+    private final PageSource source;
+
+    public CatalogExporter(PageSource source) {
+        this.source = source;
+    }
+
+    /** Escribe todos los productos no eliminados y cierra el archivo; devuelve cuántos se exportaron. */
+    public long run(RecordWriter writer, Listener listener) throws IOException {
+        long exportados = 0;
+        String ultimaClave = null;
+        try {
+            while (true) {
+                Page pagina = source.page(ultimaClave, PAGE_SIZE);
+                for (Product product : pagina.products) {
+                    if (product.isEliminado()) continue;
+                    writer.write(product);
+                    exportados++;
+                }
+                if (pagina.children < PAGE_SIZE || pagina.lastKey == null) break;
+                ultimaClave = pagina.lastKey;
+                listener.onProgress(exportados);
+            }
+        } finally {
+            writer.close();
+        }
+        listener.onProgress(exportados);
+        return exportados;
+    }
+}
@@ -0,0 +1,133 @@
+package com.farmacia.santamarta.data.io;
+
+import com.farmacia.santamarta.data.ProductMapper;
+import com.farmacia.santamarta.data.SalesSummary;
+import com.farmacia.santamarta.models.Product;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Importa productos desde un {@link RecordReader} en lotes multi-ruta de
+ * {@link #BATCH_SIZE} productos. La memoria usada es la de un lote, sin
+ * importar el tamaño del archivo.
+ *
+ * Después de cada lote confirmado se guarda el avance; si la importación
+ * falla, la siguiente con el mismo archivo salta los registros ya escritos.
+ * Reenviar un lote es inofensivo porque cada producto se escribe completo.
+ */
+public class CatalogImporter {
+    public static final int BATCH_SIZE = 500;
+
+    /** Destino de los lotes; la implementación de Firebase es {@code FirebaseCatalogBackend}. */
+    public interface BatchWriter {
+        /** Escribe el lote de forma atómica y bloquea hasta que se confirma. */
+        void write(Map<String, Object> updates) throws IOException;
+    }
+
+    public interface Listener {
+        /** Se llama tras cada lote confirmado, en el hilo de la importación. */
+        void onProgress(ImportReport report);
+    }
+
+    private final BatchWriter writer;
+    // Valor para updated_at (ServerValue.TIMESTAMP en Firebase)
+    private final Object updatedAt;
+
+    public CatalogImporter(BatchWriter writer, Object updatedAt) {
+        this.writer = writer;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Lee el archivo completo. Los registros inválidos se reportan y no se
+     * envían; un error de lectura o de escritura corta la importación y se
+     * propaga, con el avance ya guardado en {@code checkpoint}.
+     */
+    public ImportReport run(RecordReader reader, ImportCheckpoint checkpoint, String fileKey,
+                            Listener listener) throws IOException {
+        ImportReport report = new ImportReport();
+        long yaEnviados = checkpoint.load(fileKey);
+        Map<String, Object> lote = new HashMap<>();
+        int enLote = 0;
+
+        Map<String, Object> registro;
+        while ((registro = reader.next()) != null) {
+            report.recordsRead++;
+            if (report.recordsRead <= yaEnviados) {
+                report.skipped++;
+                continue;
+            }
+            String motivo = validate(registro);
+            if (motivo != null) {
+                report.reject(reader.position(), motivo);
+                continue;
+            }
+            String id = registro.get("id").toString().trim();
+            Product product = ProductMapper.fromValue(id, registro);
+            Map<String, Object> valor = ProductMapper.toMap(product);
+            valor.put("updated_at", updatedAt);
+            // El stock importado es absoluto: la copia del resumen se reemplaza con el mismo valor
+            SalesSummary.stockSet(id, product.getNombre(), product.getStock(), product.isEliminado(), lote);
+            if (lote.put("products/" + id, valor) != null) {
+                // Mismo id más arriba en este lote: gana el último y no se cuenta dos veces
+                report.replaced++;
+            } else {
+                enLote++;
+            }
+
+            if (enLote >= BATCH_SIZE) {
+                enviar(lote, report, enLote, checkpoint, fileKey);
+                lote.clear();
+                enLote = 0;
+                listener.onProgress(report);
+            }
+        }
+        if (enLote > 0) enviar(lote, report, enLote, checkpoint, fileKey);
+        report.completed = true;
+        checkpoint.clear();
+        listener.onProgress(report);
+        return report;
+    }
+
+    private void enviar(Map<String, Object> lote, ImportReport report, int cantidad,
+                        ImportCheckpoint checkpoint, String fileKey) throws IOException {
+        writer.write(lote);
+        report.imported += cantidad;
+        // Los registros rechazados también cuentan: al reanudar no se vuelven a validar
+        checkpoint.save(fileKey, report.recordsRead);
+    }
+
+    /** Motivo por el que el registro no se puede importar, o null si es válido. */
+    static String validate(Map<String, Object> r) {
+        Object id = r.get("id");
+        if (id == null || id.toString().trim().isEmpty()) return "falta el id";
+        String clave = id.toString().trim();
+        for (int i = 0; i < clave.length(); i++) {
+            if (".#$[]/".indexOf(clave.charAt(i)) >= 0) return "id con caracteres no permitidos: " + clave;
+        }
+        Object nombre = r.get("nombre");
+        if (nombre == null || nombre.toString().trim().isEmpty()) return "falta el nombre (" + clave + ")";
+
+        Double precio = numero(r.get("precio"));
+        if (precio == null) return "precio inválido (" + clave + ")";
+        if (precio < 0 || precio.isInfinite() || precio.isNaN()) return "precio negativo (" + clave + ")";
+
+        Double stock = numero(r.get("stock"));
+        if (stock == null || stock != Math.rint(stock)) return "stock inválido (" + clave + ")";
+        if (stock < 0 || stock > Integer.MAX_VALUE) return "stock fuera de rango (" + clave + ")";
+        return null;
+    }
+
+    private static Double numero(Object valor) {
+        if (valor instanceof Number) return ((Number) valor).doubleValue();
+        if (valor instanceof String) {
+            try {
+                return Double.parseDouble(((String) valor).trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
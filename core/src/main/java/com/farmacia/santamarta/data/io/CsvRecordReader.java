@@ -0,0 +1,113 @@
+package com.farmacia.santamarta.data.io;
+
+import androidx.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV con encabezado (RFC 4180): los campos pueden ir entre comillas, con
+ * comas o saltos de línea dentro y comillas dobladas. Las columnas se
+ * identifican por nombre, así el orden en el archivo no importa.
+ */
+public class CsvRecordReader implements RecordReader {
+    private final Reader in;
+    private final List<String> encabezado;
+    private final List<String> campos = new ArrayList<>();
+    private final StringBuilder campo = new StringBuilder();
+    private long linea = 0;
+    private long lineaRegistro = 0;
+    private int pendiente = -2;
+
+    public CsvRecordReader(Reader in) throws IOException {
+        this.in = in;
+        if (!leerFila()) throw new IOException("Archivo CSV vacío");
+        encabezado = new ArrayList<>(campos.size());
+        for (String nombre : campos) {
+            // Un BOM de UTF-8 al inicio pegaría con el nombre de la primera columna
+            encabezado.add(nombre.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @Nullable
+    @Override
+    public Map<String, Object> next() throws IOException {
+        while (leerFila()) {
+            if (campos.size() == 1 && campos.get(0).isEmpty()) continue; // línea en blanco
+            Map<String, Object> registro = new HashMap<>();
+            for (int i = 0; i < encabezado.size() && i < campos.size(); i++) {
+                String valor = campos.get(i);
+                if (!valor.isEmpty()) registro.put(encabezado.get(i), valor);
+            }
+            return registro;
+        }
+        return null;
+    }
+
+    @Override
+    public long position() {
+        return lineaRegistro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Llena `campos` con la siguiente fila; false al final del archivo
+    private boolean leerFila() throws IOException {
+        campos.clear();
+        campo.setLength(0);
+        int c = leer();
+        if (c == -1) return false;
+        lineaRegistro = linea + 1;
+        boolean comillas = false;
+        while (true) {
+            if (comillas) {
+                if (c == -1) throw new IOException("Comillas sin cerrar desde la línea " + lineaRegistro);
+                if (c == '"') {
+                    int sig = leer();
+                    if (sig == '"') {
+                        campo.append('"');
+                    } else {
+                        comillas = false;
+                        c = sig;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') linea++;
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.length() == 0) {
+                comillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    int sig = leer();
+                    if (sig != '\n') pendiente = sig;
+                }
+                if (c != -1) linea++;
+                campos.add(campo.toString());
+                return true;
+            } else {
+                campo.append((char) c);
+            }
+            c = leer();
+        }
+    }
+
+    private int leer() throws IOException {
+        if (pendiente != -2) {
+            int c = pendiente;
+            pendiente = -2;
+            return c;
+        }
+        return in.read();
+    }
+}
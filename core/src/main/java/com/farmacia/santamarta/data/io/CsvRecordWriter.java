@@ -0,0 +1,52 @@
+package com.farmacia.santamarta.data.io;
+
+import com.farmacia.santamarta.models.Product;
+import java.io.IOException;
+import java.io.Writer;
+
+/** CSV con las mismas columnas que lee {@link CsvRecordReader}. */
+public class CsvRecordWriter implements RecordWriter {
+    static final String HEADER = "id,nombre,descripcion,precio,stock,categoria";
+
+    private final Writer out;
+
+    public CsvRecordWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write(HEADER);
+        out.write('\n');
+    }
+
+    @Override
+    public void write(Product p) throws IOException {
+        campo(p.getId());
+        out.write(',');
+        campo(p.getNombre());
+        out.write(',');
+        campo(p.getDescripcion());
+        out.write(',');
+        out.write(Double.toString(p.getPrecio()));
+        out.write(',');
+        out.write(Integer.toString(p.getStock()));
+        out.write(',');
+        campo(p.getCategoria());
+        out.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void campo(String valor) throws IOException {
+        if (valor == null) return;
+        boolean comillas = valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+        if (!comillas) {
+            out.write(valor);
+            return;
+        }
+        out.write('"');
+        out.write(valor.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
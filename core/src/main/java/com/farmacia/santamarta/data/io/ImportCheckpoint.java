@@ -0,0 +1,43 @@
+package com.farmacia.santamarta.data.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Cuántos registros de un archivo ya quedaron escritos en Firebase, para
+ * reanudar después de un fallo sin volver a enviarlos. Se identifica el
+ * archivo por una clave (origen y tamaño); otro archivo empieza de cero.
+ */
+public class ImportCheckpoint {
+    private final File file;
+
+    public ImportCheckpoint(File dir) {
+        this.file = new File(dir, "import_checkpoint.bin");
+    }
+
+    public long load(String fileKey) {
+        if (!file.exists()) return 0;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readUTF().equals(fileKey) ? in.readLong() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public void save(String fileKey, long records) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeUTF(fileKey);
+            out.writeLong(records);
+        }
+        if (!tmp.renameTo(file)) throw new IOException("No se pudo guardar el avance de la importación");
+    }
+
+    public void clear() {
+        file.delete();
+    }
+}
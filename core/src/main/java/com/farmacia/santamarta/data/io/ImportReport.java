@@ -0,0 +1,45 @@
+package com.farmacia.santamarta.data.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Resultado de una importación: conteos y los primeros errores de validación. */
+public class ImportReport {
+    // Solo se guardan los primeros errores; el resto solo se cuenta
+    static final int MAX_ERRORS = 200;
+
+    long recordsRead;
+    long imported;
+    long rejected;
+    long skipped;
+    long replaced;
+    boolean completed;
+    private final List<String> errors = new ArrayList<>();
+
+    void reject(long position, String motivo) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) errors.add("Registro " + position + ": " + motivo);
+    }
+
+    public long getRecordsRead() { return recordsRead; }
+    public long getImported() { return imported; }
+    public long getRejected() { return rejected; }
+    /** Registros ya enviados en un intento anterior y saltados al reanudar. */
+    public long getSkipped() { return skipped; }
+    /** Registros con un id que ya venía en el mismo lote: reemplazan al anterior y no suman a importados. */
+    public long getReplaced() { return replaced; }
+    public boolean isCompleted() { return completed; }
+    public List<String> getErrors() { return Collections.unmodifiableList(errors); }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(completed ? "Importación completa: " : "Importación interrumpida: ")
+                .append(imported).append(" importados, ")
+                .append(rejected).append(" rechazados");
+        if (skipped > 0) sb.append(", ").append(skipped).append(" ya enviados antes");
+        if (replaced > 0) sb.append(", ").append(replaced).append(" con id repetido");
+        if (rejected > errors.size()) sb.append(" (se muestran los primeros ").append(errors.size()).append(")");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,214 @@
+package com.farmacia.santamarta.data.io;
+
+import androidx.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON por registros: acepta un arreglo de productos ({@code [{...}, ...]})
+ * o el formato de exportación de Firebase ({@code {"id": {...}, ...}}), en
+ * cuyo caso la clave pasa a ser el campo {@code id}. Solo se tiene en
+ * memoria el registro actual.
+ */
+public class JsonRecordReader implements RecordReader {
+    private final Reader in;
+    private final boolean porClave;
+    private int pendiente = -2;
+    private long registro = 0;
+    private boolean terminado = false;
+
+    public JsonRecordReader(Reader in) throws IOException {
+        this.in = in;
+        int c = siguienteNoBlanco();
+        if (c == '[') {
+            porClave = false;
+        } else if (c == '{') {
+            porClave = true;
+        } else {
+            throw error("se esperaba '[' o '{' al inicio");
+        }
+        c = siguienteNoBlanco();
+        if (c == (porClave ? '}' : ']')) {
+            terminado = true;
+        } else {
+            devolver(c);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Map<String, Object> next() throws IOException {
+        if (terminado) return null;
+        if (registro > 0) {
+            int c = siguienteNoBlanco();
+            if (c == (porClave ? '}' : ']')) {
+                terminado = true;
+                return null;
+            }
+            if (c != ',') throw error("se esperaba ','");
+        }
+        registro++;
+
+        String clave = null;
+        if (porClave) {
+            if (siguienteNoBlanco() != '"') throw error("se esperaba la clave del producto");
+            clave = leerTexto();
+            if (siguienteNoBlanco() != ':') throw error("se esperaba ':'");
+        }
+        Object valor = leerValor();
+        if (!(valor instanceof Map)) throw error("el registro no es un objeto");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> campos = (Map<String, Object>) valor;
+        if (clave != null && !campos.containsKey("id")) campos.put("id", clave);
+        return campos;
+    }
+
+    @Override
+    public long position() {
+        return registro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Object leerValor() throws IOException {
+        int c = siguienteNoBlanco();
+        switch (c) {
+            case '{': {
+                Map<String, Object> mapa = new HashMap<>();
+                c = siguienteNoBlanco();
+                if (c == '}') return mapa;
+                while (true) {
+                    if (c != '"') throw error("se esperaba un nombre de campo");
+                    String nombre = leerTexto();
+                    if (siguienteNoBlanco() != ':') throw error("se esperaba ':'");
+                    mapa.put(nombre, leerValor());
+                    c = siguienteNoBlanco();
+                    if (c == '}') return mapa;
+                    if (c != ',') throw error("se esperaba ',' o '}'");
+                    c = siguienteNoBlanco();
+                }
+            }
+            case '[': {
+                List<Object> lista = new ArrayList<>();
+                c = siguienteNoBlanco();
+                if (c == ']') return lista;
+                devolver(c);
+                while (true) {
+                    lista.add(leerValor());
+                    c = siguienteNoBlanco();
+                    if (c == ']') return lista;
+                    if (c != ',') throw error("se esperaba ',' o ']'");
+                }
+            }
+            case '"':
+                return leerTexto();
+            case 't':
+                esperar("rue");
+                return Boolean.TRUE;
+            case 'f':
+                esperar("alse");
+                return Boolean.FALSE;
+            case 'n':
+                esperar("ull");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return leerNumero(c);
+                throw error(c == -1 ? "fin de archivo inesperado" : "carácter inesperado '" + (char) c + "'");
+        }
+    }
+
+    // Mismos tipos que entrega Firebase: Long para enteros, Double para el resto
+    private Object leerNumero(int primero) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append((char) primero);
+        boolean decimal = false;
+        int c;
+        while ((c = leer()) != -1) {
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+') {
+                sb.append((char) c);
+            } else if (c == '.' || c == 'e' || c == 'E') {
+                decimal = true;
+                sb.append((char) c);
+            } else {
+                break;
+            }
+        }
+        devolver(c);
+        try {
+            return decimal ? (Object) Double.parseDouble(sb.toString()) : (Object) Long.parseLong(sb.toString());
+        } catch (NumberFormatException e) {
+            throw error("número inválido " + sb);
+        }
+    }
+
+    private String leerTexto() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = leer();
+            if (c == -1) throw error("texto sin cerrar");
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append((char) c);
+                continue;
+            }
+            c = leer();
+            switch (c) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u': {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int d = Character.digit(leer(), 16);
+                        if (d < 0) throw error("escape \\u inválido");
+                        code = code * 16 + d;
+                    }
+                    sb.append((char) code);
+                    break;
+                }
+                case -1: throw error("texto sin cerrar");
+                default: sb.append((char) c); // \" \\ \/
+            }
+        }
+    }
+
+    private void esperar(String resto) throws IOException {
+        for (int i = 0; i < resto.length(); i++) {
+            if (leer() != resto.charAt(i)) throw error("literal inválido");
+        }
+    }
+
+    private int siguienteNoBlanco() throws IOException {
+        int c;
+        do {
+            c = leer();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\uFEFF');
+        return c;
+    }
+
+    private int leer() throws IOException {
+        if (pendiente != -2) {
+            int c = pendiente;
+            pendiente = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private void devolver(int c) {
+        pendiente = c;
+    }
+
+    private IOException error(String detalle) {
+        return new IOException("JSON inválido en el registro " + registro + ": " + detalle);
+    }
+}
@@ -0,0 +1,68 @@
+package com.farmacia.santamarta.data.io;
+
+import com.farmacia.santamarta.models.Product;
+import java.io.IOException;
+import java.io.Writer;
+
+/** Arreglo JSON de productos, escrito a medida que llegan; lo lee {@link JsonRecordReader}. */
+public class JsonRecordWriter implements RecordWriter {
+    private final Writer out;
+    private boolean primero = true;
+
+    public JsonRecordWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write('[');
+    }
+
+    @Override
+    public void write(Product p) throws IOException {
+        out.write(primero ? "\n" : ",\n");
+        primero = false;
+        out.write("{\"id\":");
+        texto(p.getId());
+        out.write(",\"nombre\":");
+        texto(p.getNombre());
+        out.write(",\"descripcion\":");
+        texto(p.getDescripcion());
+        out.write(",\"precio\":");
+        out.write(Double.toString(p.getPrecio()));
+        out.write(",\"stock\":");
+        out.write(Integer.toString(p.getStock()));
+        if (p.getCategoria() != null) {
+            out.write(",\"categoria\":");
+            texto(p.getCategoria());
+        }
+        out.write('}');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.write("\n]\n");
+        out.close();
+    }
+
+    private void texto(String valor) throws IOException {
+        if (valor == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
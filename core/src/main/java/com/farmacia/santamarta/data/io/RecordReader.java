@@ -0,0 +1,21 @@
+package com.farmacia.santamarta.data.io;
+
+import androidx.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Lee un archivo de productos registro por registro, sin cargarlo entero.
+ * Cada registro es el mapa de campos tal como viene en el archivo (mismas
+ * claves que el nodo `products`), listo para validarse y pasarse a
+ * {@link com.farmacia.santamarta.data.ProductMapper}.
+ */
+public interface RecordReader extends Closeable {
+    /** Siguiente registro, o null al final del archivo. */
+    @Nullable
+    Map<String, Object> next() throws IOException;
+
+    /** Posición legible del último registro (línea o número de registro) para el reporte. */
+    long position();
+}
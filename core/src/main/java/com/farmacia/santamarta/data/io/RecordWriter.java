@@ -0,0 +1,10 @@
+package com.farmacia.santamarta.data.io;
+
+import com.farmacia.santamarta.models.Product;
+import java.io.Closeable;
+import java.io.IOException;
+
+/** Escribe productos a un archivo uno por uno; close() cierra el formato y el flujo. */
+public interface RecordWriter extends Closeable {
+    void write(Product product) throws IOException;
+}
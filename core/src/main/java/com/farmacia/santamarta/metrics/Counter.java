@@ -0,0 +1,26 @@
+package com.farmacia.santamarta.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Contador que se puede sumar desde cualquier hilo sin bloquear. */
+public final class Counter {
+    private final LongAdder valor = new LongAdder();
+
+    Counter() {}
+
+    public void inc() {
+        valor.increment();
+    }
+
+    public void add(long n) {
+        valor.add(n);
+    }
+
+    public long get() {
+        return valor.sum();
+    }
+
+    void reset() {
+        valor.reset();
+    }
+}
@@ -0,0 +1,113 @@
+package com.farmacia.santamarta.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de duraciones en nanosegundos con cubetas log-lineales: cada
+ * potencia de 2 se parte en {@link #SUB} cubetas, así el error de un
+ * percentil es como mucho 1/{@value #SUB} del valor y la memoria es fija
+ * (unos 3 KB) sin importar cuántas muestras lleguen. Registrar es un par de
+ * operaciones atómicas, sin bloqueos ni objetos nuevos.
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 3;
+    static final int SUB = 1 << SUB_BITS;
+    // Hasta 2^46 ns (~19 h); lo que pase de ahí cuenta en la última cubeta
+    private static final int MAX_EXP = 46;
+    private static final int BUCKETS = (MAX_EXP - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(BUCKETS);
+    private final AtomicLong cantidad = new AtomicLong();
+    private final AtomicLong suma = new AtomicLong();
+    private final AtomicLong maximo = new AtomicLong();
+
+    Histogram() {}
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        cubetas.incrementAndGet(indice(nanos));
+        cantidad.incrementAndGet();
+        suma.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maximo.get()) && !maximo.compareAndSet(max, nanos)) {
+            // Otro hilo subió el máximo; se vuelve a comparar
+        }
+    }
+
+    /** Registra el tiempo transcurrido desde {@code inicioNanos} (System.nanoTime()). */
+    public void recordSince(long inicioNanos) {
+        record(System.nanoTime() - inicioNanos);
+    }
+
+    public void recordMillis(long millis) {
+        record(millis * 1_000_000L);
+    }
+
+    /** Copia de los valores actuales; las muestras que lleguen mientras tanto pueden quedar fuera. */
+    public Snapshot snapshot() {
+        long[] copia = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copia[i] = cubetas.get(i);
+            n += copia[i];
+        }
+        return new Snapshot(copia, n, suma.get(), maximo.get());
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) cubetas.set(i, 0);
+        cantidad.set(0);
+        suma.set(0);
+        maximo.set(0);
+    }
+
+    static int indice(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        if (exp > MAX_EXP) return BUCKETS - 1;
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+        return (exp - SUB_BITS + 1) * SUB + sub;
+    }
+
+    // Límite superior de la cubeta, para no reportar un percentil menor al real
+    static long limiteSuperior(int indice) {
+        if (indice < SUB) return indice;
+        int exp = indice / SUB + SUB_BITS - 1;
+        long sub = indice % SUB;
+        return ((SUB + sub + 1) << (exp - SUB_BITS)) - 1;
+    }
+
+    public static final class Snapshot {
+        private final long[] cubetas;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] cubetas, long count, long sum, long max) {
+            this.cubetas = cubetas;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() { return count; }
+        public long getMax() { return max; }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /** Valor bajo el que cae la fracción {@code p} (0..1) de las muestras. */
+        public long percentile(double p) {
+            if (count == 0) return 0;
+            long objetivo = Math.max(1, (long) Math.ceil(p * count));
+            long acumulado = 0;
+            for (int i = 0; i < cubetas.length; i++) {
+                acumulado += cubetas[i];
+                if (acumulado >= objetivo) return Math.min(limiteSuperior(i), max);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.farmacia.santamarta.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de métricas de la app: contadores e histogramas de duración por
+ * nombre. Los nombres van con puntos por área (`firebase.products.pagina`,
+ * `escaner.escaneo_a_resultado`). Quien mide en un camino caliente guarda
+ * la referencia en un campo estático y no vuelve a buscarla por nombre.
+ */
+public final class Metrics {
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static volatile long desde = System.currentTimeMillis();
+
+    private Metrics() {}
+
+    public static Counter counter(String nombre) {
+        Counter c = counters.get(nombre);
+        if (c != null) return c;
+        Counter nuevo = new Counter();
+        c = counters.putIfAbsent(nombre, nuevo);
+        return c != null ? c : nuevo;
+    }
+
+    public static Histogram histogram(String nombre) {
+        Histogram h = histograms.get(nombre);
+        if (h != null) return h;
+        Histogram nuevo = new Histogram();
+        h = histograms.putIfAbsent(nombre, nuevo);
+        return h != null ? h : nuevo;
+    }
+
+    /** Valores actuales ordenados por nombre. */
+    public static MetricsReport snapshot() {
+        Map<String, Long> c = new TreeMap<>();
+        for (Map.Entry<String, Counter> e : counters.entrySet()) c.put(e.getKey(), e.getValue().get());
+        Map<String, Histogram.Snapshot> h = new TreeMap<>();
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) h.put(e.getKey(), e.getValue().snapshot());
+        return new MetricsReport(desde, System.currentTimeMillis(), c, h);
+    }
+
+    /** Pone todo en cero sin soltar las referencias que guardan los que miden. */
+    public static void reset() {
+        for (Counter c : counters.values()) c.reset();
+        for (Histogram h : histograms.values()) h.reset();
+        desde = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,93 @@
+package com.farmacia.santamarta.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Métricas tomadas en un momento, como texto para la pantalla o como JSON
+ * para exportar. El JSON lleva además los datos del equipo y la versión que
+ * pase quien exporta, para comparar teléfonos y versiones.
+ */
+public final class MetricsReport {
+    private final long desde;
+    private final long hasta;
+    private final Map<String, Long> counters;
+    private final Map<String, Histogram.Snapshot> histograms;
+
+    MetricsReport(long desde, long hasta, Map<String, Long> counters, Map<String, Histogram.Snapshot> histograms) {
+        this.desde = desde;
+        this.hasta = hasta;
+        this.counters = counters;
+        this.histograms = histograms;
+    }
+
+    public Map<String, Long> getCounters() { return counters; }
+    public Map<String, Histogram.Snapshot> getHistograms() { return histograms; }
+
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Últimos %d s%n%n", (hasta - desde) / 1000));
+        for (Map.Entry<String, Histogram.Snapshot> e : histograms.entrySet()) {
+            Histogram.Snapshot s = e.getValue();
+            if (s.getCount() == 0) continue;
+            sb.append(e.getKey()).append('\n');
+            sb.append(String.format(Locale.ROOT, "  n=%d  p50=%s  p90=%s  p99=%s  max=%s%n", s.getCount(),
+                    ms(s.percentile(0.5)), ms(s.percentile(0.9)), ms(s.percentile(0.99)), ms(s.getMax())));
+        }
+        if (!counters.isEmpty()) sb.append('\n');
+        for (Map.Entry<String, Long> e : counters.entrySet()) {
+            sb.append(e.getKey()).append(" = ").append(e.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** JSON con {@code equipo} (modelo, versión de Android, de la app...) en el encabezado. */
+    public String toJson(Map<String, String> equipo) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"desde\":").append(desde).append(",\"hasta\":").append(hasta).append(",\"equipo\":{");
+        boolean primero = true;
+        for (Map.Entry<String, String> e : equipo.entrySet()) {
+            if (!primero) sb.append(',');
+            primero = false;
+            texto(sb, e.getKey()).append(':');
+            texto(sb, e.getValue());
+        }
+        sb.append("},\"contadores\":{");
+        primero = true;
+        for (Map.Entry<String, Long> e : counters.entrySet()) {
+            if (!primero) sb.append(',');
+            primero = false;
+            texto(sb, e.getKey()).append(':').append(e.getValue());
+        }
+        // Duraciones en microsegundos: enteros, y alcanza para cuadros de 16 ms o lecturas de segundos
+        sb.append("},\"histogramas_us\":{");
+        primero = true;
+        for (Map.Entry<String, Histogram.Snapshot> e : histograms.entrySet()) {
+            Histogram.Snapshot s = e.getValue();
+            if (!primero) sb.append(',');
+            primero = false;
+            texto(sb, e.getKey()).append(String.format(Locale.ROOT,
+                    ":{\"n\":%d,\"media\":%d,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"max\":%d}",
+                    s.getCount(), Math.round(s.getMean() / 1000), s.percentile(0.5) / 1000,
+                    s.percentile(0.9) / 1000, s.percentile(0.99) / 1000, s.getMax() / 1000));
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static String ms(long nanos) {
+        return nanos >= 10_000_000L
+                ? String.format(Locale.ROOT, "%dms", nanos / 1_000_000L)
+                : String.format(Locale.ROOT, "%.2fms", nanos / 1e6);
+    }
+
+    private static StringBuilder texto(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"');
+    }
+}
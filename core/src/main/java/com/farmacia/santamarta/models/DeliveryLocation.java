@@ -0,0 +1,35 @@
+package com.farmacia.santamarta.models;
+
+public class DeliveryLocation {
+    private double lat;
+    private double lng;
+    private String direccionTexto;
+    // false si el cliente solo escribió la dirección (sin permiso de ubicación)
+    private boolean conCoordenadas = true;
+
+    public DeliveryLocation() {
+        // Constructor vacío requerido para Firebase
+    }
+
+    public DeliveryLocation(double lat, double lng, String direccionTexto) {
+        this.lat = lat;
+        this.lng = lng;
+        this.direccionTexto = direccionTexto;
+    }
+
+    /** Solo la dirección escrita, sin punto en el mapa: no entra al reparto automático. */
+    public DeliveryLocation(String direccionTexto) {
+        this.direccionTexto = direccionTexto;
+        this.conCoordenadas = false;
+    }
+
+    public boolean hasCoordinates() { return conCoordenadas; }
+
+    // Getters y Setters
+    public double getLat() { return lat; }
+    public void setLat(double lat) { this.lat = lat; this.conCoordenadas = true; }
+    public double getLng() { return lng; }
+    public void setLng(double lng) { this.lng = lng; this.conCoordenadas = true; }
+    public String getDireccionTexto() { return direccionTexto; }
+    public void setDireccionTexto(String direccionTexto) { this.direccionTexto = direccionTexto; }
+}
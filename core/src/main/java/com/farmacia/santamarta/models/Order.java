@@ -0,0 +1,47 @@
+package com.farmacia.santamarta.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Order {
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String PREPARANDO = "PREPARANDO";
+    public static final String EN_CAMINO = "EN_CAMINO";
+    public static final String ENTREGADO = "ENTREGADO";
+    public static final String CANCELADO = "CANCELADO";
+
+    private String id;
+    private String clienteId;
+    private String repartidorId;
+    private List<OrderItem> productos = new ArrayList<>();
+    private double total;
+    private String estado;
+    private DeliveryLocation ubicacionEntrega;
+    private long timestamp;
+    // Sube en 1 con cada escritura que cambia estado o repartidor; ver OrderIndexes
+    private long version;
+
+    public Order() {
+        // Constructor vacío requerido para Firebase
+    }
+
+    // Getters y Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getClienteId() { return clienteId; }
+    public void setClienteId(String clienteId) { this.clienteId = clienteId; }
+    public String getRepartidorId() { return repartidorId; }
+    public void setRepartidorId(String repartidorId) { this.repartidorId = repartidorId; }
+    public List<OrderItem> getProductos() { return productos; }
+    public void setProductos(List<OrderItem> productos) { this.productos = productos; }
+    public double getTotal() { return total; }
+    public void setTotal(double total) { this.total = total; }
+    public String getEstado() { return estado; }
+    public void setEstado(String estado) { this.estado = estado; }
+    public DeliveryLocation getUbicacionEntrega() { return ubicacionEntrega; }
+    public void setUbicacionEntrega(DeliveryLocation ubicacionEntrega) { this.ubicacionEntrega = ubicacionEntrega; }
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+}
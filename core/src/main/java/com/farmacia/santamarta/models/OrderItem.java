@@ -0,0 +1,25 @@
+package com.farmacia.santamarta.models;
+
+public class OrderItem {
+    private String productId;
+    private int cantidad;
+    private double subtotal;
+
+    public OrderItem() {
+        // Constructor vacío requerido para Firebase
+    }
+
+    public OrderItem(String productId, int cantidad, double subtotal) {
+        this.productId = productId;
+        this.cantidad = cantidad;
+        this.subtotal = subtotal;
+    }
+
+    // Getters y Setters
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+    public int getCantidad() { return cantidad; }
+    public void setCantidad(int cantidad) { this.cantidad = cantidad; }
+    public double getSubtotal() { return subtotal; }
+    public void setSubtotal(double subtotal) { this.subtotal = subtotal; }
+}
@@ -7,6 +7,8 @@ public class Product {
     private double precio;
     private int stock;
     private String categoria;
+    private long updatedAt;
+    private boolean eliminado;
 
     public Product() {
         // Constructor vacío requerido para Firebase
@@ -34,4 +36,11 @@ public class Product {
     public void setStock(int stock) { this.stock = stock; }
     public String getCategoria() { return categoria; }
     public void setCategoria(String categoria) { this.categoria = categoria; }
+
+    // Marca de tiempo del servidor en cada escritura (`updated_at`, ver ProductMapper); permite sincronizar solo los cambios
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+    // Los productos no se borran: se marcan para que el borrado llegue en la sincronización
+    public boolean isEliminado() { return eliminado; }
+    public void setEliminado(boolean eliminado) { this.eliminado = eliminado; }
 }
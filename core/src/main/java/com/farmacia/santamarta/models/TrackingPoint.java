@@ -0,0 +1,29 @@
+package com.farmacia.santamarta.models;
+
+public class TrackingPoint {
+    private String orderId;
+    private double lat;
+    private double lng;
+    private long lastUpdate;
+
+    public TrackingPoint() {
+        // Constructor vacío requerido para Firebase
+    }
+
+    public TrackingPoint(String orderId, double lat, double lng, long lastUpdate) {
+        this.orderId = orderId;
+        this.lat = lat;
+        this.lng = lng;
+        this.lastUpdate = lastUpdate;
+    }
+
+    // Getters y Setters
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+    public double getLat() { return lat; }
+    public void setLat(double lat) { this.lat = lat; }
+    public double getLng() { return lng; }
+    public void setLng(double lng) { this.lng = lng; }
+    public long getLastUpdate() { return lastUpdate; }
+    public void setLastUpdate(long lastUpdate) { this.lastUpdate = lastUpdate; }
+}
@@ -0,0 +1,81 @@
+package com.farmacia.santamarta.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CatalogCacheTest {
+    @Rule public TemporaryFolder carpeta = new TemporaryFolder();
+
+    @Test
+    public void loQueSeGuardaSeLeeIgual() throws IOException {
+        StringBuilder larga = new StringBuilder();
+        // Más de 64 KB en UTF-8: writeUTF no lo admitía
+        for (int i = 0; i < 40_000; i++) larga.append('ñ');
+
+        CatalogStore store = new CatalogStore();
+        store.insert("b", "Bálsamo", larga.toString(), 2.5, 3, "Piel", 7);
+        store.insert("a", "Alcohol", "", 1.25, 0, null, 5);
+        store.setLastUpdatedAt(99);
+        CatalogCache cache = new CatalogCache(carpeta.getRoot());
+        cache.save(store);
+
+        CatalogStore leido = cache.load();
+        assertEquals(2, leido.size());
+        assertEquals(99, leido.getLastUpdatedAt());
+        int a = leido.rowOf("a");
+        assertEquals("Alcohol", leido.getNombre(a));
+        assertNull(leido.getCategoria(a));
+        assertEquals(5, leido.getUpdatedAt(a));
+        int b = leido.rowOf("b");
+        assertEquals("Bálsamo", leido.getNombre(b));
+        assertEquals(larga.toString(), leido.getDescripcion(b));
+        assertEquals(2.5, leido.getPrecio(b), 0);
+        assertEquals(3, leido.getStock(b));
+        assertEquals("Piel", leido.getCategoria(b));
+    }
+
+    @Test
+    public void sinArchivoDevuelveCatalogoVacio() {
+        assertEquals(0, new CatalogCache(carpeta.getRoot()).load().size());
+    }
+
+    @Test
+    public void unArchivoDanadoSeDescarta() throws IOException {
+        CatalogStore store = new CatalogStore();
+        store.insert("a", "Alcohol", "", 1, 1, "Piel", 0);
+        CatalogCache cache = new CatalogCache(carpeta.getRoot());
+        cache.save(store);
+        File archivo = carpeta.getRoot().listFiles()[0];
+
+        // Código de categoría fuera del diccionario
+        try (RandomAccessFile raf = new RandomAccessFile(archivo, "rw")) {
+            raf.seek(raf.length() - 12);
+            raf.writeInt(7);
+        }
+        assertEquals(0, cache.load().size());
+        assertFalse(archivo.exists());
+    }
+
+    @Test
+    public void unArchivoTruncadoSeDescarta() throws IOException {
+        CatalogStore store = new CatalogStore();
+        store.insert("a", "Alcohol", "", 1, 1, null, 0);
+        CatalogCache cache = new CatalogCache(carpeta.getRoot());
+        cache.save(store);
+        File archivo = carpeta.getRoot().listFiles()[0];
+
+        try (RandomAccessFile raf = new RandomAccessFile(archivo, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        assertEquals(0, cache.load().size());
+        assertFalse(archivo.exists());
+    }
+}
@@ -0,0 +1,53 @@
+package com.farmacia.santamarta.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class CatalogStoreTest {
+
+    @Test
+    public void enterosPrimeroEnOrdenNumericoYLuegoTexto() {
+        List<String> claves = new ArrayList<>(Arrays.asList(
+                "prod_2", "10", "-1", "2", "05", "-0", "0", "2147483647", "2147483648", "-2147483648", "a", "+5"));
+        Collections.sort(claves, CatalogStore.KEY_ORDER);
+        assertEquals(Arrays.asList(
+                "-2147483648", "-1", "0", "2", "10", "2147483647",
+                // Lo que no es un entero canónico de 32 bits se ordena como texto
+                "+5", "-0", "05", "2147483648", "a", "prod_2"), claves);
+    }
+
+    @Test
+    public void insertarDesordenadoMantieneElOrdenPorClave() {
+        CatalogStore store = new CatalogStore();
+        for (String id : new String[] {"b", "10", "a", "9", "c"}) {
+            store.insert(id, id, "", 1, 1, null, 0);
+        }
+        IntList orden = store.keyOrder();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < orden.size(); i++) ids.add(store.getId(orden.get(i)));
+        assertEquals(Arrays.asList("9", "10", "a", "b", "c"), ids);
+        assertEquals(2, store.positionOf("a"));
+        assertEquals("a", store.getId(store.rowOf("a")));
+    }
+
+    @Test
+    public void borrarQuitaLaClaveYDejaLaFilaMuerta() {
+        CatalogStore store = new CatalogStore();
+        store.insert("a", "A", "", 1, 1, "Piel", 0);
+        store.insert("b", "B", "", 1, 1, null, 0);
+        int row = store.rowOf("a");
+
+        assertEquals(0, store.remove("a"));
+        assertEquals(-1, store.remove("a"));
+        assertEquals(-1, store.rowOf("a"));
+        assertEquals(1, store.size());
+        assertEquals(2, store.rowCount());
+        assertTrue(!store.isLive(row));
+    }
+}
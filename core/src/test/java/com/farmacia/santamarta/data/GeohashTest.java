@@ -0,0 +1,46 @@
+package com.farmacia.santamarta.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class GeohashTest {
+
+    @Test
+    public void codificaComoElGeohashEstandar() {
+        // Ejemplo clásico de geohash.org
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+    }
+
+    @Test
+    public void losAnillosTienenLaCantidadDeCeldasEsperada() {
+        assertEquals(1, Geohash.ring(9.9281, -84.0907, Geohash.PRECISION, 0).size());
+        assertEquals(8, Geohash.ring(9.9281, -84.0907, Geohash.PRECISION, 1).size());
+        assertEquals(16, Geohash.ring(9.9281, -84.0907, Geohash.PRECISION, 2).size());
+    }
+
+    @Test
+    public void elPrimerAnilloRodeaLaCeldaSinRepetirla() {
+        String centro = Geohash.encode(9.9281, -84.0907, Geohash.PRECISION);
+        assertEquals(centro, Geohash.ring(9.9281, -84.0907, Geohash.PRECISION, 0).get(0));
+        List<String> vecinas = Geohash.ring(9.9281, -84.0907, Geohash.PRECISION, 1);
+        Set<String> distintas = new HashSet<>(vecinas);
+        assertEquals(8, distintas.size());
+        assertFalse(distintas.contains(centro));
+        // Un punto una celda al norte cae en una vecina
+        double alto = Geohash.cellHeightDegrees(Geohash.PRECISION);
+        assertTrue(distintas.contains(Geohash.encode(9.9281 + alto, -84.0907, Geohash.PRECISION)));
+    }
+
+    @Test
+    public void distanciaAproximadaEnMetros() {
+        // Un grado de latitud son ~111 km
+        assertEquals(111_195, Geohash.distanceMeters(0, 0, 1, 0), 1);
+        assertEquals(0, Geohash.distanceMeters(9.9, -84, 9.9, -84), 0);
+    }
+}
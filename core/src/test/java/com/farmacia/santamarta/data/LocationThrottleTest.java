@@ -0,0 +1,46 @@
+package com.farmacia.santamarta.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.farmacia.santamarta.models.Order;
+import org.junit.Test;
+
+public class LocationThrottleTest {
+    private static final double LAT = 9.9281, LNG = -84.0907;
+    // ~1 m de latitud en grados
+    private static final double METRO = 1 / 111_195.0;
+
+    @Test
+    public void laPrimeraPosicionSiempreSePublica() {
+        assertTrue(new LocationThrottle().shouldPublish(LAT, LNG, 0));
+    }
+
+    @Test
+    public void descartaLasCercanasHastaQuePasaElSilencioMaximo() {
+        LocationThrottle throttle = new LocationThrottle();
+        throttle.published(LAT, LNG, 0);
+        assertFalse(throttle.shouldPublish(LAT + 5 * METRO, LNG, 1_000));
+        assertTrue(throttle.shouldPublish(LAT + 20 * METRO, LNG, 1_000));
+        assertTrue(throttle.shouldPublish(LAT, LNG, LocationThrottle.MAX_SILENCE_MS));
+    }
+
+    @Test
+    public void resetPublicaLaSiguiente() {
+        LocationThrottle throttle = new LocationThrottle();
+        throttle.published(LAT, LNG, 0);
+        throttle.reset();
+        assertTrue(throttle.shouldPublish(LAT, LNG, 1));
+    }
+
+    @Test
+    public void elIntervaloDependeDelEstadoYLaVelocidad() {
+        assertEquals(0, LocationThrottle.intervalFor(true, 10, Order.ENTREGADO));
+        assertEquals(0, LocationThrottle.intervalFor(true, 10, Order.CANCELADO));
+        assertEquals(LocationThrottle.INTERVAL_IDLE_MS, LocationThrottle.intervalFor(true, 10, Order.PENDIENTE));
+        assertEquals(LocationThrottle.INTERVAL_NORMAL_MS, LocationThrottle.intervalFor(false, 0, Order.EN_CAMINO));
+        assertEquals(LocationThrottle.INTERVAL_FAST_MS, LocationThrottle.intervalFor(true, 10, Order.EN_CAMINO));
+        assertEquals(LocationThrottle.INTERVAL_STOPPED_MS, LocationThrottle.intervalFor(true, 0.5f, Order.EN_CAMINO));
+    }
+}
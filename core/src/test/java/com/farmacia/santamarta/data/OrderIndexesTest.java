@@ -0,0 +1,245 @@
+package com.farmacia.santamarta.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.farmacia.santamarta.models.DeliveryLocation;
+import com.farmacia.santamarta.models.Order;
+import com.farmacia.santamarta.models.OrderItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Cambios de estado concurrentes sobre una base en memoria que aplica las
+ * actualizaciones multi-ruta de forma atómica y con la regla de `version`
+ * de database.rules.json: después de cada intento, los índices tienen que
+ * coincidir con el pedido.
+ */
+public class OrderIndexesTest {
+    private static final String[] ESTADOS = {
+            Order.PENDIENTE, Order.PREPARANDO, Order.EN_CAMINO, Order.ENTREGADO, Order.CANCELADO};
+    private static final String[] REPARTIDORES = {"r1", "r2", "r3"};
+
+    private Base base;
+
+    @Before
+    public void setUp() {
+        base = new Base();
+    }
+
+    @Test
+    public void elSegundoCambioSobreLaMismaLecturaSeRechaza() {
+        crear("o1", true);
+        Order leido = leer("o1");
+
+        assertTrue(base.update(OrderIndexes.transition(leido, Order.PREPARANDO)));
+        assertFalse(base.update(OrderIndexes.transition(leido, Order.CANCELADO)));
+        assertIndicesCoinciden("o1");
+        assertEquals(Order.PREPARANDO, leer("o1").getEstado());
+
+        // El reintento con datos frescos sí pasa
+        assertTrue(base.update(OrderIndexes.transition(leer("o1"), Order.CANCELADO)));
+        assertIndicesCoinciden("o1");
+        assertEquals(Order.CANCELADO, leer("o1").getEstado());
+    }
+
+    @Test
+    public void cancelarAntesDeAsignarDejaElPedidoSinRepartidor() {
+        crear("o1", true);
+        Order leido = leer("o1");
+
+        assertTrue(base.update(OrderIndexes.transition(leido, Order.CANCELADO)));
+        assertFalse(base.update(OrderIndexes.assign(leido, "r1")));
+        try {
+            OrderIndexes.assign(leer("o1"), "r1");
+            fail("Un pedido cancelado no se puede asignar");
+        } catch (IllegalStateException esperado) {
+            // el reintento lo descarta
+        }
+        assertIndicesCoinciden("o1");
+        assertNull(base.get(OrderIndexes.POR_REPARTIDOR + "/r1/o1"));
+    }
+
+    @Test
+    public void cancelarDespuesDeAsignarQuitaElPedidoDelRepartidor() {
+        crear("o1", true);
+        Order leido = leer("o1");
+
+        assertTrue(base.update(OrderIndexes.assign(leido, "r1")));
+        assertFalse(base.update(OrderIndexes.transition(leido, Order.CANCELADO)));
+        assertTrue(base.update(OrderIndexes.transition(leer("o1"), Order.CANCELADO)));
+        assertIndicesCoinciden("o1");
+        assertNull(base.get(OrderIndexes.POR_REPARTIDOR + "/r1/o1"));
+    }
+
+    @Test
+    public void cancelarDevuelveLoReservadoPorProducto() {
+        Order order = new Order();
+        order.setId("o1");
+        order.setProductos(Arrays.asList(
+                new OrderItem("p1", 2, 10), new OrderItem("p2", 1, 5), new OrderItem("p1", 3, 15)));
+        Map<String, Object> updates = new HashMap<>();
+        OrderIndexes.releaseStock(order, delta -> delta, "ahora", updates);
+
+        assertEquals(5L, updates.get("products/p1/stock"));
+        assertEquals(1L, updates.get("products/p2/stock"));
+        assertEquals("ahora", updates.get("products/p1/updated_at"));
+        assertEquals(5L, updates.get(SalesSummary.STOCK + "/p1/stock"));
+        assertEquals(1L, updates.get(SalesSummary.STOCK + "/p2/stock"));
+        assertEquals(6, updates.size());
+    }
+
+    @Test
+    public void cambiosIntercaladosConLecturasViejasNoDesalineanLosIndices() {
+        Random random = new Random(42);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add("o" + i);
+            crear("o" + i, i % 3 != 0);
+        }
+
+        // Cada actor lee, espera un poco y escribe; otros escriben en el medio
+        for (int ronda = 0; ronda < 2_000; ronda++) {
+            String id = ids.get(random.nextInt(ids.size()));
+            Order viejo = leer(id);
+            for (int i = random.nextInt(3); i > 0; i--) {
+                intentar(leer(ids.get(random.nextInt(ids.size()))), random);
+            }
+            // Si se rechaza por versión, se reintenta desde una lectura fresca
+            if (!intentar(viejo, random)) intentar(leer(id), random);
+            for (String otro : ids) assertIndicesCoinciden(otro);
+        }
+    }
+
+    // Aplica un cambio al azar; false si no se permitía o la regla de versión lo rechazó
+    private boolean intentar(Order actual, Random random) {
+        Map<String, Object> updates;
+        try {
+            if (actual.getRepartidorId() == null && random.nextInt(3) == 0) {
+                updates = OrderIndexes.assign(actual, REPARTIDORES[random.nextInt(REPARTIDORES.length)]);
+            } else {
+                updates = OrderIndexes.transition(actual, ESTADOS[random.nextInt(ESTADOS.length)]);
+            }
+        } catch (IllegalStateException noPermitida) {
+            return false;
+        }
+        return base.update(updates);
+    }
+
+    private void crear(String id, boolean conCoordenadas) {
+        Order order = new Order();
+        order.setId(id);
+        order.setClienteId("c1");
+        order.setTotal(10);
+        order.setProductos(Collections.singletonList(new OrderItem("p1", 2, 10)));
+        order.setUbicacionEntrega(conCoordenadas
+                ? new DeliveryLocation(9.9281, -84.0907, "San José")
+                : new DeliveryLocation("San José"));
+        assertTrue(base.update(OrderIndexes.create(order, 1_000L)));
+    }
+
+    private Order leer(String id) {
+        return OrderMapper.fromValue(id, base.get("orders/" + id));
+    }
+
+    private void assertIndicesCoinciden(String id) {
+        Order order = leer(id);
+        String estado = order.getEstado();
+        for (String e : ESTADOS) {
+            Object entrada = base.get(OrderIndexes.POR_ESTADO + "/" + e + "/" + id);
+            if (e.equals(estado)) {
+                assertEquals(id + " en " + e, 1_000L, entrada);
+            } else {
+                assertNull(id + " sobra en " + e, entrada);
+            }
+        }
+        assertEquals(estado, base.get(OrderIndexes.POR_CLIENTE + "/c1/" + id));
+
+        boolean cerrado = OrderIndexes.isClosed(estado);
+        for (String r : REPARTIDORES) {
+            Object entrada = base.get(OrderIndexes.POR_REPARTIDOR + "/" + r + "/" + id);
+            if (r.equals(order.getRepartidorId()) && !cerrado) {
+                assertEquals(estado, entrada);
+            } else {
+                assertNull(id + " sobra en " + r, entrada);
+            }
+        }
+
+        DeliveryLocation u = order.getUbicacionEntrega();
+        if (u.hasCoordinates()) {
+            boolean ofrecido = order.getRepartidorId() == null && !cerrado;
+            assertEquals(id + " en orders_geo", ofrecido, base.get(OrderIndexes.geoPath(u, id)) != null);
+        }
+    }
+
+    /** Árbol de mapas como el de Firebase, con la regla de `version` de los pedidos. */
+    private static final class Base {
+        private final Map<String, Object> raiz = new HashMap<>();
+
+        Object get(String ruta) {
+            Object nodo = raiz;
+            for (String parte : ruta.split("/")) {
+                if (!(nodo instanceof Map)) return null;
+                nodo = ((Map<?, ?>) nodo).get(parte);
+            }
+            return nodo;
+        }
+
+        /** Todo o nada, como updateChildren con reglas. */
+        boolean update(Map<String, Object> updates) {
+            for (Map.Entry<String, Object> e : updates.entrySet()) {
+                String[] partes = e.getKey().split("/");
+                if (!partes[0].equals("orders")) continue;
+                Object guardado = get("orders/" + partes[1]);
+                if (partes.length == 2) {
+                    // Un pedido nuevo no puede pisar otro
+                    if (guardado != null) return false;
+                } else if (partes[2].equals("version")) {
+                    long anterior = SnapshotValues.integer(SnapshotValues.map(guardado), "version");
+                    if (guardado == null || ((Number) e.getValue()).longValue() != anterior + 1) return false;
+                }
+            }
+            for (Map.Entry<String, Object> e : updates.entrySet()) {
+                set(e.getKey(), e.getValue());
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void set(String ruta, Object valor) {
+            String[] partes = ruta.split("/");
+            List<Map<String, Object>> camino = new ArrayList<>();
+            Map<String, Object> nodo = raiz;
+            for (int i = 0; i < partes.length - 1; i++) {
+                camino.add(nodo);
+                Object hijo = nodo.get(partes[i]);
+                if (!(hijo instanceof Map)) {
+                    if (valor == null) return;
+                    hijo = new HashMap<String, Object>();
+                    nodo.put(partes[i], hijo);
+                }
+                nodo = (Map<String, Object>) hijo;
+            }
+            if (valor == null) {
+                nodo.remove(partes[partes.length - 1]);
+                // Firebase no guarda nodos vacíos
+                for (int i = camino.size() - 1; i >= 0 && nodo.isEmpty(); i--) {
+                    camino.get(i).remove(partes[i]);
+                    nodo = camino.get(i);
+                }
+            } else {
+                nodo.put(partes[partes.length - 1], valor instanceof Integer ? (long) (int) (Integer) valor : valor);
+            }
+        }
+    }
+}
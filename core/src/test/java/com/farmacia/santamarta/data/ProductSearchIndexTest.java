@@ -0,0 +1,97 @@
+package com.farmacia.santamarta.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProductSearchIndexTest {
+    private CatalogStore store;
+    private ProductSearchIndex index;
+
+    @Before
+    public void setUp() {
+        store = new CatalogStore();
+        store.insert("p1", "Acetaminofén 500mg", "Para el dolor", 1, 10, "Analgésicos", 0);
+        store.insert("p2", "Ibuprofeno 400mg", "Dolor e inflamación", 1, 10, "Analgésicos", 0);
+        store.insert("p3", "Vitamina C", "Refuerza defensas", 1, 10, "Vitaminas", 0);
+        store.insert("p4", "Crema para niños", "Piel sensible, sin acetaminofén", 1, 10, "Piel", 0);
+        index = new ProductSearchIndex();
+        index.rebuild(store);
+    }
+
+    @Test
+    public void buscaSinAcentosNiMayusculas() {
+        assertEquals(Arrays.asList("p1", "p4"), ids(index.search("ACETAMINOFEN")));
+        assertEquals(Arrays.asList("p3"), ids(index.search("Vitamina c")));
+    }
+
+    @Test
+    public void laEnieNoSeConfundeConN() {
+        assertEquals(Arrays.asList("p4"), ids(index.search("niños")));
+        assertTrue(index.search("ninos").isEmpty());
+    }
+
+    @Test
+    public void elNombrePesaMasQueLaDescripcion() {
+        // p1 lo tiene en el nombre y p4 solo en la descripción
+        assertEquals("p1", ids(index.search("acetaminofen")).get(0));
+    }
+
+    @Test
+    public void todosLosTerminosTienenQueAparecer() {
+        assertEquals(Arrays.asList("p2"), ids(index.search("dolor ibu")));
+        assertTrue(index.search("dolor vitamina").isEmpty());
+    }
+
+    @Test
+    public void consultaVaciaFiltraPorCategoriaEnOrdenDeNombre() {
+        assertEquals(Arrays.asList("p1", "p2"), ids(index.search("", "Analgésicos")));
+        assertEquals(Arrays.asList("p1", "p2"), ids(index.search("", "analgesicos")));
+        assertEquals(4, index.search("").size());
+        assertTrue(index.search("", "Otra").isEmpty());
+    }
+
+    @Test
+    public void putReemplazaLoIndexadoYRemoveLoQuita() {
+        int row = store.rowOf("p3");
+        index.put(row, "Zinc", "Minerales", "");
+        assertTrue(index.search("vitamina").isEmpty());
+        assertEquals(Arrays.asList("p3"), ids(index.search("zinc")));
+        assertEquals(Arrays.asList("p3"), ids(index.search("", "Minerales")));
+        assertTrue(index.search("", "Vitaminas").isEmpty());
+
+        index.remove(row);
+        assertTrue(index.search("zinc").isEmpty());
+        assertTrue(index.search("", "Minerales").isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void matchesCoincideConSearch() {
+        String[] consultas = {"", "acetaminofen", "dolor ibu", "ni", "in", "400", "vitamina c", "piel", "zinc"};
+        String[] categorias = {null, "Analgésicos", "Piel"};
+        for (String consulta : consultas) {
+            for (String categoria : categorias) {
+                IntList resultado = index.search(consulta, categoria);
+                for (int row = 0; row < store.rowCount(); row++) {
+                    assertEquals(consulta + " / " + categoria + " / " + store.getId(row),
+                            resultado.indexOf(row) >= 0, index.matches(row, consulta, categoria));
+                }
+            }
+        }
+        index.remove(store.rowOf("p1"));
+        assertFalse(index.matches(store.rowOf("p1"), "", null));
+    }
+
+    private List<String> ids(IntList filas) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < filas.size(); i++) ids.add(store.getId(filas.get(i)));
+        return ids;
+    }
+}
@@ -0,0 +1,143 @@
+package com.farmacia.santamarta.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class StockTallyTest {
+
+    @Test
+    public void drainAgrupaEnLotesYVaciaElConteo() {
+        StockTally tally = new StockTally();
+        tally.add("a");
+        tally.add("b");
+        tally.add("a");
+        tally.add("c");
+        assertEquals(3, tally.productCount());
+        assertEquals(4, tally.unitCount());
+
+        List<Map<String, Integer>> lotes = tally.drain(2);
+        assertEquals(2, lotes.size());
+        assertEquals(Integer.valueOf(2), lotes.get(0).get("a"));
+        assertEquals(Integer.valueOf(1), lotes.get(0).get("b"));
+        assertEquals(Integer.valueOf(1), lotes.get(1).get("c"));
+        assertTrue(tally.isEmpty());
+        assertEquals(0, tally.unitCount());
+    }
+
+    @Test
+    public void restoreSumaLoEscaneadoMientrasTanto() {
+        StockTally tally = new StockTally();
+        tally.add("a", 3);
+        Map<String, Integer> lote = tally.drain(10).get(0);
+        tally.add("a");
+
+        tally.restore(lote);
+        assertEquals(4, tally.get("a"));
+        assertEquals(4, tally.unitCount());
+    }
+
+    @Test
+    public void elPrimerEnvioDejaElStockEnLoContado() {
+        StockTally tally = new StockTally();
+        tally.startCount();
+        assertTrue(tally.needsBase("a"));
+        tally.setBase("a", 12);
+        tally.add("a", 5);
+        assertFalse(tally.needsBase("a"));
+
+        Map<String, Integer> lote = tally.drain(10).get(0);
+        assertEquals(Integer.valueOf(-7), lote.get("a"));
+        tally.confirm(lote);
+
+        // Lo que se escanee después de confirmar se suma tal cual
+        tally.add("a", 2);
+        assertEquals(Integer.valueOf(2), tally.drain(10).get(0).get("a"));
+    }
+
+    @Test
+    public void unEnvioFallidoConservaLaBase() {
+        StockTally tally = new StockTally();
+        tally.startCount();
+        tally.setBase("a", 12);
+        tally.add("a", 5);
+        tally.restore(tally.drain(10).get(0));
+        assertEquals(5, tally.get("a"));
+        assertFalse(tally.needsBase("a"));
+
+        // Un conteo nuevo no pierde la base de lo que sigue pendiente
+        tally.startCount();
+        assertEquals(Integer.valueOf(-7), tally.drain(10).get(0).get("a"));
+    }
+
+    @Test
+    public void unConteoNuevoVuelveAPedirLaBase() {
+        StockTally tally = new StockTally();
+        tally.startCount();
+        tally.setBase("a", 1);
+        tally.add("a");
+        tally.confirm(tally.drain(10).get(0));
+        assertFalse(tally.needsBase("a"));
+
+        tally.startCount();
+        assertTrue(tally.needsBase("a"));
+    }
+
+    @Test
+    public void unLoteRechazadoSeAjustaAlStockActual() {
+        StockTally tally = new StockTally();
+        tally.startCount();
+        tally.setBase("a", 10);
+        tally.add("a", 2);
+        tally.setBase("b", 5);
+        tally.add("b", 8);
+        tally.setBase("c", 4);
+        tally.add("c", 1);
+        Map<String, Integer> lote = tally.drain(10).get(0);
+        assertEquals(Integer.valueOf(-8), lote.get("a"));
+
+        // Mientras se contaba los pedidos dejaron "a" en 3: -8 lo pondría negativo y la regla rechaza todo el lote
+        Map<String, Integer> stock = new HashMap<>();
+        stock.put("a", 3);
+        stock.put("b", 5);
+        stock.put("c", 4);
+        List<String> ajustados = tally.fitToStock(lote, stock);
+
+        assertEquals(Collections.singletonList("a"), ajustados);
+        assertEquals(Integer.valueOf(-3), lote.get("a"));
+        // Los demás productos del lote se envían sin cambios
+        assertEquals(Integer.valueOf(3), lote.get("b"));
+        assertEquals(Integer.valueOf(-3), lote.get("c"));
+        assertTrue(tally.isEmpty());
+
+        tally.confirm(lote);
+        assertFalse(tally.needsBase("a"));
+    }
+
+    @Test
+    public void sinStockConocidoElProductoVuelveAlConteo() {
+        StockTally tally = new StockTally();
+        tally.startCount();
+        tally.setBase("a", 10);
+        tally.add("a", 2);
+        tally.setBase("b", 1);
+        tally.add("b", 3);
+        Map<String, Integer> lote = tally.drain(10).get(0);
+
+        List<String> afectados = tally.fitToStock(lote, Collections.singletonMap("b", 1));
+
+        assertEquals(Arrays.asList("a"), afectados);
+        assertFalse(lote.containsKey("a"));
+        assertEquals(Integer.valueOf(2), lote.get("b"));
+        // Vuelve con su base: el próximo envío sigue dejándolo en lo contado
+        assertEquals(2, tally.get("a"));
+        assertEquals(Integer.valueOf(-8), tally.drain(10).get(0).get("a"));
+    }
+}
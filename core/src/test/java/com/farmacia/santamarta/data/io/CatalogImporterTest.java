@@ -0,0 +1,116 @@
+package com.farmacia.santamarta.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CatalogImporterTest {
+    @Rule public TemporaryFolder carpeta = new TemporaryFolder();
+
+    // Guarda una copia de cada lote; falla en el lote número `fallarEn` (desde 1)
+    private static final class Lotes implements CatalogImporter.BatchWriter {
+        final List<Map<String, Object>> escritos = new ArrayList<>();
+        int fallarEn = -1;
+
+        @Override
+        public void write(Map<String, Object> updates) throws IOException {
+            if (escritos.size() + 1 == fallarEn) throw new IOException("sin conexión");
+            escritos.add(new HashMap<>(updates));
+        }
+    }
+
+    private static String csv(int filas) {
+        StringBuilder sb = new StringBuilder("id,nombre,precio,stock\n");
+        for (int i = 0; i < filas; i++) {
+            sb.append('p').append(i).append(",Producto ").append(i).append(",1.5,").append(i % 7).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private ImportReport importar(String csv, Lotes lotes, ImportCheckpoint checkpoint) throws IOException {
+        return new CatalogImporter(lotes, 0L)
+                .run(new CsvRecordReader(new StringReader(csv)), checkpoint, "catalogo.csv", report -> {});
+    }
+
+    @Test
+    public void losRechazosSeReportanConSuLinea() throws IOException {
+        Lotes lotes = new Lotes();
+        ImportReport report = importar("id,nombre,precio,stock\n"
+                + "1,Alcohol,2.5,3\n"
+                + "2,Gasa,-1,4\n"
+                + "3,,1,1\n"
+                + "4/5,Venda,1,1\n"
+                + "6,Jarabe,1,2.5\n", lotes, new ImportCheckpoint(carpeta.getRoot()));
+
+        assertTrue(report.isCompleted());
+        assertEquals(5, report.getRecordsRead());
+        assertEquals(1, report.getImported());
+        assertEquals(4, report.getRejected());
+        assertEquals(Arrays.asList(
+                "Registro 3: precio negativo (2)",
+                "Registro 4: falta el nombre (3)",
+                "Registro 5: id con caracteres no permitidos: 4/5",
+                "Registro 6: stock inválido (6)"), report.getErrors());
+        assertEquals(1, lotes.escritos.size());
+        assertTrue(lotes.escritos.get(0).containsKey("products/1"));
+        assertFalse(lotes.escritos.get(0).containsKey("products/2"));
+    }
+
+    @Test
+    public void unIdRepetidoGanaElUltimoYCuentaUnaVez() throws IOException {
+        Lotes lotes = new Lotes();
+        ImportReport report = importar("id,nombre,precio,stock\n"
+                + "1,Alcohol,2.5,3\n"
+                + "1,Alcohol 70%,2.5,8\n", lotes, new ImportCheckpoint(carpeta.getRoot()));
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getReplaced());
+        Map<String, Object> lote = lotes.escritos.get(0);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> producto = (Map<String, Object>) lote.get("products/1");
+        assertEquals("Alcohol 70%", producto.get("nombre"));
+        assertEquals(8, producto.get("stock"));
+        // La copia del stock del resumen va en el mismo lote con el mismo valor
+        @SuppressWarnings("unchecked")
+        Map<String, Object> resumen = (Map<String, Object>) lote.get("resumen/stock/1");
+        assertEquals(8L, resumen.get("stock"));
+    }
+
+    @Test
+    public void despuesDeUnLoteFallidoSeReanudaDesdeElUltimoConfirmado() throws IOException {
+        String archivo = csv(2 * CatalogImporter.BATCH_SIZE + 10);
+        ImportCheckpoint checkpoint = new ImportCheckpoint(carpeta.getRoot());
+        Lotes lotes = new Lotes();
+        lotes.fallarEn = 2;
+        try {
+            importar(archivo, lotes, checkpoint);
+            fail("el segundo lote debía fallar");
+        } catch (IOException e) {
+            assertEquals("sin conexión", e.getMessage());
+        }
+        assertEquals(CatalogImporter.BATCH_SIZE, checkpoint.load("catalogo.csv"));
+
+        Lotes reintento = new Lotes();
+        ImportReport report = importar(archivo, reintento, checkpoint);
+        assertTrue(report.isCompleted());
+        assertEquals(CatalogImporter.BATCH_SIZE, report.getSkipped());
+        assertEquals(CatalogImporter.BATCH_SIZE + 10, report.getImported());
+        // El lote que falló se reenvía completo y el primero no vuelve a enviarse
+        assertEquals(2, reintento.escritos.size());
+        assertTrue(reintento.escritos.get(0).containsKey("products/p" + CatalogImporter.BATCH_SIZE));
+        assertFalse(reintento.escritos.get(0).containsKey("products/p0"));
+        assertEquals(0, checkpoint.load("catalogo.csv"));
+    }
+}
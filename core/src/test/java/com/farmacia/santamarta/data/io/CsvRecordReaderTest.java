@@ -0,0 +1,63 @@
+package com.farmacia.santamarta.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import org.junit.Test;
+
+public class CsvRecordReaderTest {
+
+    @Test
+    public void camposEntreComillasConComasComillasYSaltos() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(
+                "id,nombre,descripcion,precio,stock\n"
+                        + "1,\"Jarabe, 120 ml\",\"Dice \"\"agitar\"\"\nantes de usar\",3.5,10\n"
+                        + "2,Gasa,,1,4\n"));
+
+        Map<String, Object> jarabe = reader.next();
+        assertEquals("Jarabe, 120 ml", jarabe.get("nombre"));
+        assertEquals("Dice \"agitar\"\nantes de usar", jarabe.get("descripcion"));
+        assertEquals("3.5", jarabe.get("precio"));
+        assertEquals(2, reader.position());
+
+        Map<String, Object> gasa = reader.next();
+        assertEquals("Gasa", gasa.get("nombre"));
+        // Un campo vacío no se pasa, así el producto queda con el valor por defecto
+        assertNull(gasa.get("descripcion"));
+        // La descripción anterior ocupó dos líneas
+        assertEquals(4, reader.position());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void aceptaCrlfBomYColumnasEnCualquierOrden() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(
+                "\uFEFFNombre,ID\r\nAlcohol,1\r\n\r\nGasa,2\r\n"));
+
+        Map<String, Object> alcohol = reader.next();
+        assertEquals("1", alcohol.get("id"));
+        assertEquals("Alcohol", alcohol.get("nombre"));
+        assertEquals(2, reader.position());
+
+        // La línea en blanco se salta pero cuenta para el número de línea
+        Map<String, Object> gasa = reader.next();
+        assertEquals("2", gasa.get("id"));
+        assertEquals("Gasa", gasa.get("nombre"));
+        assertEquals(4, reader.position());
+        assertNull(reader.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void comillasSinCerrarEsUnError() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("id,nombre\n1,\"Alcohol\n"));
+        reader.next();
+    }
+
+    @Test(expected = IOException.class)
+    public void archivoVacioEsUnError() throws IOException {
+        new CsvRecordReader(new StringReader(""));
+    }
+}
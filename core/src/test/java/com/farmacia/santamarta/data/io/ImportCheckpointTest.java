@@ -0,0 +1,36 @@
+package com.farmacia.santamarta.data.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImportCheckpointTest {
+    @Rule public TemporaryFolder carpeta = new TemporaryFolder();
+
+    @Test
+    public void elAvanceEsDelMismoArchivo() throws IOException {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(carpeta.getRoot());
+        assertEquals(0, checkpoint.load("catalogo.csv#1000"));
+
+        checkpoint.save("catalogo.csv#1000", 500);
+        assertEquals(500, new ImportCheckpoint(carpeta.getRoot()).load("catalogo.csv#1000"));
+        // Otro archivo, o el mismo con otro tamaño, empieza de cero
+        assertEquals(0, checkpoint.load("catalogo.csv#1200"));
+
+        checkpoint.clear();
+        assertEquals(0, checkpoint.load("catalogo.csv#1000"));
+    }
+
+    @Test
+    public void unArchivoDanadoEmpiezaDeCero() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(carpeta.getRoot(), "import_checkpoint.bin"))) {
+            out.write(new byte[] {0, 40, 'x'});
+        }
+        assertEquals(0, new ImportCheckpoint(carpeta.getRoot()).load("catalogo.csv#1000"));
+    }
+}
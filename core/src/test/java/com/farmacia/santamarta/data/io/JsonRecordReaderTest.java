@@ -0,0 +1,55 @@
+package com.farmacia.santamarta.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import org.junit.Test;
+
+public class JsonRecordReaderTest {
+
+    @Test
+    public void leeUnArregloDeProductos() throws IOException {
+        JsonRecordReader reader = new JsonRecordReader(new StringReader(
+                "[{\"id\": \"1\", \"nombre\": \"Jarabe \\\"infantil\\\"\", \"precio\": 3.5, \"stock\": 10},\n"
+                        + " {\"id\": \"2\", \"nombre\": \"Gasa\", \"precio\": 1, \"eliminado\": true}]"));
+
+        Map<String, Object> jarabe = reader.next();
+        assertEquals("Jarabe \"infantil\"", jarabe.get("nombre"));
+        // Mismos tipos que entrega Firebase
+        assertEquals(3.5, jarabe.get("precio"));
+        assertEquals(10L, jarabe.get("stock"));
+        assertEquals(1, reader.position());
+
+        Map<String, Object> gasa = reader.next();
+        assertEquals(Boolean.TRUE, gasa.get("eliminado"));
+        assertEquals(2, reader.position());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void enLaExportacionDeFirebaseLaClaveEsElId() throws IOException {
+        JsonRecordReader reader = new JsonRecordReader(new StringReader(
+                "\uFEFF{\"abc\": {\"nombre\": \"Alcohol\"}, \"def\": {\"id\": \"otro\", \"nombre\": \"Gasa\"}}"));
+
+        assertEquals("abc", reader.next().get("id"));
+        // Un id explícito en el registro se respeta
+        assertEquals("otro", reader.next().get("id"));
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void archivosSinProductos() throws IOException {
+        assertNull(new JsonRecordReader(new StringReader("[]")).next());
+        assertNull(new JsonRecordReader(new StringReader(" {} ")).next());
+    }
+
+    @Test(expected = IOException.class)
+    public void registrosSinComaEsUnError() throws IOException {
+        JsonRecordReader reader = new JsonRecordReader(new StringReader("[{\"id\": \"1\"} {\"id\": \"2\"}]"));
+        reader.next();
+        reader.next();
+    }
+}